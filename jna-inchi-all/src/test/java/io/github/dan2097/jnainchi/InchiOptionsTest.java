@@ -18,6 +18,7 @@
 package io.github.dan2097.jnainchi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -161,4 +162,26 @@ public class InchiOptionsTest {
     assertEquals("InChI=1S//", result2.getInchi());
   }
 
+  @Test
+  public void testEquality() {
+    InchiOptions options1 = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.RecMet).withTimeout(5).build();
+    InchiOptions options2 = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.RecMet).withFlag(InchiFlag.FixedH).withTimeoutMilliSeconds(5000).build();
+    assertEquals(options1, options2);
+    assertEquals(options1.hashCode(), options2.hashCode());
+    assertEquals(options1.toString(), options2.toString());
+    assertEquals(InchiOptions.DEFAULT_OPTIONS, new InchiOptions.InchiOptionsBuilder().build());
+
+    assertNotEquals(options1, new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH).withTimeout(5).build());
+    assertNotEquals(options1, new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.RecMet).build());
+    assertNotEquals(options1, new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.RecMet).withTimeout(5).withOutputFields().build());
+  }
+
+  @Test
+  public void testEqualOptionsGiveSameInchi() throws IOException {
+    InchiOptions options1 = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon, InchiFlag.FixedH).build();
+    InchiOptions options2 = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH).withFlag(InchiFlag.SNon).build();
+    String smiles = "N1=CN=C2N=CNC2=C1.C[C@H](O)F";
+    assertEquals(SmilesToInchi.toInchi(smiles, options1).getInchi(), SmilesToInchi.toInchi(smiles, options2).getInchi());
+  }
+
 }
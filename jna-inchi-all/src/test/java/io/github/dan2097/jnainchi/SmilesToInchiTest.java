@@ -18,10 +18,22 @@
 package io.github.dan2097.jnainchi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 
@@ -37,4 +49,101 @@ public class SmilesToInchiTest {
       fail(smiles + " was not converted");
     }
   }
+
+  @ParameterizedTest
+  @CsvFileSource(resources = "smilesintegrationtests.smi", delimiter = '\t')
+  public void testPackedEngineConversion(String smiles, String expectedInchi) throws IOException {
+    InchiOptions options = new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).build();
+    InchiOutput packedOutput = SmilesToInchi.toInchi(smiles, options);
+    InchiOutput ixaOutput = SmilesToInchi.toInchi(smiles);
+    assertEquals(expectedInchi, packedOutput.getInchi(), smiles + " was misconverted as: " + packedOutput.getInchi());
+    assertEquals(ixaOutput.getAuxInfo(), packedOutput.getAuxInfo());
+    assertEquals(ixaOutput.getStatus(), packedOutput.getStatus());
+  }
+
+  @Test
+  public void testBatchConversion() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<InchiBatchResult<InchiOutput>> results = SmilesToInchi.toInchiBatch(Arrays.asList("CO", "C(", "C[C@H](O)F"), InchiOptions.DEFAULT_OPTIONS, executor);
+      assertEquals(3, results.size());
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", results.get(0).getResult().getInchi());
+      assertFalse(results.get(1).isSuccess());
+      assertTrue(results.get(1).getException() instanceof IOException);
+      assertEquals(SmilesToInchi.toInchi("C[C@H](O)F").getInchi(), results.get(2).getResult().getInchi());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testPipeline() throws IOException {
+    List<String> inchis = new ArrayList<>();
+    List<InchiBatchResult<InchiOutput>> failures = new ArrayList<>();
+    InchiPipeline<String, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        SmilesToInchi::toInchiInput,
+        (session, input) -> session.toInchi(input, InchiOptions.DEFAULT_OPTIONS),
+        (sequence, smiles, result) -> {
+          if (result.isSuccess()) {
+            inchis.add(result.getResult().getInchi());
+          }
+          else {
+            failures.add(result);
+          }
+        })
+        .withConvertThreads(2)
+        .build();
+    assertEquals(3, pipeline.run(Arrays.asList("CO", "C(", "C[C@H](O)F").iterator()));
+    assertEquals(Arrays.asList("InChI=1S/CH4O/c1-2/h2H,1H3", SmilesToInchi.toInchi("C[C@H](O)F").getInchi()), inchis);
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(0).getException() instanceof IOException);
+  }
+
+  @Test
+  public void testToInchiWithKey() throws IOException {
+    InchiWithKeyOutput output = SmilesToInchi.toInchiWithKey("CO");
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", output.getInchi());
+    assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N", output.getInchiKey());
+  }
+
+  @Test
+  public void testPersistentCache(@TempDir Path dir) throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      InchiWithKeyOutput output = SmilesToInchi.toInchiWithKey("CO", InchiOptions.DEFAULT_OPTIONS, cache);
+      assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N", output.getInchiKey());
+    }
+    try (PersistentInchiCache cache = PersistentInchiCache.openReadOnly(dir)) {
+      InchiWithKeyOutput output = SmilesToInchi.toInchiWithKey("CO", InchiOptions.DEFAULT_OPTIONS, cache);
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", output.getInchi());
+      assertEquals(1, cache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testFailureCache() throws IOException {
+    InchiFailureCache failures = new InchiFailureCache(10, 1, TimeUnit.HOURS);
+    assertEquals(InchiStatus.ERROR, SmilesToInchi.toInchi("*", InchiOptions.DEFAULT_OPTIONS, failures).getStatus());
+    assertEquals(InchiStatus.ERROR, SmilesToInchi.toInchi("*", InchiOptions.DEFAULT_OPTIONS, failures).getStatus());
+    assertEquals(1, failures.getHitCount());
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", SmilesToInchi.toInchi("CO", InchiOptions.DEFAULT_OPTIONS, failures).getInchi());
+    assertEquals(1, failures.size());
+  }
+
+  @Test
+  public void testCachedConversion() throws IOException {
+    InchiCache cache = new InchiCache(10);
+    InchiOutput output = SmilesToInchi.toInchi("CO", InchiOptions.DEFAULT_OPTIONS, cache);
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", output.getInchi());
+    assertSame(output, SmilesToInchi.toInchi("CO", InchiOptions.DEFAULT_OPTIONS, cache));
+    assertEquals(1, cache.getHitCount());
+    try {
+      SmilesToInchi.toInchi("C(", InchiOptions.DEFAULT_OPTIONS, cache);
+      fail("Invalid SMILES should throw an IOException");
+    }
+    catch (IOException e) {
+      //expected
+    }
+    assertEquals(1, cache.size());
+  }
 }
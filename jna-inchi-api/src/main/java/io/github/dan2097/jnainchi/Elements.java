@@ -0,0 +1,160 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * Registry of the elements known to InChI, indexed by atomic number.
+ * Symbols are resolved to atomic numbers with a table indexed by the characters of the symbol, rather than hashing,
+ * and the NUL-terminated symbols passed to the InChI library are encoded once up front
+ */
+final class Elements {
+
+  static final int MAX_ATOMIC_NUMBER = 118;
+
+  private static final String[] SYMBOLS = {
+    null,
+    "H", "He", "Li", "Be", "B", "C", "N", "O", "F", "Ne",
+    "Na", "Mg", "Al", "Si", "P", "S", "Cl", "Ar", "K", "Ca",
+    "Sc", "Ti", "V", "Cr", "Mn", "Fe", "Co", "Ni", "Cu", "Zn",
+    "Ga", "Ge", "As", "Se", "Br", "Kr", "Rb", "Sr", "Y", "Zr",
+    "Nb", "Mo", "Tc", "Ru", "Rh", "Pd", "Ag", "Cd", "In", "Sn",
+    "Sb", "Te", "I", "Xe", "Cs", "Ba", "La", "Ce", "Pr", "Nd",
+    "Pm", "Sm", "Eu", "Gd", "Tb", "Dy", "Ho", "Er", "Tm", "Yb",
+    "Lu", "Hf", "Ta", "W", "Re", "Os", "Ir", "Pt", "Au", "Hg",
+    "Tl", "Pb", "Bi", "Po", "At", "Rn", "Fr", "Ra", "Ac", "Th",
+    "Pa", "U", "Np", "Pu", "Am", "Cm", "Bk", "Cf", "Es", "Fm",
+    "Md", "No", "Lr", "Rf", "Db", "Sg", "Bh", "Hs", "Mt", "Ds",
+    "Rg", "Cn", "Nh", "Fl", "Mc", "Lv", "Ts", "Og"
+  };
+
+  //avg mw from util.c
+  private static final int[] BASE_MASSES = {
+    0,
+    1, 4, 7, 9, 11, 12, 14, 16, 19, 20,
+    23, 24, 27, 28, 31, 32, 35, 40, 39, 40,
+    45, 48, 51, 52, 55, 56, 59, 59, 64, 65,
+    70, 73, 75, 79, 80, 84, 85, 88, 89, 91,
+    93, 96, 98, 101, 103, 106, 108, 112, 115, 119,
+    122, 128, 127, 131, 133, 137, 139, 140, 141, 144,
+    145, 150, 152, 157, 159, 163, 165, 167, 169, 173,
+    175, 178, 181, 184, 186, 190, 192, 195, 197, 201,
+    204, 207, 209, 209, 210, 222, 223, 226, 227, 232,
+    231, 238, 237, 244, 243, 247, 247, 251, 252, 257,
+    258, 259, 260, 261, 270, 269, 270, 270, 278, 281,
+    281, 285, 278, 289, 289, 293, 297, 294
+  };
+
+  private static final int DEUTERIUM_BASE_MASS = 2;
+  private static final int TRITIUM_BASE_MASS = 3;
+
+  private static final byte[][] C_SYMBOLS = new byte[MAX_ATOMIC_NUMBER + 1][];
+  private static final byte[] DEUTERIUM_C_SYMBOL = toCString("D");
+  private static final byte[] TRITIUM_C_SYMBOL = toCString("T");
+
+  //indexed by symbolCode(symbol)
+  private static final byte[] SYMBOL_CODE_TO_ATOMIC_NUMBER = new byte[26 * 27];
+
+  static {
+    for (int i = 1; i <= MAX_ATOMIC_NUMBER; i++) {
+      C_SYMBOLS[i] = toCString(SYMBOLS[i]);
+      SYMBOL_CODE_TO_ATOMIC_NUMBER[symbolCode(SYMBOLS[i])] = (byte) i;
+    }
+  }
+
+  private Elements() {}
+
+  /**
+   * @param symbol
+   * @return the atomic number of the element with the given symbol, or 0 if not an element e.g. D, T or Zz
+   */
+  static int getAtomicNumber(String symbol) {
+    int code = symbolCode(symbol);
+    return code >= 0 ? SYMBOL_CODE_TO_ATOMIC_NUMBER[code] : 0;
+  }
+
+  /**
+   * The mass that InChI uses as the basis for isotopic shifts, D and T are also supported
+   * @param symbol
+   * @return base mass, or 0 if unknown
+   */
+  static int getBaseMass(String symbol) {
+    int atomicNumber = getAtomicNumber(symbol);
+    if (atomicNumber > 0) {
+      return BASE_MASSES[atomicNumber];
+    }
+    if (symbol.equals("D")) {
+      return DEUTERIUM_BASE_MASS;
+    }
+    if (symbol.equals("T")) {
+      return TRITIUM_BASE_MASS;
+    }
+    return 0;
+  }
+
+  /**
+   * The NUL-terminated ASCII form of the symbol. The returned array is shared so must not be modified
+   * @param symbol
+   * @return encoded symbol, or null if not an element, D or T
+   */
+  static byte[] getCSymbol(String symbol) {
+    int atomicNumber = getAtomicNumber(symbol);
+    if (atomicNumber > 0) {
+      return C_SYMBOLS[atomicNumber];
+    }
+    if (symbol.equals("D")) {
+      return DEUTERIUM_C_SYMBOL;
+    }
+    if (symbol.equals("T")) {
+      return TRITIUM_C_SYMBOL;
+    }
+    return null;
+  }
+
+  /**
+   * Maps a one or two letter symbol (uppercase then lowercase) to a unique index
+   * @param symbol
+   * @return index, or -1 if not of the form of an element symbol
+   */
+  private static int symbolCode(String symbol) {
+    int len = symbol.length();
+    if (len == 0 || len > 2) {
+      return -1;
+    }
+    int first = symbol.charAt(0) - 'A';
+    if (first < 0 || first >= 26) {
+      return -1;
+    }
+    if (len == 1) {
+      return first * 27;
+    }
+    int second = symbol.charAt(1) - 'a';
+    if (second < 0 || second >= 26) {
+      return -1;
+    }
+    return first * 27 + second + 1;
+  }
+
+  private static byte[] toCString(String symbol) {
+    byte[] cstr = new byte[symbol.length() + 1];
+    for (int i = 0; i < symbol.length(); i++) {
+      cstr[i] = (byte) symbol.charAt(i);
+    }
+    return cstr;
+  }
+
+}
@@ -17,6 +17,8 @@
  */
 package io.github.dan2097.jnainchi;
 
+import java.util.Arrays;
+
 public class InchiAtom {
   
   private String elName;
@@ -29,6 +31,10 @@ public class InchiAtom {
   private int isotopicMass = 0;
   private InchiRadical radical = InchiRadical.NONE;
   private int charge = 0;
+
+  //Position of this atom in the InchiInput it was first added to, which is notified of changes to this atom
+  InchiInput owner = null;
+  int index = -1;
   
   public InchiAtom(String elName) {
     this.elName = elName;
@@ -47,6 +53,7 @@ public class InchiAtom {
 
   public void setElName(String elName) {
     this.elName = elName;
+    modified();
   }
 
   public double getX() {
@@ -55,6 +62,7 @@ public class InchiAtom {
 
   public void setX(double x) {
     this.x = x;
+    modified();
   }
 
   public double getY() {
@@ -63,6 +71,7 @@ public class InchiAtom {
 
   public void setY(double y) {
     this.y = y;
+    modified();
   }
 
   public double getZ() {
@@ -71,6 +80,7 @@ public class InchiAtom {
 
   public void setZ(double z) {
     this.z = z;
+    modified();
   }
 
   public int getImplicitHydrogen() {
@@ -91,6 +101,7 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable implicitHydrogen:" + implicitHydrogen);
     }
     this.implicitHydrogen[0] = implicitHydrogen;
+    modified();
   }
   
   public void setImplicitProtium(int implicitProtium) {
@@ -98,6 +109,7 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable implicitProtium:" + implicitProtium);
     }
     this.implicitHydrogen[1] = implicitProtium;
+    modified();
   }
   
   public int getImplicitProtium() {
@@ -109,6 +121,7 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable implicitDeuterium:" + implicitDeuterium);
     }
     this.implicitHydrogen[2] = implicitDeuterium;
+    modified();
   }
   
   public int getImplicitDeuterium() {
@@ -120,6 +133,7 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable implicitTritium:" + implicitTritium);
     }
     this.implicitHydrogen[3] = implicitTritium;
+    modified();
   }
   
   public int getImplicitTritium() {
@@ -135,6 +149,7 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable isotopicMass:" + isotopicMass);
     }
     this.isotopicMass = isotopicMass;
+    modified();
   }
 
   public InchiRadical getRadical() {
@@ -143,6 +158,7 @@ public class InchiAtom {
 
   public void setRadical(InchiRadical radical) {
     this.radical = radical;
+    modified();
   }
 
   public int getCharge() {
@@ -154,5 +170,36 @@ public class InchiAtom {
       throw new IllegalArgumentException("Unacceptable charge:" + charge);
     }
     this.charge = charge;
+    modified();
+  }
+
+  private void modified() {
+    if (owner != null) {
+      owner.atomModified();
+    }
+  }
+
+  void addTo(InchiFingerprint.Hasher hasher) {
+    hasher.add(elName);
+    hasher.add(Double.doubleToLongBits(x));
+    hasher.add(Double.doubleToLongBits(y));
+    hasher.add(Double.doubleToLongBits(z));
+    hasher.add((implicitHydrogen[0] & 0xffL) | (implicitHydrogen[1] & 0xffL) << 8 | (implicitHydrogen[2] & 0xffL) << 16 | (implicitHydrogen[3] & 0xffL) << 24 |
+        (isotopicMass & 0xffffL) << 32 | (radical != null ? radical.getCode() & 0xffL : 0xffL) << 48 | (charge & 0xffL) << 56);
+  }
+
+  /**
+   * Whether the given atom has the same element, coordinates, implicit hydrogens, isotope, radical and charge as this atom
+   * @param other
+   * @return
+   */
+  boolean hasSameProperties(InchiAtom other) {
+    if (this == other) {
+      return true;
+    }
+    return Double.doubleToLongBits(x) == Double.doubleToLongBits(other.x) && Double.doubleToLongBits(y) == Double.doubleToLongBits(other.y) &&
+        Double.doubleToLongBits(z) == Double.doubleToLongBits(other.z) && Arrays.equals(implicitHydrogen, other.implicitHydrogen) &&
+        isotopicMass == other.isotopicMass && radical == other.radical && charge == other.charge &&
+        (elName == null ? other.elName == null : elName.equals(other.elName));
   }
 }
@@ -0,0 +1,57 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binding used by {@link JnaInchi} to call the classic (non-IXA) functions of the InChI library.
+ * The JNA binding is always available, an alternative binding (e.g. the jna-inchi-ffm module) is picked up at runtime if present.
+ * @see JnaInchi#getBackend()
+ */
+interface InchiBackend {
+
+  /**
+   * @return Short name of the binding e.g. "JNA"
+   */
+  String getName();
+
+  InchiOutput toInchi(PackedInchiInput input);
+
+  InchiStatus toInchi(PackedInchiInput input, ByteBuffer sink);
+
+  InchiOutput molToInchi(String molText, InchiOptions options);
+
+  InchiStatus molToInchi(String molText, InchiOptions options, ByteBuffer sink);
+
+  /**
+   * @param molText the molfile is the bytes from the position to the limit, the buffer's position is not changed
+   * @param options
+   * @return
+   */
+  InchiOutput molToInchi(ByteBuffer molText, InchiOptions options);
+
+  InchiKeyOutput inchiToInchiKey(String inchi);
+
+  InchiKeyStatus inchiToInchiKey(String inchi, ByteBuffer sink);
+
+  InchiCheckStatus checkInchi(String inchi, boolean strict);
+
+  InchiKeyCheckStatus checkInchiKey(String inchiKey);
+
+}
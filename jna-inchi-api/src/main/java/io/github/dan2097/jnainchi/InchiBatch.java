@@ -0,0 +1,152 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a conversion over a list of inputs using the threads of an {@link Executor}.
+ * The inputs are split into chunks that workers claim in turn, so faster workers take on more of the chunks.
+ * Each worker holds one {@link InchiSession} for all the items it converts.
+ * The calling thread also acts as a worker, so the batch completes even if the executor rejects, or never gets round to, some of the workers
+ */
+class InchiBatch {
+
+  @FunctionalInterface
+  interface Conversion<I, O> {
+    /**
+     * @param session session owned by the current worker, null if the batch was run without sessions
+     * @param input
+     * @return result
+     * @throws Exception
+     */
+    O convert(InchiSession session, I input) throws Exception;
+  }
+
+  //more chunks than workers, so that uneven chunks even out
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private InchiBatch() {}
+
+  /**
+   * @param inputs
+   * @param executor
+   * @param useSession whether the conversion uses the {@link InchiSession} passed to it
+   * @param conversion
+   * @return the result for each input, in the same order as the inputs
+   */
+  static <I, O> List<InchiBatchResult<O>> run(List<I> inputs, Executor executor, boolean useSession, Conversion<I, O> conversion) {
+    if (inputs == null) {
+      throw new IllegalArgumentException("inputs must not be null");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("executor must not be null");
+    }
+    int size = inputs.size();
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    int maxWorkers = Math.min(Runtime.getRuntime().availableProcessors(), size);
+    int chunkSize = Math.max(1, size / (maxWorkers * CHUNKS_PER_WORKER));
+    int numChunks = (size + chunkSize - 1) / chunkSize;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    InchiBatchResult<O>[] results = new InchiBatchResult[size];
+    AtomicInteger nextChunk = new AtomicInteger();
+    CountDownLatch chunksDone = new CountDownLatch(numChunks);
+    AtomicReference<Throwable> fatalError = new AtomicReference<>();
+
+    Runnable worker = () -> {
+      InchiSession session = null;
+      try {
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < numChunks) {
+          try {
+            if (fatalError.get() != null) {
+              continue;
+            }
+            if (useSession && session == null) {
+              session = new InchiSession();
+            }
+            int end = Math.min(size, (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < end; i++) {
+              results[i] = convert(session, inputs.get(i), conversion);
+            }
+          }
+          catch (Throwable e) {
+            fatalError.compareAndSet(null, e);
+          }
+          finally {
+            chunksDone.countDown();
+          }
+        }
+      }
+      finally {
+        if (session != null) {
+          session.close();
+        }
+      }
+    };
+
+    for (int i = 1; i < maxWorkers && nextChunk.get() < numChunks; i++) {
+      try {
+        executor.execute(worker);
+      }
+      catch (RejectedExecutionException e) {
+        break;
+      }
+    }
+    worker.run();
+
+    try {
+      chunksDone.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted whilst waiting for the batch to complete", e);
+    }
+    Throwable error = fatalError.get();
+    if (error instanceof Error) {
+      throw (Error) error;
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    if (error != null) {
+      throw new IllegalStateException(error);
+    }
+    return Collections.unmodifiableList(Arrays.asList(results));
+  }
+
+  private static <I, O> InchiBatchResult<O> convert(InchiSession session, I input, Conversion<I, O> conversion) {
+    try {
+      return InchiBatchResult.success(conversion.convert(session, input));
+    }
+    catch (Exception e) {
+      return InchiBatchResult.failure(e);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * The outcome of converting one item of a batch, either a result or the exception that was thrown when converting it
+ * @param <T> type of the result
+ */
+public final class InchiBatchResult<T> {
+
+  private final T result;
+  private final Exception exception;
+
+  private InchiBatchResult(T result, Exception exception) {
+    this.result = result;
+    this.exception = exception;
+  }
+
+  static <T> InchiBatchResult<T> success(T result) {
+    return new InchiBatchResult<>(result, null);
+  }
+
+  static <T> InchiBatchResult<T> failure(Exception exception) {
+    return new InchiBatchResult<>(null, exception);
+  }
+
+  /**
+   * @return true if the conversion did not throw an exception.
+   * Note that the conversion may still have failed, in which case the result's status will indicate this
+   */
+  public boolean isSuccess() {
+    return exception == null;
+  }
+
+  /**
+   * @return the result of the conversion, or null if an exception was thrown
+   */
+  public T getResult() {
+    return result;
+  }
+
+  /**
+   * @return the exception thrown by the conversion, or null if none was thrown
+   */
+  public Exception getException() {
+    return exception;
+  }
+
+}
@@ -0,0 +1,288 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe, cache of conversion results, for when the same structures are converted repeatedly e.g. common reagents and solvents.
+ * Results are keyed on the input and the options. Input text, e.g. a molfile, is compared in full,
+ * whereas an {@link InchiInput} is identified by its 128-bit {@link InchiInput#getFingerprint() fingerprint}, so that the cache doesn't keep a copy of every molecule.
+ * Different molecules with the same fingerprint would be given the same result. That is vanishingly unlikely by chance,
+ * but the fingerprint is not a cryptographic hash, so it can't be relied upon to distinguish inputs that were crafted to collide.
+ * <br>
+ * The cache is split into independently locked segments, each evicting its least recently used entry when full.
+ * Concurrent misses for the same input may both call the InChI library, in which case the later result is the one retained.
+ * Exceptions are not cached.
+ * <pre>
+ * InchiCache cache = new InchiCache(100000);
+ * InchiOutput output = cache.toInchi(inchiInput, options);
+ * </pre>
+ */
+public final class InchiCache {
+
+  private static final int DEFAULT_SEGMENTS = 16;
+
+  static final byte KIND_INPUT = 0;
+  static final byte KIND_MOLFILE = 1;
+  static final byte KIND_INCHIKEY = 2;
+  static final byte KIND_SMILES = 3;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final int maximumSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maximumSize the maximum number of results to hold
+   */
+  public InchiCache(int maximumSize) {
+    this(maximumSize, DEFAULT_SEGMENTS);
+  }
+
+  /**
+   * @param maximumSize the maximum number of results to hold
+   * @param concurrencyLevel the expected number of threads using the cache, the cache is split into at least this many segments
+   */
+  public InchiCache(int maximumSize, int concurrencyLevel) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+    }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+    }
+    //no point in having segments that can only hold a handful of entries
+    int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maximumSize / 8)) * 2 - 1);
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+    }
+    this.segmentMask = segmentCount - 1;
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * As {@link JnaInchi#toInchi(InchiInput, InchiOptions)}, returning the cached output if this input has been seen before with these options.
+   * The input is identified by its {@link InchiInput#getFingerprint() fingerprint}, so changes to the input after it was cached are taken into account,
+   * but a different input with the same fingerprint would be given this input's output
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    if (inchiInput == null) {
+      throw new IllegalArgumentException("inchiInput must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(KIND_INPUT, inchiInput.getFingerprint(), options, () -> JnaInchi.toInchi(inchiInput, options));
+  }
+
+  /**
+   * As {@link JnaInchi#molToInchi(String, InchiOptions)}, returning the cached output if this molfile has been seen before with these options
+   * @param molText
+   * @param options
+   * @return
+   */
+  public InchiOutput molToInchi(String molText, InchiOptions options) {
+    if (molText == null) {
+      throw new IllegalArgumentException("molText must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(KIND_MOLFILE, molText, options, () -> JnaInchi.molToInchi(molText, options));
+  }
+
+  /**
+   * As {@link JnaInchi#inchiToInchiKey(String)}, returning the cached output if the InChIKey of this InChI has been requested before
+   * @param inchi
+   * @return
+   */
+  public InchiKeyOutput inchiToInchiKey(String inchi) {
+    if (inchi == null) {
+      throw new IllegalArgumentException("inchi must not be null");
+    }
+    return get(KIND_INCHIKEY, inchi, null, () -> JnaInchi.inchiToInchiKey(inchi));
+  }
+
+  @FunctionalInterface
+  interface Loader<V, E extends Exception> {
+    V load() throws E;
+  }
+
+  /**
+   * Returns the cached value for the given input, or loads and caches it
+   * @param kind the type of conversion e.g. {@link #KIND_MOLFILE}
+   * @param content String, or {@link InchiFingerprint}, that identifies the input
+   * @param options may be null if the conversion doesn't take options
+   * @param loader
+   * @return
+   * @throws E if loading failed, in which case nothing is cached
+   */
+  @SuppressWarnings("unchecked")
+  <V, E extends Exception> V get(byte kind, Object content, InchiOptions options, Loader<V, E> loader) throws E {
+    Key key = new Key(kind, content, options);
+    Segment segment = segments[spread(key.hash) & segmentMask];
+    Object value;
+    synchronized (segment) {
+      value = segment.get(key);
+    }
+    if (value != null) {
+      hits.increment();
+      return (V) value;
+    }
+    misses.increment();
+    V loaded = loader.load();
+    if (loaded != null) {
+      synchronized (segment) {
+        segment.put(key, loaded);
+      }
+    }
+    return loaded;
+  }
+
+  static int spread(int h) {
+    //The low bits pick the segment, and the segment's own hash table also uses the low bits, so mix in the high bits
+    return h ^ (h >>> 16) ^ (h >>> 24);
+  }
+
+  /**
+   * @return the number of lookups that returned a cached result
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that had to call the InChI library
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of results removed to make space for newer results
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the maximum number of results the cache will hold
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * @return the number of results currently cached
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Removes all cached results, the statistics are unchanged
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "InchiCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+  }
+
+  /**
+   * Access ordered map, evicting the least recently used entry once its capacity is exceeded
+   */
+  private class Segment extends LinkedHashMap<Key, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  static final class Key {
+
+    private final byte kind;
+    private final Object content;
+    private final InchiOptions options;
+    private final int hash;
+
+    Key(byte kind, Object content, InchiOptions options) {
+      this.kind = kind;
+      this.content = content;
+      this.options = options;
+      int h = content.hashCode() * 31 + Objects.hashCode(options);
+      this.hash = h * 31 + kind;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      if (hash != other.hash || kind != other.kind || !Objects.equals(options, other.options)) {
+        return false;
+      }
+      return content.equals(other.content);
+    }
+  }
+
+}
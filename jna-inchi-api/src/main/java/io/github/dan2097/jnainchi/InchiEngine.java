@@ -0,0 +1,34 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * The route used by {@link JnaInchi#toInchi(InchiInput, InchiOptions)} to pass an {@link InchiInput} to the InChI library
+ */
+public enum InchiEngine {
+
+  /** Builds the molecule atom by atom, bond by bond, using the IXA API (the default) */
+  IXA,
+
+  /**
+   * Packs the atoms, bonds and 0D stereochemistry into one contiguous native block that is passed to the library in a single call.
+   * This avoids the per-atom/per-bond calls into native code made by {@link #IXA}, which dominate the cost of converting small molecules
+   */
+  PACKED
+
+}
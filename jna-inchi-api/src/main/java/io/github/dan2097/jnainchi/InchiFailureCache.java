@@ -0,0 +1,304 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread-safe, cache of failed conversions, so that inputs that are known to fail are rejected without calling the InChI library again.
+ * Failing inputs are often the most expensive to convert, as they may only fail once the {@link InchiOptions#getTimeoutMilliSeconds() timeout} is reached.
+ * <br>
+ * Only outputs with {@link InchiStatus#ERROR} are remembered, and only their status and message are kept.
+ * Results are keyed on the input and the options, as an input that timed out may succeed with a longer timeout.
+ * As with {@link InchiCache}, an {@link InchiInput} is identified by its {@link InchiInput#getFingerprint() fingerprint},
+ * so a different molecule with the same fingerprint, while vanishingly unlikely unless crafted to collide, would be rejected as a known failure.
+ * Each failure is forgotten after the time to live has elapsed, so that transient failures e.g. a busy InChI library are retried.
+ * When full, the failure that was recorded first is removed.
+ * <pre>
+ * InchiFailureCache failures = new InchiFailureCache(10000, 1, TimeUnit.HOURS);
+ * InchiOutput output = failures.toInchi(inchiInput, options);
+ * </pre>
+ */
+public final class InchiFailureCache {
+
+  private static final int DEFAULT_SEGMENTS = 16;
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final int maximumSize;
+  private final long ttlNanos;
+  private final LongSupplier ticker;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maximumSize the maximum number of failures to remember
+   * @param ttl how long a failure is remembered for
+   * @param unit the unit of ttl
+   */
+  public InchiFailureCache(int maximumSize, long ttl, TimeUnit unit) {
+    this(maximumSize, ttl, unit, System::nanoTime);
+  }
+
+  InchiFailureCache(int maximumSize, long ttl, TimeUnit unit, LongSupplier ticker) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+    }
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("ttl must be positive: " + ttl);
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("unit must not be null");
+    }
+    int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(DEFAULT_SEGMENTS, maximumSize / 8)) * 2 - 1);
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+    }
+    this.segmentMask = segmentCount - 1;
+    this.maximumSize = maximumSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.ticker = ticker;
+  }
+
+  /**
+   * As {@link JnaInchi#toInchi(InchiInput, InchiOptions)}, but if this input recently failed with these options,
+   * an output with the status and message of that failure is returned without calling the InChI library
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    if (inchiInput == null) {
+      throw new IllegalArgumentException("inchiInput must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(InchiCache.KIND_INPUT, inchiInput.getFingerprint(), options, () -> JnaInchi.toInchi(inchiInput, options));
+  }
+
+  /**
+   * As {@link JnaInchi#molToInchi(String, InchiOptions)}, but if this molfile recently failed with these options,
+   * an output with the status and message of that failure is returned without calling the InChI library
+   * @param molText
+   * @param options
+   * @return
+   */
+  public InchiOutput molToInchi(String molText, InchiOptions options) {
+    if (molText == null) {
+      throw new IllegalArgumentException("molText must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(InchiCache.KIND_MOLFILE, molText, options, () -> JnaInchi.molToInchi(molText, options));
+  }
+
+  /**
+   * @param inchiInput
+   * @param options
+   * @return true if this input recently failed with these options
+   */
+  public boolean isKnownFailure(InchiInput inchiInput, InchiOptions options) {
+    if (inchiInput == null) {
+      throw new IllegalArgumentException("inchiInput must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return lookup(new InchiCache.Key(InchiCache.KIND_INPUT, inchiInput.getFingerprint(), options)) != null;
+  }
+
+  /**
+   * @param molText
+   * @param options
+   * @return true if this molfile recently failed with these options
+   */
+  public boolean isKnownFailure(String molText, InchiOptions options) {
+    if (molText == null) {
+      throw new IllegalArgumentException("molText must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return lookup(new InchiCache.Key(InchiCache.KIND_MOLFILE, molText, options)) != null;
+  }
+
+  /**
+   * Returns the remembered failure for the given input, or calls the loader and remembers its output if it failed
+   * @param kind the type of conversion e.g. {@link InchiCache#KIND_MOLFILE}
+   * @param content String, or {@link InchiFingerprint}, that identifies the input
+   * @param options
+   * @param loader
+   * @return
+   * @throws E if loading failed, in which case nothing is remembered
+   */
+  <E extends Exception> InchiOutput get(byte kind, Object content, InchiOptions options, InchiCache.Loader<InchiOutput, E> loader) throws E {
+    InchiCache.Key key = new InchiCache.Key(kind, content, options);
+    InchiOutput rejection = lookup(key);
+    if (rejection != null) {
+      hits.increment();
+      return rejection;
+    }
+    misses.increment();
+    InchiOutput output = loader.load();
+    if (output != null && output.getStatus() == InchiStatus.ERROR) {
+      Failure failure = new Failure(new InchiOutput(null, null, output.getMessage(), null, InchiStatus.ERROR), ticker.getAsLong() + ttlNanos);
+      Segment segment = segmentFor(key);
+      synchronized (segment) {
+        segment.put(key, failure);
+      }
+    }
+    return output;
+  }
+
+  private InchiOutput lookup(InchiCache.Key key) {
+    Segment segment = segmentFor(key);
+    long now = ticker.getAsLong();
+    synchronized (segment) {
+      Failure failure = segment.get(key);
+      if (failure == null) {
+        return null;
+      }
+      if (failure.isExpired(now)) {
+        segment.remove(key);
+        return null;
+      }
+      return failure.rejection;
+    }
+  }
+
+  private Segment segmentFor(InchiCache.Key key) {
+    return segments[InchiCache.spread(key.hashCode()) & segmentMask];
+  }
+
+  /**
+   * @return the number of lookups that were rejected as a known failure
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that had to call the InChI library
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of unexpired failures removed to make space for newer failures
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * @return the maximum number of failures the cache will hold
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * @return the number of failures currently remembered, including any that have expired but not yet been removed
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Forgets all failures, the statistics are unchanged
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "InchiFailureCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+  }
+
+  private static final class Failure {
+
+    private final InchiOutput rejection;
+    private final long expiresAt;
+
+    Failure(InchiOutput rejection, long expiresAt) {
+      this.rejection = rejection;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return now - expiresAt >= 0;
+    }
+  }
+
+  /**
+   * Insertion ordered map, as every failure has the same time to live the eldest entry is also the first to expire
+   */
+  private class Segment extends LinkedHashMap<InchiCache.Key, Failure> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    public Failure put(InchiCache.Key key, Failure value) {
+      //re-insert so that the entry moves to the end of the expiry order
+      remove(key);
+      long now = ticker.getAsLong();
+      Iterator<Failure> it = values().iterator();
+      while (it.hasNext() && it.next().isExpired(now)) {
+        it.remove();
+      }
+      return super.put(key, value);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<InchiCache.Key, Failure> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * 128-bit hash of the content of an {@link InchiInput}, see {@link InchiInput#getFingerprint()}.
+ * Inputs that are {@link InchiInput#equals(Object) equal} have the same fingerprint, and unequal inputs are extremely unlikely to,
+ * so unlike an InchiInput, which may be modified, a fingerprint is suitable as a long-lived key for caches and deduplication.
+ * <br>
+ * Fingerprints are not stable between versions of this library, so should not be persisted
+ */
+public final class InchiFingerprint {
+
+  private final long high;
+  private final long low;
+
+  InchiFingerprint(long high, long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  public long getMostSignificantBits() {
+    return high;
+  }
+
+  public long getLeastSignificantBits() {
+    return low;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) low;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof InchiFingerprint)) {
+      return false;
+    }
+    InchiFingerprint other = (InchiFingerprint) obj;
+    return high == other.high && low == other.low;
+  }
+
+  /**
+   * @return the fingerprint as 32 hexadecimal digits
+   */
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", high, low);
+  }
+
+  /**
+   * Order-dependent hash of a stream of longs, based on the block mixing of MurmurHash3 x64_128
+   */
+  static final class Hasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+    private long length;
+
+    void add(long k) {
+      k *= C1;
+      k = Long.rotateLeft(k, 31);
+      k *= C2;
+      h1 ^= k;
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      k = Long.rotateLeft(k, 33) * C1;
+      h2 ^= k;
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+      length++;
+    }
+
+    void add(String s) {
+      if (s == null) {
+        add(-1);
+        return;
+      }
+      int len = s.length();
+      add(len);
+      long word = 0;
+      for (int i = 0; i < len; i++) {
+        word = word << 16 | s.charAt(i);
+        if ((i & 3) == 3) {
+          add(word);
+          word = 0;
+        }
+      }
+      if ((len & 3) != 0) {
+        add(word);
+      }
+    }
+
+    void add(InchiFingerprint fingerprint) {
+      add(fingerprint.high);
+      add(fingerprint.low);
+    }
+
+    InchiFingerprint toFingerprint() {
+      long a = h1 ^ length;
+      long b = h2 ^ length;
+      a += b;
+      b += a;
+      a = fmix64(a);
+      b = fmix64(b);
+      a += b;
+      b += a;
+      return new InchiFingerprint(a, b);
+    }
+
+    private static long fmix64(long k) {
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+  }
+
+}
@@ -0,0 +1,263 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.charset.StandardCharsets;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnainchi.inchi.tagINCHIGEN_DATA;
+import io.github.dan2097.jnainchi.inchi.tagINCHI_Output;
+
+/**
+ * Runs InChI generation one stage at a time, using the InChI library's generator (INCHIGEN) API.
+ * The wall time of each stage is recorded, and generation can be stopped after any stage
+ * e.g. a pipeline that only needs to know whether a structure normalizes can skip canonicalization and serialization.
+ * <br>
+ * A generator is not thread-safe, use one per thread and close it when done. It can be reused for many structures.
+ * <pre>
+ * try (InchiGenerator generator = new InchiGenerator()) {
+ *   generator.setup(input, options);
+ *   if (generator.normalize() != InchiStatus.ERROR &amp;&amp; generator.canonicalize() != InchiStatus.ERROR) {
+ *     InchiOutput output = generator.serialize();
+ *   }
+ *   long normalizationTime = generator.getStageNanos(InchiGenerator.Stage.NORMALIZATION);
+ * }
+ * </pre>
+ */
+public class InchiGenerator implements AutoCloseable {
+
+  public enum Stage {
+    SETUP,
+    NORMALIZATION,
+    CANONICALIZATION,
+    SERIALIZATION
+  }
+
+  private static final Stage[] STAGES = Stage.values();
+
+  private final Pointer handle;
+  private final tagINCHIGEN_DATA genData;
+  private final tagINCHI_Output nativeOutput;
+  private final long[] stageNanos = new long[STAGES.length];
+  /** The input given to setup, referenced until the generator is reset */
+  private Memory input;
+  private InchiOptions options;
+  /** The last stage that was run, or null if the generator has not been set up */
+  private Stage stage;
+  private InchiStatus status;
+  private boolean closed = false;
+
+  public InchiGenerator() {
+    JnaInchi.checkLibrary();
+    //Neither struct is read or written by JNA, the fields are read from native memory as required
+    genData = new tagINCHIGEN_DATA();
+    genData.setAutoSynch(false);
+    genData.clear();
+    nativeOutput = new tagINCHI_Output();
+    nativeOutput.setAutoSynch(false);
+    nativeOutput.clear();
+    handle = InchiLibrary.INCHIGEN_Create();
+    if (handle == null) {
+      throw new IllegalStateException("Failed to create InChI generator");
+    }
+  }
+
+  public InchiStatus setup(InchiInput inchiInput) {
+    return setup(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * Prepares the generator for the given structure, discarding any results for the previous structure.
+   * The {@link InchiOptions#getEngine() engine} of the options is not used
+   * @param inchiInput
+   * @param options
+   * @return status of the setup stage
+   */
+  public InchiStatus setup(InchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    if (stage != null) {
+      reset();
+    }
+    PackedInchiInput packedInput = new PackedInchiInput(inchiInput, options);
+    input = packedInput.toMemory();
+    this.options = options;
+    long start = System.nanoTime();
+    int ret = InchiLibrary.INCHIGEN_Setup(handle, genData, input);
+    return completed(Stage.SETUP, start, ret);
+  }
+
+  /**
+   * Normalizes the structure given to {@link #setup(InchiInput, InchiOptions)}
+   * @return status of the normalization stage
+   * @throws IllegalStateException if setup has not been run, or failed
+   */
+  public InchiStatus normalize() {
+    checkNextStage(Stage.NORMALIZATION);
+    long start = System.nanoTime();
+    int ret = InchiLibrary.INCHIGEN_DoNormalization(handle, genData);
+    return completed(Stage.NORMALIZATION, start, ret);
+  }
+
+  /**
+   * Canonicalizes the normalized structure
+   * @return status of the canonicalization stage
+   * @throws IllegalStateException if normalization has not been run, or failed
+   */
+  public InchiStatus canonicalize() {
+    checkNextStage(Stage.CANONICALIZATION);
+    long start = System.nanoTime();
+    int ret = InchiLibrary.INCHIGEN_DoCanonicalization(handle, genData);
+    return completed(Stage.CANONICALIZATION, start, ret);
+  }
+
+  /**
+   * Serializes the canonicalized structure into an InChI, and the other outputs requested by the options given to setup
+   * @return output, the status of which is the status of the serialization stage
+   * @throws IllegalStateException if canonicalization has not been run, or failed
+   */
+  public InchiOutput serialize() {
+    checkNextStage(Stage.SERIALIZATION);
+    long start = System.nanoTime();
+    try {
+      int ret = InchiLibrary.INCHIGEN_DoSerialization(handle, genData, nativeOutput);
+      InchiStatus status = completed(Stage.SERIALIZATION, start, ret);
+      return JnaInchiBackend.toInchiOutput(nativeOutput, options, status);
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  /**
+   * @return the last stage that was run for the current structure, or null if the generator has not been set up
+   */
+  public Stage getStage() {
+    return stage;
+  }
+
+  /**
+   * @return the status of the last stage that was run, or null if the generator has not been set up
+   */
+  public InchiStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * @param stage
+   * @return wall time of the given stage for the current structure in nanoseconds, or 0 if it has not been run
+   */
+  public long getStageNanos(Stage stage) {
+    return stageNanos[stage.ordinal()];
+  }
+
+  /**
+   * @return wall time of all the stages that have been run for the current structure in nanoseconds
+   */
+  public long getTotalNanos() {
+    long total = 0;
+    for (long nanos : stageNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * The number of components in the main structure, available once normalization has been run
+   * @return number of components, or 0 if not known
+   */
+  public int getComponentCount() {
+    checkOpen();
+    return stage != null && stage != Stage.SETUP ? genData.getPointer().getInt(tagINCHIGEN_DATA.NUM_COMPONENTS_OFFSET) : 0;
+  }
+
+  /**
+   * The warnings/errors reported by the InChI library for the last stage that was run
+   * @return message, or null if none
+   */
+  public String getMessage() {
+    checkOpen();
+    if (stage == null) {
+      return null;
+    }
+    byte[] bytes = genData.getPointer().getByteArray(tagINCHIGEN_DATA.PSTRERRSTRUCT_OFFSET, 256);
+    int len = 0;
+    while (len < bytes.length && bytes[len] != 0) {
+      len++;
+    }
+    return len > 0 ? new String(bytes, 0, len, StandardCharsets.UTF_8) : null;
+  }
+
+  /**
+   * Discards the current structure and the results for it, releasing the native memory used for them.
+   * This is done automatically by {@link #setup(InchiInput, InchiOptions)} and {@link #close()}
+   */
+  public void reset() {
+    checkOpen();
+    InchiLibrary.INCHIGEN_Reset(handle, genData, nativeOutput);
+    input = null;
+    options = null;
+    stage = null;
+    status = null;
+    for (int i = 0; i < stageNanos.length; i++) {
+      stageNanos[i] = 0;
+    }
+  }
+
+  private InchiStatus completed(Stage stage, long start, int ret) {
+    stageNanos[stage.ordinal()] = System.nanoTime() - start;
+    this.stage = stage;
+    this.status = JnaInchi.getInchiStatus(ret);
+    return status;
+  }
+
+  private void checkNextStage(Stage next) {
+    checkOpen();
+    Stage required = STAGES[next.ordinal() - 1];
+    if (stage != required) {
+      throw new IllegalStateException("Expected the " + required + " stage to have been run before " + next + ", but the last stage run was " + stage);
+    }
+    if (status == InchiStatus.ERROR) {
+      throw new IllegalStateException("The " + stage + " stage failed: " + getMessage());
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("InchiGenerator has been closed");
+    }
+  }
+
+  /**
+   * Releases the native generator. Subsequent attempts to use the generator will fail
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    if (stage != null) {
+      reset();
+    }
+    closed = true;
+    InchiLibrary.INCHIGEN_Destroy(handle);
+  }
+
+}
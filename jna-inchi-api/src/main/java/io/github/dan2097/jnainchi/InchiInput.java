@@ -19,24 +19,64 @@ package io.github.dan2097.jnainchi;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * A molecule to be converted to InChI.
+ * <br>
+ * Two inputs are {@link #equals(Object) equal} if they have atoms with the same properties, bonds and stereochemistry, in the same order.
+ * A 128-bit fingerprint of this content is maintained as atoms, bonds and stereochemistry are added, see {@link #getFingerprint()}
+ */
 public class InchiInput {
-  
+
   private List<InchiAtom> atoms = new ArrayList<>();
   private List<InchiBond> bonds = new ArrayList<>();
   private List<InchiStereo> stereos = new ArrayList<>();
+  //atoms that were already part of another InchiInput when added, hence can't record their index in this InchiInput
+  private Map<InchiAtom, Integer> sharedAtomToIndex = null;
+
+  private final InchiFingerprint.Hasher atomHasher = new InchiFingerprint.Hasher();
+  private final InchiFingerprint.Hasher bondHasher = new InchiFingerprint.Hasher();
+  private final InchiFingerprint.Hasher stereoHasher = new InchiFingerprint.Hasher();
+  //true if the hashers are out of date e.g. as an atom has been modified, after which the fingerprint is always recalculated from the content
+  private boolean fingerprintStale = false;
+  private InchiFingerprint fingerprint = null;
 
   public void addAtom(InchiAtom atom) {
+    int index = atoms.size();
     this.atoms.add(atom);
+    if (atom.owner == null || atom.owner == this) {
+      atom.owner = this;
+      atom.index = index;
+    }
+    else {
+      if (sharedAtomToIndex == null) {
+        sharedAtomToIndex = new HashMap<>();
+      }
+      sharedAtomToIndex.put(atom, index);
+    }
+    if (!fingerprintStale) {
+      atom.addTo(atomHasher);
+    }
+    fingerprint = null;
   }
 
   public void addBond(InchiBond bond) {
     this.bonds.add(bond);
+    if (!fingerprintStale) {
+      fingerprintStale = !addTo(bondHasher, bond);
+    }
+    fingerprint = null;
   }
   
   public void addStereo(InchiStereo stereo) {
     this.stereos.add(stereo);
+    if (!fingerprintStale) {
+      fingerprintStale = !addTo(stereoHasher, stereo);
+    }
+    fingerprint = null;
   }
   
   public InchiAtom getAtom(int i) {
@@ -47,6 +87,24 @@ public class InchiInput {
     return bonds.get(i);
   }
   
+  /**
+   * The position of the given atom in this InchiInput's atoms
+   * @param atom
+   * @return index, or -1 if the atom is not part of this InchiInput
+   */
+  int indexOf(InchiAtom atom) {
+    if (atom.owner == this) {
+      return atom.index;
+    }
+    if (sharedAtomToIndex != null) {
+      Integer index = sharedAtomToIndex.get(atom);
+      if (index != null) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
   public List<InchiAtom> getAtoms() {
     return Collections.unmodifiableList(atoms);
   }
@@ -59,4 +117,155 @@ public class InchiInput {
     return Collections.unmodifiableList(stereos);
   }
 
+  /**
+   * Called when an atom that was first added to this input is modified
+   */
+  void atomModified() {
+    fingerprintStale = true;
+    fingerprint = null;
+  }
+
+  /**
+   * An order-dependent 128-bit hash of the atoms (element, coordinates, implicit hydrogens, isotope, radical and charge),
+   * bonds (atoms, type and stereo) and stereochemistry (atoms, type and parity).
+   * This is updated as atoms, bonds and stereochemistry are added, so is typically available without revisiting the whole molecule.
+   * Modifying an atom after it has been added causes the fingerprint to be recalculated on its next use.
+   * As with {@link #hashCode()} and {@link #equals(Object)}, this may be called concurrently, provided the input is not being modified
+   * @return fingerprint
+   */
+  public InchiFingerprint getFingerprint() {
+    //changes to atoms shared with another input are only reported to the input they were first added to
+    boolean hasSharedAtoms = sharedAtomToIndex != null;
+    InchiFingerprint fingerprint = this.fingerprint;
+    if (fingerprint != null && !hasSharedAtoms) {
+      return fingerprint;
+    }
+    //the hashers are only read here, so that concurrent callers only ever share the finished, immutable, fingerprint
+    if (fingerprintStale || hasSharedAtoms) {
+      fingerprint = recalculateFingerprint();
+    }
+    else {
+      fingerprint = combine(atomHasher, bondHasher, stereoHasher);
+    }
+    this.fingerprint = fingerprint;
+    return fingerprint;
+  }
+
+  private InchiFingerprint recalculateFingerprint() {
+    InchiFingerprint.Hasher atomHasher = new InchiFingerprint.Hasher();
+    InchiFingerprint.Hasher bondHasher = new InchiFingerprint.Hasher();
+    InchiFingerprint.Hasher stereoHasher = new InchiFingerprint.Hasher();
+    for (InchiAtom atom : atoms) {
+      atom.addTo(atomHasher);
+    }
+    for (InchiBond bond : bonds) {
+      addTo(bondHasher, bond);
+    }
+    for (InchiStereo stereo : stereos) {
+      addTo(stereoHasher, stereo);
+    }
+    return combine(atomHasher, bondHasher, stereoHasher);
+  }
+
+  private static InchiFingerprint combine(InchiFingerprint.Hasher atomHasher, InchiFingerprint.Hasher bondHasher, InchiFingerprint.Hasher stereoHasher) {
+    InchiFingerprint.Hasher hasher = new InchiFingerprint.Hasher();
+    hasher.add(atomHasher.toFingerprint());
+    hasher.add(bondHasher.toFingerprint());
+    hasher.add(stereoHasher.toFingerprint());
+    return hasher.toFingerprint();
+  }
+
+  /**
+   * @return false if the bond references atoms that are not (yet) part of this input
+   */
+  private boolean addTo(InchiFingerprint.Hasher hasher, InchiBond bond) {
+    int start = indexOf(bond.getStart());
+    int end = indexOf(bond.getEnd());
+    hasher.add((start & 0xffffffffL) | (long) end << 32);
+    hasher.add((bond.getType().getCode() & 0xffL) | (bond.getStereo().getCode() & 0xffL) << 8);
+    return start >= 0 && end >= 0;
+  }
+
+  /**
+   * @return false if the stereochemistry references atoms that are not (yet) part of this input
+   */
+  private boolean addTo(InchiFingerprint.Hasher hasher, InchiStereo stereo) {
+    boolean complete = true;
+    long atomIndices = 0;
+    for (InchiAtom atom : stereo.getAtoms()) {
+      int idx = stereoAtomIndex(atom);
+      complete &= idx != -1;
+      atomIndices = atomIndices << 16 | (idx & 0xffffL);
+    }
+    int centralAtom = stereoAtomIndex(stereo.getCentralAtom());
+    complete &= centralAtom != -1;
+    hasher.add(atomIndices);
+    hasher.add((centralAtom & 0xffffffffL) | (stereo.getType().getCode() & 0xffL) << 32 | (stereo.getParity().getCode() & 0xffL) << 40);
+    return complete;
+  }
+
+  /**
+   * @return index of the atom, -1 if not part of this input, or a special value for implicit hydrogen or no atom
+   */
+  private int stereoAtomIndex(InchiAtom atom) {
+    if (atom == null) {
+      return -3;
+    }
+    if (atom == InchiStereo.STEREO_IMPLICIT_H) {
+      return -2;
+    }
+    return indexOf(atom);
+  }
+
+  @Override
+  public int hashCode() {
+    return getFingerprint().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof InchiInput)) {
+      return false;
+    }
+    InchiInput other = (InchiInput) obj;
+    if (atoms.size() != other.atoms.size() || bonds.size() != other.bonds.size() || stereos.size() != other.stereos.size()) {
+      return false;
+    }
+    if (!getFingerprint().equals(other.getFingerprint())) {
+      return false;
+    }
+    for (int i = 0; i < atoms.size(); i++) {
+      if (!atoms.get(i).hasSameProperties(other.atoms.get(i))) {
+        return false;
+      }
+    }
+    for (int i = 0; i < bonds.size(); i++) {
+      InchiBond bond = bonds.get(i);
+      InchiBond otherBond = other.bonds.get(i);
+      if (indexOf(bond.getStart()) != other.indexOf(otherBond.getStart()) || indexOf(bond.getEnd()) != other.indexOf(otherBond.getEnd()) ||
+          bond.getType() != otherBond.getType() || bond.getStereo() != otherBond.getStereo()) {
+        return false;
+      }
+    }
+    for (int i = 0; i < stereos.size(); i++) {
+      InchiStereo stereo = stereos.get(i);
+      InchiStereo otherStereo = other.stereos.get(i);
+      if (stereo.getType() != otherStereo.getType() || stereo.getParity() != otherStereo.getParity() ||
+          stereoAtomIndex(stereo.getCentralAtom()) != other.stereoAtomIndex(otherStereo.getCentralAtom())) {
+        return false;
+      }
+      InchiAtom[] stereoAtoms = stereo.getAtoms();
+      InchiAtom[] otherStereoAtoms = otherStereo.getAtoms();
+      for (int j = 0; j < stereoAtoms.length; j++) {
+        if (stereoAtomIndex(stereoAtoms[j]) != other.stereoAtomIndex(otherStereoAtoms[j])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
 }
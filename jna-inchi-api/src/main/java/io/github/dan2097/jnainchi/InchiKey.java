@@ -0,0 +1,207 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * Compact, immutable, representation of an InChIKey, e.g. SPSSULHKWOKEEL-UHFFFAOYSA-N.
+ * The 25 letters of the key are stored as two base-26 numbers, so an instance is much smaller than the equivalent String
+ * and can be hashed and compared without looking at individual characters. Ordering is the same as that of the String form.
+ * <br>
+ * The first long holds the first 13 letters of the first block, the second holds the 14th letter followed by the 11 letters of the second and third blocks.
+ * These can be retrieved with {@link #getMostSignificantBits()}/{@link #getLeastSignificantBits()} for storage, and restored with {@link #InchiKey(long, long)}
+ */
+public final class InchiKey implements Comparable<InchiKey> {
+
+  private static final int LENGTH = 27;
+  private static final int FIRST_BLOCK_LENGTH = 14;
+  private static final int HIGH_LETTERS = 13;
+  private static final int LOW_LETTERS = 12;
+
+  private static final long[] POWERS_OF_26 = new long[HIGH_LETTERS + 1];
+
+  static {
+    POWERS_OF_26[0] = 1;
+    for (int i = 1; i < POWERS_OF_26.length; i++) {
+      POWERS_OF_26[i] = POWERS_OF_26[i - 1] * 26;
+    }
+  }
+
+  /** Number of distinct values of the letters after the first block */
+  private static final long SECOND_BLOCK_RANGE = POWERS_OF_26[LOW_LETTERS - 1];
+
+  private final long high;
+  private final long low;
+
+  /**
+   * Recreates an InChIKey from the values returned by {@link #getMostSignificantBits()} and {@link #getLeastSignificantBits()}
+   * @param mostSigBits
+   * @param leastSigBits
+   * @throws IllegalArgumentException if the values could not have come from an InChIKey
+   */
+  public InchiKey(long mostSigBits, long leastSigBits) {
+    if (mostSigBits < 0 || mostSigBits >= POWERS_OF_26[HIGH_LETTERS] || leastSigBits < 0 || leastSigBits >= POWERS_OF_26[LOW_LETTERS]) {
+      throw new IllegalArgumentException("Not a packed InChIKey: " + mostSigBits + ", " + leastSigBits);
+    }
+    this.high = mostSigBits;
+    this.low = leastSigBits;
+  }
+
+  /**
+   * Parses an InChIKey of the form XXXXXXXXXXXXXX-XXXXXXXXXX-X, where X is an uppercase letter.
+   * The validity of the hash and flag characters is not checked, see {@link JnaInchi#checkInchiKey(String)}
+   * @param inchiKey
+   * @return InchiKey
+   * @throws IllegalArgumentException if inchiKey is not of the form of an InChIKey
+   */
+  public static InchiKey parse(CharSequence inchiKey) {
+    InchiKey key = tryParse(inchiKey);
+    if (key == null) {
+      throw new IllegalArgumentException("Not an InChIKey: " + inchiKey);
+    }
+    return key;
+  }
+
+  /**
+   * As {@link #parse(CharSequence)}, but returns null rather than throwing an exception
+   * @param inchiKey
+   * @return InchiKey, or null if inchiKey is null or not of the form of an InChIKey
+   */
+  static InchiKey tryParse(CharSequence inchiKey) {
+    if (inchiKey == null || inchiKey.length() != LENGTH || inchiKey.charAt(14) != '-' || inchiKey.charAt(25) != '-') {
+      return null;
+    }
+    long high = 0;
+    for (int i = 0; i < HIGH_LETTERS; i++) {
+      int letter = letterValue(inchiKey.charAt(i));
+      if (letter < 0) {
+        return null;
+      }
+      high = high * 26 + letter;
+    }
+    long low = 0;
+    for (int i = HIGH_LETTERS; i < LENGTH; i++) {
+      if (i == 14 || i == 25) {
+        continue;
+      }
+      int letter = letterValue(inchiKey.charAt(i));
+      if (letter < 0) {
+        return null;
+      }
+      low = low * 26 + letter;
+    }
+    return new InchiKey(high, low);
+  }
+
+  private static int letterValue(char c) {
+    return c >= 'A' && c <= 'Z' ? c - 'A' : -1;
+  }
+
+  /**
+   * The first 13 letters of the InChIKey as a base-26 number
+   * @return value in the range 0 to 26^13 - 1
+   */
+  public long getMostSignificantBits() {
+    return high;
+  }
+
+  /**
+   * The last 12 letters of the InChIKey as a base-26 number
+   * @return value in the range 0 to 26^12 - 1
+   */
+  public long getLeastSignificantBits() {
+    return low;
+  }
+
+  /**
+   * The first block of the InChIKey, which is derived from the connectivity of the molecule (the skeleton) but not its stereochemistry, isotopes or protonation
+   * @return 14 letter String
+   */
+  public String getFirstBlock() {
+    char[] chars = new char[FIRST_BLOCK_LENGTH];
+    writeLetters(chars, 0, high, HIGH_LETTERS);
+    chars[HIGH_LETTERS] = (char) ('A' + low / SECOND_BLOCK_RANGE);
+    return new String(chars);
+  }
+
+  /**
+   * Whether the given InChIKey has the same first block as this one i.e. has the same skeleton
+   * @param other
+   * @return true if the first blocks are identical
+   */
+  public boolean hasSameFirstBlock(InchiKey other) {
+    return high == other.high && low / SECOND_BLOCK_RANGE == other.low / SECOND_BLOCK_RANGE;
+  }
+
+  /**
+   * Whether the InChIKey was generated from a standard InChI
+   * @return true if the standard flag is 'S'
+   */
+  public boolean isStandard() {
+    return (low / 26 / 26) % 26 == 'S' - 'A';
+  }
+
+  private static void writeLetters(char[] chars, int offset, long value, int numLetters) {
+    for (int i = offset + numLetters - 1; i >= offset; i--) {
+      chars[i] = (char) ('A' + value % 26);
+      value /= 26;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    //Values are derived from SHA-256 hashes, so are already well distributed
+    return Long.hashCode(high) * 31 + Long.hashCode(low);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof InchiKey)) {
+      return false;
+    }
+    InchiKey other = (InchiKey) obj;
+    return high == other.high && low == other.low;
+  }
+
+  @Override
+  public int compareTo(InchiKey o) {
+    int cmp = Long.compare(high, o.high);
+    return cmp != 0 ? cmp : Long.compare(low, o.low);
+  }
+
+  /**
+   * @return the InChIKey in its usual 27 character form
+   */
+  @Override
+  public String toString() {
+    char[] chars = new char[LENGTH];
+    writeLetters(chars, 0, high, HIGH_LETTERS);
+    long rest = low;
+    chars[26] = (char) ('A' + rest % 26);
+    rest /= 26;
+    chars[25] = '-';
+    writeLetters(chars, 15, rest % POWERS_OF_26[10], 10);
+    rest /= POWERS_OF_26[10];
+    chars[14] = '-';
+    chars[13] = (char) ('A' + rest);
+    return new String(chars);
+  }
+
+}
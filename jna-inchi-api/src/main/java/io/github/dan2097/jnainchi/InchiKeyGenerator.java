@@ -0,0 +1,358 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Pure Java implementation of the InChIKey algorithm, giving the same InChIKeys, hash extensions and statuses as {@link JnaInchi#inchiToInchiKey(String)}
+ * without calling the native library. Each thread reuses its own SHA-256 {@link MessageDigest}, so this can be called concurrently from any number of threads.
+ * <br>
+ * The first block of the InChIKey is a hash of the main layers (formula, connections, hydrogens and charge), the second a hash of the remaining layers (e.g. stereochemistry and isotopes).
+ * The protonation layer is not hashed, instead the number of protons added/removed is encoded as the final character.
+ */
+public final class InchiKeyGenerator {
+
+  private static final String INCHI_PREFIX = "InChI=";
+  private static final int INCHIKEY_LENGTH = 27;
+  /** Minor layers shorter than this are hashed twice over */
+  private static final int MINOR_DUPLICATION_LIMIT = 255;
+  private static final int MAX_PROTONATION = 12;
+
+  /**
+   * Triplet for each 14-bit value. Triplets are taken in alphabetical order, but those starting with 'E' and TAA-TTV are skipped
+   */
+  private static final byte[] TRIPLETS = new byte[(1 << 14) * 3];
+
+  static {
+    for (int i = 0; i < (1 << 14); i++) {
+      int n = i;
+      if (n >= 4 * 26 * 26) {
+        n += 26 * 26;//'E'
+      }
+      if (n >= 19 * 26 * 26) {
+        n += 19 * 26 + 22;//TAA-TTV
+      }
+      TRIPLETS[i * 3] = (byte) ('A' + n / (26 * 26));
+      TRIPLETS[i * 3 + 1] = (byte) ('A' + (n / 26) % 26);
+      TRIPLETS[i * 3 + 2] = (byte) ('A' + n % 26);
+    }
+  }
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+
+  private InchiKeyGenerator() {}
+
+  /**
+   * Generates the InChIKey, and hash extensions, of the given InChI
+   * @param inchi
+   * @return output equivalent to that of {@link JnaInchi#inchiToInchiKey(String)}
+   */
+  public static InchiKeyOutput inchiToInchiKey(CharSequence inchi) {
+    return inchiToInchiKey(inchi, true);
+  }
+
+  /**
+   * Generates the InChIKey of the given InChI
+   * @param inchi
+   * @param hashExtensions whether to also calculate the hash extensions, if false these are empty strings
+   * @return output equivalent to that of {@link JnaInchi#inchiToInchiKey(String)}
+   */
+  public static InchiKeyOutput inchiToInchiKey(CharSequence inchi, boolean hashExtensions) {
+    return HASHERS.get().inchiToInchiKey(inchi, hashExtensions);
+  }
+
+  /**
+   * Generates the InChIKeys of the given InChIs on the calling thread
+   * @param inchis
+   * @param hashExtensions whether to also calculate the hash extensions, if false these are empty strings
+   * @return an output per InChI, in the same order as the InChIs
+   */
+  public static InchiKeyOutput[] inchiToInchiKey(CharSequence[] inchis, boolean hashExtensions) {
+    Hasher hasher = HASHERS.get();
+    InchiKeyOutput[] outputs = new InchiKeyOutput[inchis.length];
+    for (int i = 0; i < inchis.length; i++) {
+      outputs[i] = hasher.inchiToInchiKey(inchis[i], hashExtensions);
+    }
+    return outputs;
+  }
+
+  private static class Hasher {
+
+    private final MessageDigest sha256;
+    private byte[] buffer = new byte[256];
+    private final byte[] digestMajor = new byte[32];
+    private final byte[] digestMinor = new byte[32];
+    private final char[] key = new char[INCHIKEY_LENGTH];
+
+    Hasher() {
+      try {
+        sha256 = MessageDigest.getInstance("SHA-256");
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+      }
+    }
+
+    InchiKeyOutput inchiToInchiKey(CharSequence inchi, boolean hashExtensions) {
+      if (inchi == null) {
+        return failure(InchiKeyStatus.EMPTY_INPUT);
+      }
+      int len = inchi.length();
+      if (len < INCHI_PREFIX.length() + 3 || !startsWithPrefix(inchi) || inchi.charAt(INCHI_PREFIX.length()) != '1') {
+        return failure(InchiKeyStatus.INVALID_INCHI_PREFIX);
+      }
+      //beta InChIs are flagged in place of the standard/non-standard flag, the version is always 'A'
+      char flagStd = 'N';
+      int slash = INCHI_PREFIX.length() + 1;
+      if (inchi.charAt(slash) == 'S' || inchi.charAt(slash) == 'B') {
+        flagStd = inchi.charAt(slash);
+        slash++;
+      }
+      if (inchi.charAt(slash) != '/') {
+        return failure(InchiKeyStatus.INVALID_INCHI_PREFIX);
+      }
+      if (slash + 1 >= len || !isValidFirstChar(inchi.charAt(slash + 1))) {
+        return failure(InchiKeyStatus.INVALID_INCHI);
+      }
+      //anything after the InChI e.g. whitespace, is ignored
+      int end = 0;
+      while (end < len && isInchiChar(inchi.charAt(end))) {
+        end++;
+      }
+
+      //The main layers are followed by an optional protonation layer, then the minor layers
+      int protonationStart = -1;
+      int minorStart = -1;
+      for (int i = slash + 1; i < end - 1; i++) {
+        if (inchi.charAt(i) == '/') {
+          char layer = inchi.charAt(i + 1);
+          if (layer == 'c' || layer == 'h' || layer == 'q') {
+            continue;
+          }
+          if (layer == 'p') {
+            protonationStart = i;
+            continue;
+          }
+          if (flagStd == 'S' && (layer == 'f' || layer == 'r')) {
+            //fixed H and reconnected layers are never present in a standard InChI
+            return failure(InchiKeyStatus.INVALID_STD_INCHI);
+          }
+          minorStart = i;
+          break;
+        }
+      }
+      int minorEnd = minorStart >= 0 ? minorStart : end;
+      int majorEnd = protonationStart >= 0 ? protonationStart : minorEnd;
+      char flagProtonation = 'N';
+      if (protonationStart >= 0) {
+        if (minorStart == protonationStart + 2) {
+          //an empty protonation layer followed by further layers
+          return failure(InchiKeyStatus.INVALID_INCHI);
+        }
+        int protons = parseProtons(inchi, protonationStart + 2, minorEnd);
+        if (protons == 0) {
+          return failure(InchiKeyStatus.INVALID_STD_INCHI);
+        }
+        flagProtonation = protons > MAX_PROTONATION || protons < -MAX_PROTONATION ? 'A' : (char) ('N' + protons);
+      }
+
+      hash(inchi, slash + 1, majorEnd, false, digestMajor);
+      int minorLength = end - minorEnd;
+      hash(inchi, minorEnd, end, minorLength > 0 && minorLength < MINOR_DUPLICATION_LIMIT, digestMinor);
+
+      int pos = appendTriplet(key, 0, tripletIndex1(digestMajor));
+      pos = appendTriplet(key, pos, tripletIndex2(digestMajor));
+      pos = appendTriplet(key, pos, tripletIndex3(digestMajor));
+      pos = appendTriplet(key, pos, tripletIndex4(digestMajor));
+      pos = appendDublet(key, pos, (digestMajor[7] & 0xff) | (digestMajor[8] & 0x01) << 8);
+      key[pos++] = '-';
+      pos = appendTriplet(key, pos, tripletIndex1(digestMinor));
+      pos = appendTriplet(key, pos, tripletIndex2(digestMinor));
+      pos = appendDublet(key, pos, ((digestMinor[3] & 0xf0) | (digestMinor[4] & 0x1f) << 8) >> 4);
+      key[pos++] = flagStd;
+      key[pos++] = 'A';
+      key[pos++] = '-';
+      key[pos] = flagProtonation;
+
+      String xtra1 = "";
+      String xtra2 = "";
+      if (hashExtensions) {
+        //the extensions start with the bits of the last byte that weren't used in the InChIKey
+        xtra1 = toHex(digestMajor, 8, 0xfe);
+        xtra2 = toHex(digestMinor, 4, 0xe0);
+      }
+      return new InchiKeyOutput(new String(key), InchiKeyStatus.OK, xtra1, xtra2);
+    }
+
+    /**
+     * SHA-256 of the ASCII characters between start and end
+     * @param inchi
+     * @param start
+     * @param end
+     * @param twice whether to hash the characters twice over, as if the substring was concatenated with itself
+     * @param digest
+     */
+    private void hash(CharSequence inchi, int start, int end, boolean twice, byte[] digest) {
+      int len = end - start;
+      if (buffer.length < len) {
+        buffer = new byte[Math.max(len, buffer.length * 2)];
+      }
+      for (int i = 0; i < len; i++) {
+        buffer[i] = (byte) inchi.charAt(start + i);
+      }
+      sha256.update(buffer, 0, len);
+      if (twice) {
+        sha256.update(buffer, 0, len);
+      }
+      try {
+        sha256.digest(digest, 0, digest.length);
+      }
+      catch (DigestException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static InchiKeyOutput failure(InchiKeyStatus status) {
+    return new InchiKeyOutput("", status, "", "");
+  }
+
+  private static boolean startsWithPrefix(CharSequence inchi) {
+    for (int i = 0; i < INCHI_PREFIX.length(); i++) {
+      if (inchi.charAt(i) != INCHI_PREFIX.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAsciiLetterOrDigit(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+  }
+
+  /**
+   * The characters the InChI library accepts straight after the prefix, '?' being present in InChIs of undefined structures
+   * @param c
+   * @return
+   */
+  private static boolean isValidFirstChar(char c) {
+    return isAsciiLetterOrDigit(c) || c == '/' || c == '?';
+  }
+
+  private static boolean isInchiChar(char c) {
+    if (isAsciiLetterOrDigit(c)) {
+      return true;
+    }
+    switch (c) {
+    case '(':
+    case ')':
+    case '*':
+    case '+':
+    case ',':
+    case '-':
+    case '.':
+    case '/':
+    case ';':
+    case '=':
+    case '?':
+    case '@':
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Parses the number of protons as the InChI library does, with C's strtol narrowed to an int.
+   * i.e. an optional sign followed by digits, anything else terminating the number, and values outside the range of a 64-bit long saturating
+   * @param inchi
+   * @param start
+   * @param end
+   * @return
+   */
+  private static int parseProtons(CharSequence inchi, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (inchi.charAt(i) == '+' || inchi.charAt(i) == '-')) {
+      negative = inchi.charAt(i) == '-';
+      i++;
+    }
+    //accumulated negatively, as Long.parseLong does, so that Long.MIN_VALUE can be represented
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+    for (; i < end && inchi.charAt(i) >= '0' && inchi.charAt(i) <= '9'; i++) {
+      int digit = inchi.charAt(i) - '0';
+      if (result < limit / 10 || result * 10 < limit + digit) {
+        result = limit;
+        break;
+      }
+      result = result * 10 - digit;
+    }
+    return (int) (negative ? result : -result);
+  }
+
+  /* The digest is read as a little-endian bit string, bits 0-13 give the first triplet, 14-27 the second etc. */
+
+  private static int tripletIndex1(byte[] a) {
+    return (a[0] & 0xff) | (a[1] & 0x3f) << 8;
+  }
+
+  private static int tripletIndex2(byte[] a) {
+    return ((a[1] & 0xc0) | (a[2] & 0xff) << 8 | (a[3] & 0x0f) << 16) >> 6;
+  }
+
+  private static int tripletIndex3(byte[] a) {
+    return ((a[3] & 0xf0) | (a[4] & 0xff) << 8 | (a[5] & 0x03) << 16) >> 4;
+  }
+
+  private static int tripletIndex4(byte[] a) {
+    return ((a[5] & 0xfc) | (a[6] & 0xff) << 8) >> 2;
+  }
+
+  private static int appendTriplet(char[] key, int pos, int index) {
+    key[pos] = (char) TRIPLETS[index * 3];
+    key[pos + 1] = (char) TRIPLETS[index * 3 + 1];
+    key[pos + 2] = (char) TRIPLETS[index * 3 + 2];
+    return pos + 3;
+  }
+
+  private static int appendDublet(char[] key, int pos, int index) {
+    key[pos] = (char) ('A' + index / 26);
+    key[pos + 1] = (char) ('A' + index % 26);
+    return pos + 2;
+  }
+
+  /**
+   * Lowercase hex of the digest from the given byte onwards, with the first byte masked as the InChI library does
+   */
+  private static String toHex(byte[] digest, int start, int firstByteMask) {
+    char[] hex = new char[(digest.length - start) * 2];
+    for (int i = start; i < digest.length; i++) {
+      int b = digest[i] & (i == start ? firstByteMask : 0xff);
+      hex[(i - start) * 2] = HEX_DIGITS[b >> 4];
+      hex[(i - start) * 2 + 1] = HEX_DIGITS[b & 0x0f];
+    }
+    return new String(hex);
+  }
+
+}
@@ -23,6 +23,7 @@ public class InchiKeyOutput {
   private final InchiKeyStatus status;
   private final String szXtra1;
   private final String szXtra2;
+  private InchiKey compactInchiKey;
   
   InchiKeyOutput(String inchiKey, InchiKeyStatus status, String szXtra1, String szXtra2) {
     this.inchiKey = inchiKey;
@@ -35,6 +36,19 @@ public class InchiKeyOutput {
     return inchiKey;
   }
 
+  /**
+   * The InChIKey in the compact form of {@link InchiKey}, the value is created on first use
+   * @return InchiKey, or null if no InChIKey was generated
+   */
+  public InchiKey getCompactInchiKey() {
+    InchiKey key = compactInchiKey;
+    if (key == null) {
+      key = InchiKey.tryParse(inchiKey);
+      compactInchiKey = key;
+    }
+    return key;
+  }
+
   public InchiKeyStatus getStatus() {
     return status;
   }
@@ -22,25 +22,52 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 public class InchiOptions {
   
-  static final InchiOptions DEFAULT_OPTIONS = new InchiOptionsBuilder().build();
+  //must be initialized before any options are built
+  static final boolean IS_WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
   
-  private static final boolean IS_WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+  static final InchiOptions DEFAULT_OPTIONS = new InchiOptionsBuilder().build();
 
   private final List<InchiFlag> flags;
   private final long timeoutMilliSecs;
+  private final InchiEngine engine;
+  private final Set<InchiOutputField> outputFields;
+  //bit per InchiFlag/InchiOutputField ordinal
+  private final long flagBits;
+  private final int outputFieldBits;
+  private final String optionsString;
+  private final String classicOptionsString;
+  //created on first use by the IXA API
+  private IxaOptionsPlan ixaPlan;
 
   private InchiOptions(InchiOptionsBuilder builder) {
     this.flags = Collections.unmodifiableList(new ArrayList<InchiFlag>(builder.flags));
     this.timeoutMilliSecs = builder.timeoutMilliSecs;
+    this.engine = builder.engine;
+    this.outputFields = Collections.unmodifiableSet(EnumSet.copyOf(builder.outputFields));
+    long flagBits = 0;
+    for (InchiFlag flag : flags) {
+      flagBits |= 1L << flag.ordinal();
+    }
+    this.flagBits = flagBits;
+    int outputFieldBits = 0;
+    for (InchiOutputField field : outputFields) {
+      outputFieldBits |= 1 << field.ordinal();
+    }
+    this.outputFieldBits = outputFieldBits;
+    this.optionsString = buildOptionsString();
+    this.classicOptionsString = buildClassicOptionsString();
   }
 
   public static class InchiOptionsBuilder {
 
     private final EnumSet<InchiFlag> flags = EnumSet.noneOf(InchiFlag.class);
     private long timeoutMilliSecs = 0;
+    private InchiEngine engine = InchiEngine.IXA;
+    private EnumSet<InchiOutputField> outputFields = EnumSet.allOf(InchiOutputField.class);
 
     public InchiOptionsBuilder withFlag(InchiFlag... flags) {
       for (InchiFlag flag : flags) {
@@ -74,6 +101,38 @@ public class InchiOptions {
       this.timeoutMilliSecs = timeoutMilliSecs;
       return this;
     }
+    
+    /**
+     * The route by which {@link JnaInchi#toInchi(InchiInput, InchiOptions)} passes the molecule to the InChI library.
+     * Both engines produce the same InChI, the default is {@link InchiEngine#IXA}
+     * @param engine
+     * @return
+     */
+    public InchiOptionsBuilder withEngine(InchiEngine engine) {
+      if (engine == null) {
+        throw new IllegalArgumentException("engine must not be null");
+      }
+      this.engine = engine;
+      return this;
+    }
+
+    /**
+     * The parts of the {@link InchiOutput}, in addition to the InChI, that should be generated.
+     * By default all are generated, calling this with no arguments requests just the InChI
+     * @param outputFields
+     * @return
+     */
+    public InchiOptionsBuilder withOutputFields(InchiOutputField... outputFields) {
+      EnumSet<InchiOutputField> fields = EnumSet.noneOf(InchiOutputField.class);
+      for (InchiOutputField field : outputFields) {
+        if (field == null) {
+          throw new IllegalArgumentException("outputFields must not contain null");
+        }
+        fields.add(field);
+      }
+      this.outputFields = fields;
+      return this;
+    }
 
     public InchiOptions build() {
       int stereoOptionFlags = 0;
@@ -116,9 +175,83 @@ public class InchiOptions {
   public long getTimeoutMilliSeconds() {
     return timeoutMilliSecs;
   }
+  
+  public InchiEngine getEngine() {
+    return engine;
+  }
+
+  public Set<InchiOutputField> getOutputFields() {
+    return outputFields;
+  }
+
+  boolean isOutputRequested(InchiOutputField field) {
+    return (outputFieldBits & 1 << field.ordinal()) != 0;
+  }
+
+  boolean hasFlag(InchiFlag flag) {
+    return (flagBits & 1L << flag.ordinal()) != 0;
+  }
+
+  /**
+   * The options string for the classic InChI API, as {@link #toString()} but also suppressing the generation of AuxInfo
+   * if it was not requested
+   * @return
+   */
+  String toClassicOptionsString() {
+    return classicOptionsString;
+  }
+
+  /**
+   * The IXA_INCHIBUILDER_SetOption calls corresponding to these options
+   * @return
+   */
+  IxaOptionsPlan getIxaPlan() {
+    IxaOptionsPlan plan = ixaPlan;
+    if (plan == null) {
+      //plans are immutable, so it doesn't matter if multiple threads race to create one
+      plan = new IxaOptionsPlan(this);
+      ixaPlan = plan;
+    }
+    return plan;
+  }
+
+  private String buildClassicOptionsString() {
+    if (isOutputRequested(InchiOutputField.AUXINFO) || hasFlag(InchiFlag.AuxNone)) {
+      return optionsString;
+    }
+    String auxNone = (IS_WINDOWS ? "/" : "-") + InchiFlag.AuxNone;
+    return optionsString.isEmpty() ? auxNone : optionsString + " " + auxNone;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Long.hashCode(flagBits);
+    result = 31 * result + Long.hashCode(timeoutMilliSecs);
+    result = 31 * result + engine.hashCode();
+    return 31 * result + outputFieldBits;
+  }
+
+  /**
+   * Options are equal if they have the same flags, timeout, engine and output fields
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof InchiOptions)) {
+      return false;
+    }
+    InchiOptions other = (InchiOptions) obj;
+    return flagBits == other.flagBits && timeoutMilliSecs == other.timeoutMilliSecs && engine == other.engine && outputFieldBits == other.outputFieldBits;
+  }
 
   @Override
   public String toString() {
+    return optionsString;
+  }
+
+  private String buildOptionsString() {
     StringBuilder sb = new StringBuilder();
     for (InchiFlag inchiFlag : flags) {
       if (inchiFlag == InchiFlag.SAbs) {
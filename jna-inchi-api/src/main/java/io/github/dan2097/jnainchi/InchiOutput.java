@@ -21,7 +21,8 @@ public class InchiOutput {
   
   private final String inchi;
   private final String auxInfo;
-  private final String message;
+  private String message;
+  private final String[] messages;
   private final String log;
   private final InchiStatus status;
 
@@ -29,6 +30,22 @@ public class InchiOutput {
     this.inchi = inchi;
     this.auxInfo = auxInfo;
     this.message = message;
+    this.messages = null;
+    this.log = log;
+    this.status = status;
+  }
+
+  /**
+   * @param inchi
+   * @param auxInfo
+   * @param messages individual status messages, only joined into a single message if {@link #getMessage()} is called
+   * @param log
+   * @param status
+   */
+  InchiOutput(String inchi, String auxInfo, String[] messages, String log, InchiStatus status) {
+    this.inchi = inchi;
+    this.auxInfo = auxInfo;
+    this.messages = messages;
     this.log = log;
     this.status = status;
   }
@@ -42,6 +59,16 @@ public class InchiOutput {
   }
 
   public String getMessage() {
+    if (message == null && messages != null) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < messages.length; i++) {
+        if (i > 0) {
+          sb.append("; ");
+        }
+        sb.append(messages[i]);
+      }
+      message = sb.toString();
+    }
     return message;
   }
 
@@ -0,0 +1,498 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Converts a stream of inputs through parse, convert and write stages, each running on its own threads and connected by bounded queues.
+ * <br>
+ * The calling thread reads the inputs, and stops reading whenever the maximum number of items are in the pipeline, waiting for items to be written.
+ * Memory use is therefore bounded by the capacity, however large the input, and a slow writer slows the reader rather than filling the heap.
+ * Each convert thread holds one {@link InchiSession} for all the items it converts.
+ * By default the writer receives the items in input order, items that complete early being held until those before them have been written.
+ * <br>
+ * An exception thrown by the parser or converter is passed to the writer as the result of that item, see {@link InchiBatchResult}.
+ * An exception thrown by the input iterator or the writer stops the pipeline, and is rethrown by {@link #run(Iterator)} once the pipeline has drained.
+ * <pre>
+ * InchiPipeline&lt;String, InchiInput, InchiOutput&gt; pipeline = InchiPipeline.builder(
+ *     SmilesToInchi::toInchiInput,
+ *     (session, input) -&gt; session.toInchi(input, options),
+ *     (sequence, smiles, result) -&gt; out.println(smiles + "\t" + result.getResult().getInchi()))
+ *     .withConvertThreads(8)
+ *     .build();
+ * pipeline.run(smilesIterator);
+ * </pre>
+ * @param <I> type of the inputs
+ * @param <P> type of the parsed inputs, passed to the converter
+ * @param <O> type of the results
+ */
+public final class InchiPipeline<I, P, O> {
+
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  @FunctionalInterface
+  public interface Parser<I, P> {
+    /**
+     * Prepares an input for conversion e.g. parsing a SMILES, without calling the InChI library
+     * @param input
+     * @return
+     * @throws Exception
+     */
+    P parse(I input) throws Exception;
+  }
+
+  @FunctionalInterface
+  public interface Converter<P, O> {
+    /**
+     * @param session session owned by the current convert thread
+     * @param parsed
+     * @return
+     * @throws Exception
+     */
+    O convert(InchiSession session, P parsed) throws Exception;
+  }
+
+  @FunctionalInterface
+  public interface Writer<I, O> {
+    /**
+     * @param sequence zero-based position of the input
+     * @param input
+     * @param result the result of parsing and converting the input, or the exception thrown by doing so
+     * @throws Exception
+     */
+    void write(long sequence, I input, InchiBatchResult<O> result) throws Exception;
+  }
+
+  public static final class Builder<I, P, O> {
+
+    private final Parser<I, P> parser;
+    private final Converter<P, O> converter;
+    private final Writer<I, O> writer;
+    private int parseThreads = 1;
+    private int convertThreads = Runtime.getRuntime().availableProcessors();
+    private int writeThreads = 1;
+    private boolean ordered = true;
+    private int capacity = DEFAULT_CAPACITY;
+
+    private Builder(Parser<I, P> parser, Converter<P, O> converter, Writer<I, O> writer) {
+      if (converter == null) {
+        throw new IllegalArgumentException("converter must not be null");
+      }
+      if (writer == null) {
+        throw new IllegalArgumentException("writer must not be null");
+      }
+      this.parser = parser;
+      this.converter = converter;
+      this.writer = writer;
+    }
+
+    /**
+     * Number of threads parsing inputs, the default is 1
+     * @param parseThreads
+     * @return
+     */
+    public Builder<I, P, O> withParseThreads(int parseThreads) {
+      this.parseThreads = checkThreads(parseThreads);
+      return this;
+    }
+
+    /**
+     * Number of threads calling the InChI library, the default is the number of processors
+     * @param convertThreads
+     * @return
+     */
+    public Builder<I, P, O> withConvertThreads(int convertThreads) {
+      this.convertThreads = checkThreads(convertThreads);
+      return this;
+    }
+
+    /**
+     * Number of threads calling the writer, the default is 1. More than one may only be used if the output is unordered
+     * @param writeThreads
+     * @return
+     */
+    public Builder<I, P, O> withWriteThreads(int writeThreads) {
+      this.writeThreads = checkThreads(writeThreads);
+      return this;
+    }
+
+    /**
+     * Whether the writer receives the items in input order, the default, or as soon as they are converted
+     * @param ordered
+     * @return
+     */
+    public Builder<I, P, O> withOrderedOutput(boolean ordered) {
+      this.ordered = ordered;
+      return this;
+    }
+
+    /**
+     * The maximum number of items that have been read, but not yet written, the default is 1024
+     * @param capacity
+     * @return
+     */
+    public Builder<I, P, O> withCapacity(int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("capacity must be positive: " + capacity);
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    public InchiPipeline<I, P, O> build() {
+      if (ordered && writeThreads > 1) {
+        throw new IllegalArgumentException("Ordered output can only be written by one thread");
+      }
+      return new InchiPipeline<>(this);
+    }
+
+    private static int checkThreads(int threads) {
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+      }
+      return threads;
+    }
+  }
+
+  /**
+   * @param parser prepares each input for the converter, on the parse threads
+   * @param converter calls the InChI library, on the convert threads
+   * @param writer handles each result, on the write thread(s)
+   * @return
+   */
+  public static <I, P, O> Builder<I, P, O> builder(Parser<I, P> parser, Converter<P, O> converter, Writer<I, O> writer) {
+    if (parser == null) {
+      throw new IllegalArgumentException("parser must not be null");
+    }
+    return new Builder<>(parser, converter, writer);
+  }
+
+  /**
+   * A pipeline without a parse stage, for inputs that are passed directly to the converter e.g. molfiles
+   * @param converter calls the InChI library, on the convert threads
+   * @param writer handles each result, on the write thread(s)
+   * @return
+   */
+  public static <I, O> Builder<I, I, O> builder(Converter<I, O> converter, Writer<I, O> writer) {
+    return new Builder<>(null, converter, writer);
+  }
+
+  private final Parser<I, P> parser;
+  private final Converter<P, O> converter;
+  private final Writer<I, O> writer;
+  private final int parseThreads;
+  private final int convertThreads;
+  private final int writeThreads;
+  private final boolean ordered;
+  private final int capacity;
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private volatile boolean stopped;
+
+  private InchiPipeline(Builder<I, P, O> builder) {
+    this.parser = builder.parser;
+    this.converter = builder.converter;
+    this.writer = builder.writer;
+    this.parseThreads = builder.parseThreads;
+    this.convertThreads = builder.convertThreads;
+    this.writeThreads = builder.writeThreads;
+    this.ordered = builder.ordered;
+    this.capacity = builder.capacity;
+  }
+
+  /**
+   * Passes each input through the pipeline, returning once every input that was read has been written.
+   * The pipeline may be run more than once, but not concurrently
+   * @param inputs
+   * @return the number of items written
+   * @throws IllegalStateException wrapping any checked exception thrown by the writer
+   */
+  public long run(Iterator<I> inputs) {
+    if (inputs == null) {
+      throw new IllegalArgumentException("inputs must not be null");
+    }
+    stopped = false;
+    Run run = new Run();
+    run.start();
+    boolean interrupted = false;
+    long sequence = 0;
+    try {
+      while (!stopped && run.fatalError.get() == null && inputs.hasNext()) {
+        //the permit is acquired before the input is read, so an interrupt never loses an input
+        run.inFlight.acquire();
+        I input;
+        try {
+          input = inputs.next();
+        }
+        catch (Throwable e) {
+          run.inFlight.release();
+          throw e;
+        }
+        Item<I, P, O> item = new Item<>(sequence++, input);
+        if (parser != null) {
+          run.parseQueue.add(item);
+        }
+        else {
+          item.parsed = castInput(input);
+          run.convertQueue.add(item);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      //stop reading, but still drain the items already read
+      interrupted = true;
+    }
+    catch (Throwable e) {
+      run.fatalError.compareAndSet(null, e);
+    }
+    try {
+      run.finish();
+    }
+    finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    Throwable error = run.fatalError.get();
+    if (error instanceof Error) {
+      throw (Error) error;
+    }
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    }
+    if (error != null) {
+      throw new IllegalStateException(error);
+    }
+    return run.written.get();
+  }
+
+  /**
+   * Stops a running pipeline from reading any more inputs. The inputs that have already been read are still converted and written,
+   * after which {@link #run(Iterator)} returns
+   */
+  public void shutdown() {
+    stopped = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private P castInput(I input) {
+    //without a parse stage P is the same type as I
+    return (P) input;
+  }
+
+  private static final class Item<I, P, O> {
+
+    private final long sequence;
+    private final I input;
+    private P parsed;
+    private InchiBatchResult<O> result;
+
+    Item(long sequence, I input) {
+      this.sequence = sequence;
+      this.input = input;
+    }
+  }
+
+  /**
+   * The queues and threads of one call to {@link InchiPipeline#run(Iterator)}.
+   * Each stage is ended by passing one end marker per thread through its queue, the last thread of a stage to finish then ends the next stage
+   */
+  private final class Run {
+
+    private final Item<I, P, O> end = new Item<>(-1, null);
+    private final Semaphore inFlight = new Semaphore(capacity);
+    //an item is only added to a queue while it holds a permit, so the queues are never full, and items are handed on with add which never blocks
+    private final BlockingQueue<Item<I, P, O>> parseQueue = new ArrayBlockingQueue<>(capacity + parseThreads);
+    private final BlockingQueue<Item<I, P, O>> convertQueue = new ArrayBlockingQueue<>(capacity + convertThreads);
+    private final BlockingQueue<Item<I, P, O>> writeQueue = new ArrayBlockingQueue<>(capacity + writeThreads);
+    private final AtomicInteger parseThreadsRunning = new AtomicInteger(parseThreads);
+    private final AtomicInteger convertThreadsRunning = new AtomicInteger(convertThreads);
+    private final AtomicReference<Throwable> fatalError = new AtomicReference<>();
+    private final AtomicLong written = new AtomicLong();
+    private final List<Thread> threads = new ArrayList<>();
+    //only used by the single writer thread of an ordered pipeline
+    private final Map<Long, Item<I, P, O>> pending = new HashMap<>();
+    private long nextSequence;
+
+    void start() {
+      if (parser != null) {
+        for (int i = 0; i < parseThreads; i++) {
+          startThread("parse", this::parseLoop);
+        }
+      }
+      for (int i = 0; i < convertThreads; i++) {
+        startThread("convert", this::convertLoop);
+      }
+      for (int i = 0; i < writeThreads; i++) {
+        startThread("write", this::writeLoop);
+      }
+    }
+
+    private void startThread(String stage, Runnable loop) {
+      Thread thread = new Thread(loop, "jna-inchi-pipeline-" + stage + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      threads.add(thread);
+      thread.start();
+    }
+
+    /**
+     * Ends the first stage, then waits for all the threads to finish
+     */
+    void finish() {
+      if (parser != null) {
+        endStage(parseQueue, parseThreads);
+      }
+      else {
+        endStage(convertQueue, convertThreads);
+      }
+      boolean interrupted = false;
+      for (Thread thread : threads) {
+        while (true) {
+          try {
+            thread.join();
+            break;
+          }
+          catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void endStage(BlockingQueue<Item<I, P, O>> queue, int threads) {
+      for (int i = 0; i < threads; i++) {
+        //the queues have room for the end markers, as at most capacity items are in flight
+        queue.add(end);
+      }
+    }
+
+    private void parseLoop() {
+      try {
+        Item<I, P, O> item;
+        while ((item = parseQueue.take()) != end) {
+          if (fatalError.get() == null) {
+            try {
+              item.parsed = parser.parse(item.input);
+            }
+            catch (Exception e) {
+              item.result = InchiBatchResult.failure(e);
+            }
+            catch (Throwable e) {
+              fatalError.compareAndSet(null, e);
+            }
+          }
+          convertQueue.add(item);
+        }
+      }
+      catch (InterruptedException e) {
+        fatalError.compareAndSet(null, e);
+      }
+      finally {
+        if (parseThreadsRunning.decrementAndGet() == 0) {
+          endStage(convertQueue, convertThreads);
+        }
+      }
+    }
+
+    private void convertLoop() {
+      InchiSession session = null;
+      try {
+        Item<I, P, O> item;
+        while ((item = convertQueue.take()) != end) {
+          if (fatalError.get() == null && item.result == null) {
+            try {
+              if (session == null) {
+                session = new InchiSession();
+              }
+              item.result = InchiBatchResult.success(converter.convert(session, item.parsed));
+            }
+            catch (Exception e) {
+              item.result = InchiBatchResult.failure(e);
+            }
+            catch (Throwable e) {
+              fatalError.compareAndSet(null, e);
+            }
+          }
+          item.parsed = null;
+          writeQueue.add(item);
+        }
+      }
+      catch (InterruptedException e) {
+        fatalError.compareAndSet(null, e);
+      }
+      finally {
+        if (session != null) {
+          session.close();
+        }
+        if (convertThreadsRunning.decrementAndGet() == 0) {
+          endStage(writeQueue, writeThreads);
+        }
+      }
+    }
+
+    private void writeLoop() {
+      try {
+        Item<I, P, O> item;
+        while ((item = writeQueue.take()) != end) {
+          if (!ordered) {
+            write(item);
+            continue;
+          }
+          pending.put(item.sequence, item);
+          while ((item = pending.remove(nextSequence)) != null) {
+            nextSequence++;
+            write(item);
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        fatalError.compareAndSet(null, e);
+      }
+    }
+
+    private void write(Item<I, P, O> item) {
+      try {
+        if (fatalError.get() == null) {
+          writer.write(item.sequence, item.input, item.result);
+          written.incrementAndGet();
+        }
+      }
+      catch (Throwable e) {
+        fatalError.compareAndSet(null, e);
+      }
+      finally {
+        //after a fatal error items are discarded, so that the pipeline still drains
+        inFlight.release();
+      }
+    }
+  }
+
+}
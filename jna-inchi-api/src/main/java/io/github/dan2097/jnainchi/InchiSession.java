@@ -0,0 +1,171 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import io.github.dan2097.jnainchi.inchi.IxaFunctions;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIKEYBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
+
+/**
+ * Holds on to the native IXA status, molecule and InChI builder handles between conversions,
+ * so that converting many molecules doesn't create and destroy these for every molecule.
+ * The handles are reset between molecules, and the builder is only recreated when the options change.
+ * <br>
+ * A session is not thread-safe, use one per thread (or a pool of them) and close it when done.
+ * <pre>
+ * try (InchiSession session = new InchiSession()) {
+ *   for (InchiInput input : inputs) {
+ *     InchiOutput output = session.toInchi(input);
+ *   }
+ * }
+ * </pre>
+ */
+public class InchiSession implements AutoCloseable {
+
+  private final IXA_STATUS_HANDLE logger;
+  private final IXA_MOL_HANDLE nativeMol;
+  private IXA_INCHIBUILDER_HANDLE builder;
+  private InchiOptions builderOptions;
+  private IXA_INCHIKEYBUILDER_HANDLE keyBuilder;
+  private boolean closed = false;
+
+  public InchiSession() {
+    JnaInchi.checkLibrary();
+    logger = IxaFunctions.IXA_STATUS_Create();
+    nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+  }
+
+  public InchiOutput toInchi(InchiInput inchiInput) {
+    return toInchi(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link JnaInchi#toInchi(InchiInput, InchiOptions)}, but reusing this session's native handles
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    if (options.getEngine() == InchiEngine.PACKED) {
+      //Doesn't use any IXA handles
+      return JnaInchi.toInchiPacked(inchiInput, options);
+    }
+    JnaInchi.checkInputSize(inchiInput);
+    reset();
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+    JnaInchi.addMolecule(logger, nativeMol, inchiInput);
+    return buildInchi(options);
+  }
+
+  public InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput) {
+    return toInchiWithKey(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link JnaInchi#toInchiWithKey(InchiInput, InchiOptions)}, but reusing this session's native handles, including an InChIKey builder
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    checkOpen();
+    if (options.getEngine() == InchiEngine.PACKED) {
+      return JnaInchi.withInchiKey(JnaInchi.toInchiPacked(inchiInput, options));
+    }
+    JnaInchi.checkInputSize(inchiInput);
+    reset();
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+    JnaInchi.addMolecule(logger, nativeMol, inchiInput);
+    if (keyBuilder == null) {
+      keyBuilder = IxaFunctions.IXA_INCHIKEYBUILDER_Create(logger);
+    }
+    prepareBuilder(options);
+    return JnaInchi.getBuilderOutputWithKey(logger, builder, keyBuilder, options);
+  }
+
+  /**
+   * As {@link JnaInchi#inchiToInchi(String, InchiOptions)}, but reusing this session's native handles
+   * @param inchi
+   * @param options
+   * @return
+   */
+  public InchiOutput inchiToInchi(String inchi, InchiOptions options) {
+    checkOpen();
+    reset();
+    IxaFunctions.IXA_MOL_ReadInChI(logger, nativeMol, inchi);
+    return buildInchi(options);
+  }
+
+  private void reset() {
+    IxaFunctions.IXA_MOL_Clear(logger, nativeMol);
+    IxaFunctions.IXA_STATUS_Clear(logger);
+  }
+
+  private InchiOutput buildInchi(InchiOptions options) {
+    prepareBuilder(options);
+    return JnaInchi.getBuilderOutput(logger, builder, options);
+  }
+
+  private void prepareBuilder(InchiOptions options) {
+    if (builder == null || !builderOptions.equals(options)) {
+      //IXA has no way of unsetting an option, hence start from a fresh builder
+      destroyBuilder();
+      builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+      JnaInchi.setBuilderOptions(logger, builder, options);
+      builderOptions = options;
+    }
+    IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
+    JnaInchi.setChiralFlag(logger, nativeMol, options);
+  }
+
+  private void destroyBuilder() {
+    if (builder != null) {
+      IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder);
+      builder = null;
+      builderOptions = null;
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("InchiSession has been closed");
+    }
+  }
+
+  /**
+   * Releases the native handles held by this session. Subsequent attempts to use the session will fail
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    destroyBuilder();
+    if (keyBuilder != null) {
+      IxaFunctions.IXA_INCHIKEYBUILDER_Destroy(logger, keyBuilder);
+      keyBuilder = null;
+    }
+    IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+    IxaFunctions.IXA_STATUS_Destroy(logger);
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * The output of a conversion to InChI along with the InChIKey of the InChI, see {@link JnaInchi#toInchiWithKey(InchiInput, InchiOptions)}.
+ * The hash extensions of the InChIKey are not calculated
+ */
+public class InchiWithKeyOutput {
+
+  private final InchiOutput inchiOutput;
+  private final InchiKeyOutput inchiKeyOutput;
+
+  InchiWithKeyOutput(InchiOutput inchiOutput, InchiKeyOutput inchiKeyOutput) {
+    this.inchiOutput = inchiOutput;
+    this.inchiKeyOutput = inchiKeyOutput;
+  }
+
+  public InchiOutput getInchiOutput() {
+    return inchiOutput;
+  }
+
+  public InchiKeyOutput getInchiKeyOutput() {
+    return inchiKeyOutput;
+  }
+
+  public String getInchi() {
+    return inchiOutput.getInchi();
+  }
+
+  /**
+   * @return the InChIKey, or an empty string if no InChI was generated
+   */
+  public String getInchiKey() {
+    return inchiKeyOutput.getInchiKey();
+  }
+
+  /**
+   * @return the status of the conversion to InChI
+   */
+  public InchiStatus getStatus() {
+    return inchiOutput.getStatus();
+  }
+
+}
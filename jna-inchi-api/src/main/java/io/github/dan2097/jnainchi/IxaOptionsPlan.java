@@ -0,0 +1,177 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.util.Arrays;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_INCHIBUILDER_OPTION;
+import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_INCHIBUILDER_STEREOOPTION;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
+
+/**
+ * The IXA calls that apply an {@link InchiOptions} to an InChI builder and molecule.
+ * These are worked out once per options instance, see {@link InchiOptions#getIxaPlan()}, so applying the options is a replay of the calls
+ */
+final class IxaOptionsPlan {
+
+  private static final int NO_STEREO_OPTION = -1;
+
+  private final long timeoutMilliSecs;
+  //IXA_INCHIBUILDER_OPTIONs to be enabled
+  private final int[] builderOptions;
+  private final int stereoOption;
+  //null if the molecule's chiral flag is left as is
+  private final Boolean chiral;
+
+  IxaOptionsPlan(InchiOptions options) {
+    this.timeoutMilliSecs = options.getTimeoutMilliSeconds();
+    int[] builderOptions = new int[options.getFlags().size() + 1];
+    int numBuilderOptions = 0;
+    int stereoOption = NO_STEREO_OPTION;
+    Boolean chiral = null;
+    for (InchiFlag flag : options.getFlags()) {
+      switch (flag) {
+      case AuxNone:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_AuxNone;
+        break;
+      case DoNotAddH:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_DoNotAddH;
+        break;
+      case FixedH:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FixedH;
+        break;
+      case KET:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_KET;
+        break;
+      case LargeMolecules:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LargeMolecules;
+        break;
+      case NEWPSOFF:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NewPsOff;
+        break;
+      case OneFiveT:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_15T;
+        break;
+      case RecMet:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_RecMet;
+        break;
+      case SLUUD:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SLUUD;
+        break;
+      case SNon:
+        stereoOption = IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SNon;
+        break;
+      case SRac:
+        stereoOption = IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRac;
+        break;
+      case SRel:
+        stereoOption = IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRel;
+        break;
+      case SUCF:
+        stereoOption = IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SUCF;
+        break;
+      case SAbs:
+        stereoOption = IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SAbs;
+        break;
+      case SUU:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SUU;
+        break;
+      case SaveOpt:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SaveOpt;
+        break;
+      case WarnOnEmptyStructure:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_WarnOnEmptyStructure;
+        break;
+      case NoWarnings:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoWarnings;
+        break;
+      case LooseTSACheck:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LooseTSACheck;
+        break;
+      case Polymers:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers;
+        break;
+      case Polymers105:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers105;
+        break;
+      case FoldCRU:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FoldCRU;
+        break;
+      case NoFrameShift:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoFrameShift;
+        break;
+      case NoEdits:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoEdits;
+        break;
+      case NPZz:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NPZZ;
+        break;
+      case SAtZz:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SATZZ;
+        break;
+      case OutErrInChI:
+        builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_OutErrInChI;
+        break;
+      case ChiralFlagOFF:
+        //A property of the molecule rather than the builder
+        chiral = Boolean.FALSE;
+        break;
+      case ChiralFlagON:
+        chiral = Boolean.TRUE;
+        break;
+      default:
+        throw new IllegalStateException("Unexpected InChI option flag: " + flag);
+      }
+    }
+    if (!options.isOutputRequested(InchiOutputField.AUXINFO)) {
+      builderOptions[numBuilderOptions++] = IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_AuxNone;
+    }
+    this.builderOptions = Arrays.copyOf(builderOptions, numBuilderOptions);
+    this.stereoOption = stereoOption;
+    this.chiral = chiral;
+  }
+
+  void applyTo(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder) {
+    if (timeoutMilliSecs != 0) {
+      IxaFunctions.IXA_INCHIBUILDER_SetOption_Timeout_MilliSeconds(logger, builder, timeoutMilliSecs);
+    }
+    for (int builderOption : builderOptions) {
+      IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, builderOption, true);
+    }
+    if (stereoOption != NO_STEREO_OPTION) {
+      IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, stereoOption);
+    }
+  }
+
+  /**
+   * @return true if the options explicitly set the molecule's chiral flag
+   */
+  boolean setsChiralFlag() {
+    return chiral != null;
+  }
+
+  void applyChiralFlag(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol) {
+    if (chiral != null) {
+      IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, chiral);
+    }
+  }
+
+}
@@ -18,44 +18,45 @@
 package io.github.dan2097.jnainchi;
 
 import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.sun.jna.NativeLong;
 import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
 
 import io.github.dan2097.jnainchi.inchi.InchiLibrary;
 import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_BOND_WEDGE;
 import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_DBLBOND_CONFIG;
-import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_INCHIBUILDER_OPTION;
-import io.github.dan2097.jnainchi.inchi.InchiLibrary.IXA_INCHIBUILDER_STEREOOPTION;
 import io.github.dan2097.jnainchi.inchi.InchiLibrary.tagRetValGetINCHI;
 import io.github.dan2097.jnainchi.inchi.InchiLibrary.tagRetValMOL2INCHI;
+import io.github.dan2097.jnainchi.inchi.IxaCStringFunctions;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions;
-import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_ATOMID;
-import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_BONDID;
+import io.github.dan2097.jnainchi.inchi.IxaIdFunctions;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIKEYBUILDER_HANDLE;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
 import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
-import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STEREOID;
-import io.github.dan2097.jnainchi.inchi.tagINCHIStereo0D;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_Input;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_InputINCHI;
-import io.github.dan2097.jnainchi.inchi.tagINCHI_Output;
 import io.github.dan2097.jnainchi.inchi.tagINCHI_OutputStruct;
-import io.github.dan2097.jnainchi.inchi.tagInchiAtom;
 import io.github.dan2097.jnainchi.inchi.tagInchiInpData;
 
 public class JnaInchi {
   
+  private static final int INCHIKEY_LENGTH = 27;
+
   private static final String platform;
   private static final Throwable libraryLoadingError;
-  private static final int ISOTOPIC_SHIFT_RANGE_MIN = InchiLibrary.ISOTOPIC_SHIFT_FLAG - InchiLibrary.ISOTOPIC_SHIFT_MAX;
-  private static final int ISOTOPIC_SHIFT_RANGE_MAX = InchiLibrary.ISOTOPIC_SHIFT_FLAG + InchiLibrary.ISOTOPIC_SHIFT_MAX;
-  private static final Map<String, Integer> inchiBaseAtomicMasses = new HashMap<>();
+  private static final IllegalStateException backendLoadingError;
+  private static final InchiBackend backend;
   
   static {
     Throwable t = null;
@@ -69,128 +70,59 @@ public class JnaInchi {
     }
     platform = p;
     libraryLoadingError = t;
-    
-    //avg mw from util.c
-    inchiBaseAtomicMasses.put("H", 1);
-    inchiBaseAtomicMasses.put("D", 2);
-    inchiBaseAtomicMasses.put("T", 3);
-    inchiBaseAtomicMasses.put("He", 4);
-    inchiBaseAtomicMasses.put("Li", 7);
-    inchiBaseAtomicMasses.put("Be", 9);
-    inchiBaseAtomicMasses.put("B", 11);
-    inchiBaseAtomicMasses.put("C", 12);
-    inchiBaseAtomicMasses.put("N", 14);
-    inchiBaseAtomicMasses.put("O", 16);
-    inchiBaseAtomicMasses.put("F", 19);
-    inchiBaseAtomicMasses.put("Ne", 20);
-    inchiBaseAtomicMasses.put("Na", 23);
-    inchiBaseAtomicMasses.put("Mg", 24);
-    inchiBaseAtomicMasses.put("Al", 27);
-    inchiBaseAtomicMasses.put("Si", 28);
-    inchiBaseAtomicMasses.put("P", 31);
-    inchiBaseAtomicMasses.put("S", 32);
-    inchiBaseAtomicMasses.put("Cl", 35);
-    inchiBaseAtomicMasses.put("Ar", 40);
-    inchiBaseAtomicMasses.put("K", 39);
-    inchiBaseAtomicMasses.put("Ca", 40);
-    inchiBaseAtomicMasses.put("Sc", 45);
-    inchiBaseAtomicMasses.put("Ti", 48);
-    inchiBaseAtomicMasses.put("V", 51);
-    inchiBaseAtomicMasses.put("Cr", 52);
-    inchiBaseAtomicMasses.put("Mn", 55);
-    inchiBaseAtomicMasses.put("Fe", 56);
-    inchiBaseAtomicMasses.put("Co", 59);
-    inchiBaseAtomicMasses.put("Ni", 59);
-    inchiBaseAtomicMasses.put("Cu", 64);
-    inchiBaseAtomicMasses.put("Zn", 65);
-    inchiBaseAtomicMasses.put("Ga", 70);
-    inchiBaseAtomicMasses.put("Ge", 73);
-    inchiBaseAtomicMasses.put("As", 75);
-    inchiBaseAtomicMasses.put("Se", 79);
-    inchiBaseAtomicMasses.put("Br", 80);
-    inchiBaseAtomicMasses.put("Kr", 84);
-    inchiBaseAtomicMasses.put("Rb", 85);
-    inchiBaseAtomicMasses.put("Sr", 88);
-    inchiBaseAtomicMasses.put("Y", 89);
-    inchiBaseAtomicMasses.put("Zr", 91);
-    inchiBaseAtomicMasses.put("Nb", 93);
-    inchiBaseAtomicMasses.put("Mo", 96);
-    inchiBaseAtomicMasses.put("Tc", 98);
-    inchiBaseAtomicMasses.put("Ru", 101);
-    inchiBaseAtomicMasses.put("Rh", 103);
-    inchiBaseAtomicMasses.put("Pd", 106);
-    inchiBaseAtomicMasses.put("Ag", 108);
-    inchiBaseAtomicMasses.put("Cd", 112);
-    inchiBaseAtomicMasses.put("In", 115);
-    inchiBaseAtomicMasses.put("Sn", 119);
-    inchiBaseAtomicMasses.put("Sb", 122);
-    inchiBaseAtomicMasses.put("Te", 128);
-    inchiBaseAtomicMasses.put("I", 127);
-    inchiBaseAtomicMasses.put("Xe", 131);
-    inchiBaseAtomicMasses.put("Cs", 133);
-    inchiBaseAtomicMasses.put("Ba", 137);
-    inchiBaseAtomicMasses.put("La", 139);
-    inchiBaseAtomicMasses.put("Ce", 140);
-    inchiBaseAtomicMasses.put("Pr", 141);
-    inchiBaseAtomicMasses.put("Nd", 144);
-    inchiBaseAtomicMasses.put("Pm", 145);
-    inchiBaseAtomicMasses.put("Sm", 150);
-    inchiBaseAtomicMasses.put("Eu", 152);
-    inchiBaseAtomicMasses.put("Gd", 157);
-    inchiBaseAtomicMasses.put("Tb", 159);
-    inchiBaseAtomicMasses.put("Dy", 163);
-    inchiBaseAtomicMasses.put("Ho", 165);
-    inchiBaseAtomicMasses.put("Er", 167);
-    inchiBaseAtomicMasses.put("Tm", 169);
-    inchiBaseAtomicMasses.put("Yb", 173);
-    inchiBaseAtomicMasses.put("Lu", 175);
-    inchiBaseAtomicMasses.put("Hf", 178);
-    inchiBaseAtomicMasses.put("Ta", 181);
-    inchiBaseAtomicMasses.put("W", 184);
-    inchiBaseAtomicMasses.put("Re", 186);
-    inchiBaseAtomicMasses.put("Os", 190);
-    inchiBaseAtomicMasses.put("Ir", 192);
-    inchiBaseAtomicMasses.put("Pt", 195);
-    inchiBaseAtomicMasses.put("Au", 197);
-    inchiBaseAtomicMasses.put("Hg", 201);
-    inchiBaseAtomicMasses.put("Tl", 204);
-    inchiBaseAtomicMasses.put("Pb", 207);
-    inchiBaseAtomicMasses.put("Bi", 209);
-    inchiBaseAtomicMasses.put("Po", 209);
-    inchiBaseAtomicMasses.put("At", 210);
-    inchiBaseAtomicMasses.put("Rn", 222);
-    inchiBaseAtomicMasses.put("Fr", 223);
-    inchiBaseAtomicMasses.put("Ra", 226);
-    inchiBaseAtomicMasses.put("Ac", 227);
-    inchiBaseAtomicMasses.put("Th", 232);
-    inchiBaseAtomicMasses.put("Pa", 231);
-    inchiBaseAtomicMasses.put("U", 238);
-    inchiBaseAtomicMasses.put("Np", 237);
-    inchiBaseAtomicMasses.put("Pu", 244);
-    inchiBaseAtomicMasses.put("Am", 243);
-    inchiBaseAtomicMasses.put("Cm", 247);
-    inchiBaseAtomicMasses.put("Bk", 247);
-    inchiBaseAtomicMasses.put("Cf", 251);
-    inchiBaseAtomicMasses.put("Es", 252);
-    inchiBaseAtomicMasses.put("Fm", 257);
-    inchiBaseAtomicMasses.put("Md", 258);
-    inchiBaseAtomicMasses.put("No", 259);
-    inchiBaseAtomicMasses.put("Lr", 260);
-    inchiBaseAtomicMasses.put("Rf", 261);
-    inchiBaseAtomicMasses.put("Db", 270);
-    inchiBaseAtomicMasses.put("Sg", 269);
-    inchiBaseAtomicMasses.put("Bh", 270);
-    inchiBaseAtomicMasses.put("Hs", 270);
-    inchiBaseAtomicMasses.put("Mt", 278);
-    inchiBaseAtomicMasses.put("Ds", 281);
-    inchiBaseAtomicMasses.put("Rg", 281);
-    inchiBaseAtomicMasses.put("Cn", 285);
-    inchiBaseAtomicMasses.put("Nh", 278);
-    inchiBaseAtomicMasses.put("Fl", 289);
-    inchiBaseAtomicMasses.put("Mc", 289);
-    inchiBaseAtomicMasses.put("Lv", 293);
-    inchiBaseAtomicMasses.put("Ts", 297);
-    inchiBaseAtomicMasses.put("Og", 294);
+    InchiBackend b = JnaInchiBackend.INSTANCE;
+    IllegalStateException backendError = null;
+    if (t == null) {
+      try {
+        b = loadBackend(System.getProperty("jnainchi.backend", "auto"));
+      }
+      catch (IllegalStateException e) {
+        backendError = e;
+      }
+    }
+    backend = b;
+    backendLoadingError = backendError;
+  }
+
+  /**
+   * Picks the binding for the classic InChI API according to the value of the jnainchi.backend system property.
+   * "jna" forces JNA, and "ffm" requires the FFM binding. By default, "auto", the FFM binding is used when the jna-inchi-ffm module is on the classpath
+   * and the running JVM supports it, falling back to JNA.
+   * @param requested
+   * @return The binding to use
+   * @throws IllegalStateException if the value is not recognised, or "ffm" was requested and the FFM binding could not be loaded
+   */
+  static InchiBackend loadBackend(String requested) {
+    boolean required;
+    if (requested.equalsIgnoreCase("jna")) {
+      return JnaInchiBackend.INSTANCE;
+    }
+    else if (requested.equalsIgnoreCase("ffm")) {
+      required = true;
+    }
+    else if (requested.equalsIgnoreCase("auto")) {
+      required = false;
+    }
+    else {
+      throw new IllegalStateException("Unrecognised value of jnainchi.backend: " + requested + ", expected auto, jna or ffm");
+    }
+    try {
+      Class<?> ffmBackend = Class.forName("io.github.dan2097.jnainchi.FfmInchiBackend");
+      return (InchiBackend) ffmBackend.getDeclaredConstructor().newInstance();
+    }
+    catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+      //module absent, or the JVM is too old for java.lang.foreign
+      if (required) {
+        throw new IllegalStateException("jnainchi.backend=ffm requires the jna-inchi-ffm module and Java 22 or later", e);
+      }
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      if (required) {
+        throw new IllegalStateException("Failed to load the FFM backend requested by jnainchi.backend=ffm", e);
+      }
+      Logger.getLogger(JnaInchi.class.getName()).log(Level.WARNING, "Failed to load the FFM backend, falling back to JNA", e);
+    }
+    return JnaInchiBackend.INSTANCE;
   }
     
   public static InchiOutput toInchi(InchiInput inchiInput) {
@@ -199,25 +131,167 @@ public class JnaInchi {
   
   public static InchiOutput toInchi(InchiInput inchiInput, InchiOptions options) {
     checkLibrary();
-    List<InchiAtom> atoms = inchiInput.getAtoms();
-    int atomCount = atoms.size();
-    if (atomCount > Short.MAX_VALUE) {
-      throw new IllegalStateException("InChI is limited to 32767 atoms, input contained " + atomCount + " atoms");
+    if (options.getEngine() == InchiEngine.PACKED) {
+      return toInchiPacked(inchiInput, options);
     }
-    List<InchiBond> bonds = inchiInput.getBonds();
-    List<InchiStereo> stereos = inchiInput.getStereos();
-    if (stereos.size() > Short.MAX_VALUE) {
-      throw new IllegalStateException("Too many stereochemistry elements in input");
+    checkInputSize(inchiInput);
+    IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
+    IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+    try {
+      addMolecule(logger, nativeMol, inchiInput);
+      return buildInchi(logger, nativeMol, options);
+    }
+    finally {
+      IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+      IxaFunctions.IXA_STATUS_Destroy(logger);
     }
+  }
+
+  public static InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput) {
+    return toInchiWithKey(inchiInput, InchiOptions.DEFAULT_OPTIONS);
+  }
 
+  /**
+   * As {@link #toInchi(InchiInput, InchiOptions)}, but also generating the InChIKey of the InChI.
+   * With the IXA engine the InChIKey is generated from the InChI held by the native InChI builder,
+   * rather than passing the InChI back to the InChI library as per {@link #inchiToInchiKey(String)}.
+   * The hash extensions of the InChIKey are not calculated
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public static InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    checkLibrary();
+    if (options.getEngine() == InchiEngine.PACKED) {
+      return withInchiKey(toInchiPacked(inchiInput, options));
+    }
+    checkInputSize(inchiInput);
     IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
     IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
-    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, atomCount, bonds.size(), stereos.size());
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+    IXA_INCHIKEYBUILDER_HANDLE keyBuilder = null;
+    IXA_INCHIBUILDER_HANDLE builder = null;
     try {
-      Map<InchiAtom, IXA_ATOMID> atomToNativeAtom = addAtoms(nativeMol, logger, atoms);
-      addBonds(nativeMol, logger, bonds, atomToNativeAtom);
-      addStereos(nativeMol, logger, stereos, atomToNativeAtom);
-      return buildInchi(logger, nativeMol, options);
+      addMolecule(logger, nativeMol, inchiInput);
+      keyBuilder = IxaFunctions.IXA_INCHIKEYBUILDER_Create(logger);
+      builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+      IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
+      setBuilderOptions(logger, builder, options);
+      setChiralFlag(logger, nativeMol, options);
+      return getBuilderOutputWithKey(logger, builder, keyBuilder, options);
+    }
+    finally {
+      if (builder != null) {
+        IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder);
+      }
+      if (keyBuilder != null) {
+        IxaFunctions.IXA_INCHIKEYBUILDER_Destroy(logger, keyBuilder);
+      }
+      IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+      IxaFunctions.IXA_STATUS_Destroy(logger);
+    }
+  }
+
+  /**
+   * Converts the input to InChI with each of the given options, e.g. to produce both a standard and a FixedH InChI.
+   * The molecule is passed to the InChI library once, and then given to an InChI builder per options,
+   * rather than repeating the whole of {@link #toInchi(InchiInput, InchiOptions)} for each options.
+   * Options that use the {@link InchiEngine#PACKED} engine are converted independently, so if every options does, no IXA molecule is built
+   * @param inchiInput
+   * @param options
+   * @return an output per options, in the same order as the options
+   */
+  public static List<InchiOutput> toInchi(InchiInput inchiInput, InchiOptions... options) {
+    checkLibrary();
+    for (InchiOptions opts : options) {
+      if (opts == null) {
+        throw new IllegalArgumentException("options must not contain null");
+      }
+    }
+    List<InchiOutput> outputs = new ArrayList<>(options.length);
+    checkInputSize(inchiInput);
+    //The IXA molecule is only built once an options that uses the IXA engine is reached
+    IXA_STATUS_HANDLE logger = null;
+    IXA_MOL_HANDLE nativeMol = null;
+    try {
+      boolean shareMolecule = false;
+      boolean chiralFlagSet = false;
+      for (InchiOptions opts : options) {
+        if (opts.getEngine() == InchiEngine.PACKED) {
+          outputs.add(toInchiPacked(inchiInput, opts));
+          continue;
+        }
+        if (logger == null) {
+          logger = IxaFunctions.IXA_STATUS_Create();
+          nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+          IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+          addMolecule(logger, nativeMol, inchiInput);
+          //Messages from adding the molecule belong in every output, so in that unusual case each output is generated independently
+          shareMolecule = IxaFunctions.IXA_STATUS_GetCount(logger) == 0;
+        }
+        if (!shareMolecule) {
+          outputs.add(toInchi(inchiInput, opts));
+        }
+        else {
+          IxaFunctions.IXA_STATUS_Clear(logger);
+          if (chiralFlagSet && !opts.getIxaPlan().setsChiralFlag()) {
+            //restore the default, as the chiral flag is a property of the shared molecule
+            IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, false);
+          }
+          chiralFlagSet |= opts.getIxaPlan().setsChiralFlag();
+          outputs.add(buildInchi(logger, nativeMol, opts));
+        }
+      }
+    }
+    finally {
+      if (logger != null) {
+        if (nativeMol != null) {
+          IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
+        }
+        IxaFunctions.IXA_STATUS_Destroy(logger);
+      }
+    }
+    return outputs;
+  }
+
+  /**
+   * Converts each of the inputs as per {@link #toInchi(InchiInput, InchiOptions)}, with the work shared between the threads of the executor
+   * and the calling thread. Each thread reuses one set of native handles, see {@link InchiSession}.
+   * An exception thrown when converting an input is captured in the result for that input, rather than aborting the batch
+   * @param inchiInputs
+   * @param options
+   * @param executor
+   * @return a result per input, in the same order as the inputs
+   */
+  public static List<InchiBatchResult<InchiOutput>> toInchiBatch(List<InchiInput> inchiInputs, InchiOptions options, Executor executor) {
+    checkLibrary();
+    return InchiBatch.run(inchiInputs, executor, true, (session, inchiInput) -> session.toInchi(inchiInput, options));
+  }
+
+  /**
+   * As {@link #toInchi(InchiInput, InchiOptions)}, but rather than returning an {@link InchiOutput}, the InChI is written as ASCII
+   * to the sink at its current position, without decoding it into a String. Nothing is written if no InChI was produced.
+   * Only the InChI is delivered, so the options should typically request no other output fields, see {@link InchiOptions.InchiOptionsBuilder#withOutputFields(InchiOutputField...)}.
+   * A byte[] can be used as the sink by wrapping it with {@link ByteBuffer#wrap(byte[])}
+   * @param inchiInput
+   * @param options
+   * @param sink
+   * @return status of the conversion
+   * @throws BufferOverflowException if the InChI does not fit in the remaining space of the sink, in which case the sink is unchanged
+   */
+  public static InchiStatus toInchi(InchiInput inchiInput, InchiOptions options, ByteBuffer sink) {
+    checkLibrary();
+    if (options.getEngine() == InchiEngine.PACKED) {
+      return backend.toInchi(new PackedInchiInput(inchiInput, options), sink);
+    }
+    checkInputSize(inchiInput);
+    IXA_STATUS_HANDLE logger = IxaFunctions.IXA_STATUS_Create();
+    IXA_MOL_HANDLE nativeMol = IxaFunctions.IXA_MOL_Create(logger);
+    IxaFunctions.IXA_MOL_ReserveSpace(logger, nativeMol, inchiInput.getAtoms().size(), inchiInput.getBonds().size(), inchiInput.getStereos().size());
+    try {
+      addMolecule(logger, nativeMol, inchiInput);
+      return buildInchi(logger, nativeMol, options, sink);
     }
     finally {
       IxaFunctions.IXA_MOL_Destroy(logger, nativeMol);
@@ -225,318 +299,387 @@ public class JnaInchi {
     }
   }
 
-  private static Map<InchiAtom, IXA_ATOMID> addAtoms(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiAtom> atoms) {
-    Map<InchiAtom, IXA_ATOMID> atomToNativeAtom = new HashMap<>();
-    for (InchiAtom atom : atoms) {
-      //For performance only call IxaFunctions when values differ from the defaults
-      IXA_ATOMID nativeAtom = IxaFunctions.IXA_MOL_CreateAtom(logger, mol);
-      atomToNativeAtom.put(atom, nativeAtom);
+  static void checkInputSize(InchiInput inchiInput) {
+    int atomCount = inchiInput.getAtoms().size();
+    if (atomCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("InChI is limited to 32767 atoms, input contained " + atomCount + " atoms");
+    }
+    if (inchiInput.getStereos().size() > Short.MAX_VALUE) {
+      throw new IllegalStateException("Too many stereochemistry elements in input");
+    }
+  }
+
+  static void addMolecule(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiInput inchiInput) {
+    long[] nativeAtoms = addAtoms(nativeMol, logger, inchiInput.getAtoms());
+    addBonds(nativeMol, logger, inchiInput, nativeAtoms);
+    addStereos(nativeMol, logger, inchiInput, nativeAtoms);
+  }
+
+  static InchiOutput toInchiPacked(InchiInput inchiInput, InchiOptions options) {
+    return backend.toInchi(new PackedInchiInput(inchiInput, options));
+  }
+
+  private static long[] addAtoms(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiAtom> atoms) {
+    int atomCount = atoms.size();
+    long[] nativeAtoms = new long[atomCount];
+    for (int i = 0; i < atomCount; i++) {
+      InchiAtom atom = atoms.get(i);
+      //For performance only call IxaIdFunctions when values differ from the defaults
+      long nativeAtom = IxaIdFunctions.IXA_MOL_CreateAtom(logger, mol);
+      nativeAtoms[i] = nativeAtom;
       
       if (atom.getX() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomX(logger, mol, nativeAtom, atom.getX());
+        IxaIdFunctions.IXA_MOL_SetAtomX(logger, mol, nativeAtom, atom.getX());
       }
       if (atom.getY() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomY(logger, mol, nativeAtom, atom.getY());
+        IxaIdFunctions.IXA_MOL_SetAtomY(logger, mol, nativeAtom, atom.getY());
       }
       if (atom.getZ() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomZ(logger, mol, nativeAtom, atom.getZ());
+        IxaIdFunctions.IXA_MOL_SetAtomZ(logger, mol, nativeAtom, atom.getZ());
       }
       String elName = atom.getElName();
       if (!elName.equals("C")) {
         if (elName.length() > 5) {
           throw new IllegalArgumentException("Element name was too long: " + elName);
         }
-        IxaFunctions.IXA_MOL_SetAtomElement(logger, mol, nativeAtom, elName);
+        byte[] cElName = Elements.getCSymbol(elName);
+        if (cElName != null) {
+          IxaIdFunctions.IXA_MOL_SetAtomElement(logger, mol, nativeAtom, cElName);
+        }
+        else {
+          IxaIdFunctions.IXA_MOL_SetAtomElement(logger, mol, nativeAtom, elName);
+        }
       }
       if (atom.getIsotopicMass() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomMass(logger, mol, nativeAtom, atom.getIsotopicMass());
+        IxaIdFunctions.IXA_MOL_SetAtomMass(logger, mol, nativeAtom, atom.getIsotopicMass());
       }
       if (atom.getCharge() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomCharge(logger, mol, nativeAtom, atom.getCharge());
+        IxaIdFunctions.IXA_MOL_SetAtomCharge(logger, mol, nativeAtom, atom.getCharge());
       }
       if (atom.getRadical() != InchiRadical.NONE) {
-        IxaFunctions.IXA_MOL_SetAtomRadical(logger, mol, nativeAtom, atom.getRadical().getCode());
+        IxaIdFunctions.IXA_MOL_SetAtomRadical(logger, mol, nativeAtom, atom.getRadical().getCode());
       }
       if (atom.getImplicitHydrogen() != 0) {
-        IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 0, atom.getImplicitHydrogen());
+        IxaIdFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 0, atom.getImplicitHydrogen());
       }
       if (atom.getImplicitProtium() != 0) {
-         IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 1, atom.getImplicitProtium());
+         IxaIdFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 1, atom.getImplicitProtium());
       }
       if (atom.getImplicitDeuterium() != 0) {
-         IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 2, atom.getImplicitDeuterium());
+         IxaIdFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 2, atom.getImplicitDeuterium());
       }
       if (atom.getImplicitTritium() != 0) {
-          IxaFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 3, atom.getImplicitTritium());
+          IxaIdFunctions.IXA_MOL_SetAtomHydrogens(logger, mol, nativeAtom, 3, atom.getImplicitTritium());
       }
     }
-    return atomToNativeAtom;
+    return nativeAtoms;
   }
   
-  private static void addBonds(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, List<InchiBond> bonds, Map<InchiAtom, IXA_ATOMID> atomToNativeAtom) {
-    for (InchiBond bond : bonds) {
-      IXA_ATOMID nativeAtom1 = atomToNativeAtom.get(bond.getStart());
-      IXA_ATOMID nativeAtom2 = atomToNativeAtom.get(bond.getEnd());
-      if (nativeAtom1 == null || nativeAtom2 == null) {
+  private static void addBonds(IXA_MOL_HANDLE mol, IXA_STATUS_HANDLE logger, InchiInput inchiInput, long[] nativeAtoms) {
+    for (InchiBond bond : inchiInput.getBonds()) {
+      int atomIdx1 = inchiInput.indexOf(bond.getStart());
+      int atomIdx2 = inchiInput.indexOf(bond.getEnd());
+      if (atomIdx1 < 0 || atomIdx2 < 0) {
         throw new IllegalStateException("Bond referenced an atom that was not part of the InchiInput");
       }
-      IXA_BONDID nativeBond = IxaFunctions.IXA_MOL_CreateBond(logger, mol, nativeAtom1, nativeAtom2);
+      long nativeAtom1 = nativeAtoms[atomIdx1];
+      long nativeAtom2 = nativeAtoms[atomIdx2];
+      long nativeBond = IxaIdFunctions.IXA_MOL_CreateBond(logger, mol, nativeAtom1, nativeAtom2);
       InchiBondType bondType = bond.getType();
       if (bondType != InchiBondType.SINGLE) {
-        IxaFunctions.IXA_MOL_SetBondType(logger, mol, nativeBond, bondType.getCode());
+        IxaIdFunctions.IXA_MOL_SetBondType(logger, mol, nativeBond, bondType.getCode());
       }
       switch (bond.getStereo()) {
       case DOUBLE_EITHER:
         //Default is to perceive configuration from 2D coordinates
-        IxaFunctions.IXA_MOL_SetDblBondConfig(logger, mol, nativeBond, IXA_DBLBOND_CONFIG.IXA_DBLBOND_CONFIG_EITHER);
+        IxaIdFunctions.IXA_MOL_SetDblBondConfig(logger, mol, nativeBond, IXA_DBLBOND_CONFIG.IXA_DBLBOND_CONFIG_EITHER);
         break;
       case SINGLE_1DOWN:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
         break;
       case SINGLE_1EITHER:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
         break;
       case SINGLE_1UP:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom1, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
         break;
       case SINGLE_2DOWN:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_DOWN);
         break;
       case SINGLE_2EITHER:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_EITHER);
         break;
       case SINGLE_2UP:
-        IxaFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
+        IxaIdFunctions.IXA_MOL_SetBondWedge(logger, mol, nativeBond, nativeAtom2, IXA_BOND_WEDGE.IXA_BOND_WEDGE_UP);
         break;
       case NONE:
         break;
       }  
     }
   }
-  private static void addStereos(IXA_MOL_HANDLE nativeMol, IXA_STATUS_HANDLE logger, List<InchiStereo> stereos, Map<InchiAtom, IXA_ATOMID> atomToNativeAtom) {
-    for (InchiStereo stereo : stereos) {
+  private static void addStereos(IXA_MOL_HANDLE nativeMol, IXA_STATUS_HANDLE logger, InchiInput inchiInput, long[] nativeAtoms) {
+    for (InchiStereo stereo : inchiInput.getStereos()) {
       InchiStereoType type = stereo.getType();
       if (type == InchiStereoType.None) {
         continue;
       }
       InchiAtom[] atomsInCenter = stereo.getAtoms();      
-      IXA_ATOMID vertex1 = getStereoVertex(atomToNativeAtom, atomsInCenter[0]);
-      IXA_ATOMID vertex2 = getStereoVertex(atomToNativeAtom, atomsInCenter[1]);
-      IXA_ATOMID vertex3 = getStereoVertex(atomToNativeAtom, atomsInCenter[2]);
-      IXA_ATOMID vertex4 = getStereoVertex(atomToNativeAtom, atomsInCenter[3]);
+      long vertex1 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[0]);
+      long vertex2 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[1]);
+      long vertex3 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[2]);
+      long vertex4 = getStereoVertex(inchiInput, nativeAtoms, atomsInCenter[3]);
      
-      IXA_STEREOID center;
+      long center;
       switch (type) {
       case Tetrahedral:
       {
-        IXA_ATOMID centralAtom = atomToNativeAtom.get(stereo.getCentralAtom());
-        if (centralAtom == null) {
-          throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
-        }
-        center = IxaFunctions.IXA_MOL_CreateStereoTetrahedron(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
+        long centralAtom = getCentralAtom(inchiInput, nativeAtoms, stereo);
+        center = IxaIdFunctions.IXA_MOL_CreateStereoTetrahedron(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
         break;
       }
       case Allene:
       {
-        IXA_ATOMID centralAtom = atomToNativeAtom.get(stereo.getCentralAtom());
-        if (centralAtom == null) {
-          throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
-        }
-        center = IxaFunctions.IXA_MOL_CreateStereoAntiRectangle(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
+        long centralAtom = getCentralAtom(inchiInput, nativeAtoms, stereo);
+        center = IxaIdFunctions.IXA_MOL_CreateStereoAntiRectangle(logger, nativeMol, centralAtom, vertex1, vertex2, vertex3, vertex4);
         break;
       }
       case DoubleBond:
       {
-        IXA_BONDID centralBond = IxaFunctions.IXA_MOL_GetCommonBond(logger, nativeMol, vertex2, vertex3);
-        if (centralBond == null) {
+        long centralBond = IxaIdFunctions.IXA_MOL_GetCommonBond(logger, nativeMol, vertex2, vertex3);
+        if (centralBond == IxaIdFunctions.IXA_ID_NONE) {
           throw new IllegalStateException("Could not find olefin/cumulene central bond");
         }
         //We intentionally pass dummy values for vertex2/vertex3, as the IXA API doesn't actually need these as long as vertex1 and vertex4 aren't implicit hydrogen
-        center = IxaFunctions.IXA_MOL_CreateStereoRectangle(logger, nativeMol, centralBond, vertex1, IxaFunctions.IXA_ATOMID_IMPLICIT_H, IxaFunctions.IXA_ATOMID_IMPLICIT_H, vertex4);
+        center = IxaIdFunctions.IXA_MOL_CreateStereoRectangle(logger, nativeMol, centralBond, vertex1, IxaIdFunctions.IXA_ATOMID_IMPLICIT_H, IxaIdFunctions.IXA_ATOMID_IMPLICIT_H, vertex4);
         break;
       }
       default:
         throw new IllegalStateException("Unexpected InChI stereo type:" + type);
       }
       byte parity = stereo.getParity().getCode();
-      IxaFunctions.IXA_MOL_SetStereoParity(logger, nativeMol, center, parity);
+      IxaIdFunctions.IXA_MOL_SetStereoParity(logger, nativeMol, center, parity);
     }
   }
 
-  private static IXA_ATOMID getStereoVertex(Map<InchiAtom, IXA_ATOMID> atomToNativeAtom, InchiAtom inchiAtom) {
+  private static long getCentralAtom(InchiInput inchiInput, long[] nativeAtoms, InchiStereo stereo) {
+    int centralAtomIdx = inchiInput.indexOf(stereo.getCentralAtom());
+    if (centralAtomIdx < 0) {
+      throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
+    }
+    return nativeAtoms[centralAtomIdx];
+  }
+
+  private static long getStereoVertex(InchiInput inchiInput, long[] nativeAtoms, InchiAtom inchiAtom) {
     if (InchiStereo.STEREO_IMPLICIT_H == inchiAtom) {
-      return IxaFunctions.IXA_ATOMID_IMPLICIT_H;
+      return IxaIdFunctions.IXA_ATOMID_IMPLICIT_H;
     }
-    IXA_ATOMID vertex = atomToNativeAtom.get(inchiAtom);
-    if (vertex == null) {
+    int vertexIdx = inchiInput.indexOf(inchiAtom);
+    if (vertexIdx < 0) {
       throw new IllegalStateException("Stereo configuration referenced an atom that does not exist");
     }
-    return vertex;
+    return nativeAtoms[vertexIdx];
   }
 
   private static InchiOutput buildInchi(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiOptions options) {
     IXA_INCHIBUILDER_HANDLE builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
     try {
       IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
-      
-      long timeoutMilliSecs = options.getTimeoutMilliSeconds();
-      if (timeoutMilliSecs != 0) {
-        IxaFunctions.IXA_INCHIBUILDER_SetOption_Timeout_MilliSeconds(logger, builder, timeoutMilliSecs);
-      }
-      for (InchiFlag flag : options.getFlags()) {
-        switch (flag) {
-        case AuxNone:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_AuxNone, true);
-          break;
-        case ChiralFlagOFF:
-          IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, false);
-          break;
-        case ChiralFlagON:
-          IxaFunctions.IXA_MOL_SetChiral(logger, nativeMol, true);
-          break;
-        case DoNotAddH:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_DoNotAddH, true);
-          break;
-        case FixedH:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FixedH, true);
-          break;
-        case KET:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_KET, true);
-          break;
-        case LargeMolecules:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LargeMolecules, true);
-          break;
-        case NEWPSOFF:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NewPsOff, true);
-          break;
-        case OneFiveT:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_15T, true);
-          break;
-        case RecMet:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_RecMet, true);
-          break;
-        case SLUUD:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SLUUD, true);
-          break;
-        case SNon:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SNon);
-          break;
-        case SRac:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRac);
-          break;
-        case SRel:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SRel);
-          break;
-        case SUCF:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SUCF);
-          break;
-        case SAbs:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption_Stereo(logger, builder, IXA_INCHIBUILDER_STEREOOPTION.IXA_INCHIBUILDER_STEREOOPTION_SAbs);
-          break;
-        case SUU:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SUU, true);
-          break;
-        case SaveOpt:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SaveOpt, true);
-          break;
-        case WarnOnEmptyStructure:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_WarnOnEmptyStructure, true);
-          break;
-        case NoWarnings:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoWarnings, true);
-          break;
-        case LooseTSACheck:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_LooseTSACheck, true);
-          break;
-        case Polymers:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers, true);
-          break;
-        case Polymers105:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_Polymers105, true);
-          break;
-        case FoldCRU:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_FoldCRU, true);
-          break;
-        case NoFrameShift:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoFrameShift, true);
-          break;
-        case NoEdits:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NoEdits, true);
-          break;
-        case NPZz:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_NPZZ, true);
-          break;
-        case SAtZz:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_SATZZ, true);
-          break;
-        case OutErrInChI:
-          IxaFunctions.IXA_INCHIBUILDER_SetOption(logger, builder, IXA_INCHIBUILDER_OPTION.IXA_INCHIBUILDER_OPTION_OutErrInChI, true);
-          break;
-        default:
-          throw new IllegalStateException("Unexpected InChI option flag: " + flag);
-        }
-      }
+      setBuilderOptions(logger, builder, options);
+      setChiralFlag(logger, nativeMol, options);
+      return getBuilderOutput(logger, builder, options);
+    }
+    finally {
+      IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder); 
+    }
+  }
 
-      String inchi = IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
-      String auxInfo = IxaFunctions.IXA_INCHIBUILDER_GetAuxInfo(logger, builder);
-      String log = IxaFunctions.IXA_INCHIBUILDER_GetLog(logger, builder);
-      
-      InchiStatus status = InchiStatus.SUCCESS;
-      if (IxaFunctions.IXA_STATUS_HasError(logger)) {
-        status = InchiStatus.ERROR;
-      }
-      else if (IxaFunctions.IXA_STATUS_HasWarning(logger)) {
-        status = InchiStatus.WARNING;
-      }
-      
-      StringBuilder sb = new StringBuilder();
-      int messageCount = IxaFunctions.IXA_STATUS_GetCount(logger);
-      for (int i = 0; i < messageCount; i++) {
-        if (i > 0) {
-          sb.append("; ");
-        }
-        sb.append(IxaFunctions.IXA_STATUS_GetMessage(logger, i));
-      }
-      return new InchiOutput(inchi, auxInfo, sb.toString(), log, status);
+  private static InchiStatus buildInchi(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiOptions options, ByteBuffer sink) {
+    IXA_INCHIBUILDER_HANDLE builder = IxaFunctions.IXA_INCHIBUILDER_Create(logger);
+    try {
+      IxaFunctions.IXA_INCHIBUILDER_SetMolecule(logger, builder, nativeMol);
+      setBuilderOptions(logger, builder, options);
+      setChiralFlag(logger, nativeMol, options);
+      Pointer inchi = IxaCStringFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+      InchiStatus status = getBuilderStatus(logger);
+      writeCString(inchi, sink);
+      return status;
     }
     finally {
       IxaFunctions.IXA_INCHIBUILDER_Destroy(logger, builder); 
     }
   }
 
+  static void setBuilderOptions(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, InchiOptions options) {
+    options.getIxaPlan().applyTo(logger, builder);
+  }
+
+  static void setChiralFlag(IXA_STATUS_HANDLE logger, IXA_MOL_HANDLE nativeMol, InchiOptions options) {
+    options.getIxaPlan().applyChiralFlag(logger, nativeMol);
+  }
+
+  static InchiOutput getBuilderOutput(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, InchiOptions options) {
+    String inchi = IxaFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+    String auxInfo = options.isOutputRequested(InchiOutputField.AUXINFO) ? IxaFunctions.IXA_INCHIBUILDER_GetAuxInfo(logger, builder) : null;
+    String log = options.isOutputRequested(InchiOutputField.LOG) ? IxaFunctions.IXA_INCHIBUILDER_GetLog(logger, builder) : null;
+    
+    InchiStatus status = getBuilderStatus(logger);
+    String[] messages = null;
+    if (options.isOutputRequested(InchiOutputField.MESSAGE)) {
+      messages = new String[IxaFunctions.IXA_STATUS_GetCount(logger)];
+      for (int i = 0; i < messages.length; i++) {
+        messages[i] = IxaFunctions.IXA_STATUS_GetMessage(logger, i);
+      }
+    }
+    return new InchiOutput(inchi, auxInfo, messages, log, status);
+  }
+
+  /**
+   * As {@link #getBuilderOutput(IXA_STATUS_HANDLE, IXA_INCHIBUILDER_HANDLE, InchiOptions)}, with the InChIKey generated by the given InChIKey builder
+   * from the InChI held by the InChI builder
+   * @param logger
+   * @param builder
+   * @param keyBuilder
+   * @param options
+   * @return
+   */
+  static InchiWithKeyOutput getBuilderOutputWithKey(IXA_STATUS_HANDLE logger, IXA_INCHIBUILDER_HANDLE builder, IXA_INCHIKEYBUILDER_HANDLE keyBuilder, InchiOptions options) {
+    InchiOutput output = getBuilderOutput(logger, builder, options);
+    if (output.getInchi() == null) {
+      return new InchiWithKeyOutput(output, new InchiKeyOutput("", InchiKeyStatus.EMPTY_INPUT, "", ""));
+    }
+    //The messages of the InChI builder have been read, so don't confuse them with those of the InChIKey builder
+    IxaFunctions.IXA_STATUS_Clear(logger);
+    //The InChI has already been generated, so this just returns the builder's copy of it
+    Pointer inchi = IxaCStringFunctions.IXA_INCHIBUILDER_GetInChI(logger, builder);
+    IxaCStringFunctions.IXA_INCHIKEYBUILDER_SetInChI(logger, keyBuilder, inchi);
+    String inchiKey = IxaFunctions.IXA_INCHIKEYBUILDER_GetInChIKey(logger, keyBuilder);
+    if (inchiKey == null || IxaFunctions.IXA_STATUS_HasError(logger)) {
+      //the IXA API doesn't report why the InChIKey couldn't be generated
+      return withInchiKey(output);
+    }
+    return new InchiWithKeyOutput(output, new InchiKeyOutput(inchiKey, InchiKeyStatus.OK, "", ""));
+  }
+
+  /**
+   * Pairs the output with the InChIKey of its InChI, generated by the InChI library without the hash extensions
+   * @param output
+   * @return
+   */
+  static InchiWithKeyOutput withInchiKey(InchiOutput output) {
+    String inchi = output.getInchi();
+    if (inchi == null) {
+      return new InchiWithKeyOutput(output, new InchiKeyOutput("", InchiKeyStatus.EMPTY_INPUT, "", ""));
+    }
+    ByteBuffer sink = ByteBuffer.allocate(INCHIKEY_LENGTH);
+    InchiKeyStatus status = backend.inchiToInchiKey(inchi, sink);
+    String inchiKey = new String(sink.array(), 0, sink.position(), StandardCharsets.US_ASCII);
+    return new InchiWithKeyOutput(output, new InchiKeyOutput(inchiKey, status, "", ""));
+  }
+
+  private static InchiStatus getBuilderStatus(IXA_STATUS_HANDLE logger) {
+    if (IxaFunctions.IXA_STATUS_HasError(logger)) {
+      return InchiStatus.ERROR;
+    }
+    if (IxaFunctions.IXA_STATUS_HasWarning(logger)) {
+      return InchiStatus.WARNING;
+    }
+    return InchiStatus.SUCCESS;
+  }
+
+  /**
+   * Copies a NUL-terminated ASCII string from native memory to the sink
+   * @param cstr may be null, in which case nothing is written
+   * @param sink
+   * @throws BufferOverflowException if the string does not fit in the remaining space of the sink, in which case the sink is unchanged
+   */
+  static void writeCString(Pointer cstr, ByteBuffer sink) {
+    if (cstr == null) {
+      return;
+    }
+    long len = cstr.indexOf(0, (byte) 0);
+    if (len > sink.remaining()) {
+      throw new BufferOverflowException();
+    }
+    sink.put(cstr.getByteBuffer(0, len));
+  }
+
   public static InchiOutput molToInchi(String molText) {
     return molToInchi(molText, InchiOptions.DEFAULT_OPTIONS);
   }
   
   public static InchiOutput molToInchi(String molText, InchiOptions options) {
     checkLibrary();
-    tagINCHI_Output nativeOutput = new tagINCHI_Output();
-    try {
-      int ret = InchiLibrary.MakeINCHIFromMolfileText(molText, options.toString(), nativeOutput);
-      InchiStatus status;
-      switch (ret) {
-      case tagRetValMOL2INCHI.mol2inchi_Ret_OKAY:
-        status = InchiStatus.SUCCESS;
-        break;
-      case tagRetValMOL2INCHI.mol2inchi_Ret_WARNING:
-        status = InchiStatus.WARNING;
-        break;
-      case tagRetValMOL2INCHI.mol2inchi_Ret_EOF:
-      case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR:
-      case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR_get:
-      case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR_comp:
-        status = InchiStatus.ERROR;
-        break;
-      default:
-        status = InchiStatus.ERROR;
-        break;
-      }
-      // The way nativeOutput.szLog is truncated can be a bit odd, but this seems pseudo-intentional, see copy_corrected_log_tail in inchi_dll.c 
-      return new InchiOutput(nativeOutput.szInChI, nativeOutput.szAuxInfo, nativeOutput.szMessage, nativeOutput.szLog, status);
-    }
-    finally {
-      InchiLibrary.FreeINCHI(nativeOutput);
+    return backend.molToInchi(molText, options);
+  }
+
+  /**
+   * As {@link #molToInchi(String, InchiOptions)}, but with the InChI written to the sink as described for {@link #toInchi(InchiInput, InchiOptions, ByteBuffer)}
+   * @param molText
+   * @param options
+   * @param sink
+   * @return status of the conversion
+   * @throws BufferOverflowException if the InChI does not fit in the remaining space of the sink, in which case the sink is unchanged
+   */
+  public static InchiStatus molToInchi(String molText, InchiOptions options, ByteBuffer sink) {
+    checkLibrary();
+    return backend.molToInchi(molText, options, sink);
+  }
+
+  /**
+   * As {@link #molToInchi(String, InchiOptions)}, but with the molfile as ASCII, or UTF-8, bytes.
+   * The bytes are copied directly into native memory, avoiding creating a String and then encoding it
+   * @param molText
+   * @param offset the index of the first byte of the molfile
+   * @param length the number of bytes in the molfile
+   * @param options
+   * @return
+   */
+  public static InchiOutput molToInchi(byte[] molText, int offset, int length, InchiOptions options) {
+    if (offset < 0 || length < 0 || offset > molText.length - length) {
+      throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", array length: " + molText.length);
     }
+    return molToInchi(ByteBuffer.wrap(molText, offset, length), options);
+  }
+
+  /**
+   * As {@link #molToInchi(String, InchiOptions)}, but with the molfile as the ASCII, or UTF-8, bytes between the position and limit of the buffer.
+   * The buffer may be direct, or a slice of a memory-mapped file, and its position is not changed.
+   * The bytes are copied directly into native memory, avoiding creating a String and then encoding it
+   * @param molText
+   * @param options
+   * @return
+   */
+  public static InchiOutput molToInchi(ByteBuffer molText, InchiOptions options) {
+    checkLibrary();
+    return backend.molToInchi(molText, options);
+  }
+
+  public static InchiWithKeyOutput molToInchiWithKey(String molText) {
+    return molToInchiWithKey(molText, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link #molToInchi(String, InchiOptions)}, but also generating the InChIKey of the InChI, without passing the InChI back to the InChI library.
+   * The hash extensions of the InChIKey are not calculated
+   * @param molText
+   * @param options
+   * @return
+   */
+  public static InchiWithKeyOutput molToInchiWithKey(String molText, InchiOptions options) {
+    checkLibrary();
+    return withInchiKey(backend.molToInchi(molText, options));
+  }
+
+  /**
+   * Converts each of the molfiles as per {@link #molToInchi(String, InchiOptions)}, in parallel as described for {@link #toInchiBatch(List, InchiOptions, Executor)}
+   * @param molTexts
+   * @param options
+   * @param executor
+   * @return a result per molfile, in the same order as the molfiles
+   */
+  public static List<InchiBatchResult<InchiOutput>> molToInchiBatch(List<String> molTexts, InchiOptions options, Executor executor) {
+    checkLibrary();
+    return InchiBatch.run(molTexts, executor, false, (session, molText) -> backend.molToInchi(molText, options));
   }
 
   /**
@@ -564,16 +707,34 @@ public class JnaInchi {
 
   public static InchiKeyOutput inchiToInchiKey(String inchi) {
     checkLibrary();
-    byte[] inchiKeyBytes = new byte[28];
-    byte[] szXtra1Bytes = new byte[65];
-    byte[] szXtra2Bytes = new byte[65];
-    InchiKeyStatus ret = InchiKeyStatus.of(InchiLibrary.GetINCHIKeyFromINCHI(inchi, 1, 1, inchiKeyBytes, szXtra1Bytes, szXtra2Bytes));
-    String inchiKeyStr = new String(inchiKeyBytes, StandardCharsets.UTF_8).trim();
-    String szXtra1 = new String(szXtra1Bytes, StandardCharsets.UTF_8).trim();
-    String szXtra2 = new String(szXtra2Bytes, StandardCharsets.UTF_8).trim();
-    return new InchiKeyOutput(inchiKeyStr, ret, szXtra1, szXtra2);
+    return backend.inchiToInchiKey(inchi);
+  }
+
+  /**
+   * As {@link #inchiToInchiKey(String)}, but with the 27 character InChIKey written to the sink as ASCII,
+   * rather than being returned as a String. The hash extensions are not calculated.
+   * Nothing is written if the InChIKey could not be generated
+   * @param inchi
+   * @param sink
+   * @return status of the InChIKey generation
+   * @throws BufferOverflowException if the InChIKey does not fit in the remaining space of the sink, in which case the sink is unchanged
+   */
+  public static InchiKeyStatus inchiToInchiKey(String inchi, ByteBuffer sink) {
+    checkLibrary();
+    return backend.inchiToInchiKey(inchi, sink);
   }
   
+  /**
+   * Generates the InChIKey of each of the InChIs as per {@link #inchiToInchiKey(String)}, in parallel as described for {@link #toInchiBatch(List, InchiOptions, Executor)}
+   * @param inchis
+   * @param executor
+   * @return a result per InChI, in the same order as the InChIs
+   */
+  public static List<InchiBatchResult<InchiKeyOutput>> inchiToInchiKeyBatch(List<String> inchis, Executor executor) {
+    checkLibrary();
+    return InchiBatch.run(inchis, executor, false, (session, inchi) -> backend.inchiToInchiKey(inchi));
+  }
+
   /**
    * Check if the string represents a valid InChI/StdInChI
    * If strict is true, try to perform InChI2InChI conversion; returns success if a resulting InChI string exactly matches source.
@@ -584,7 +745,7 @@ public class JnaInchi {
    */
   public static InchiCheckStatus checkInchi(String inchi, boolean strict) {
     checkLibrary();
-    return InchiCheckStatus.of(InchiLibrary.CheckINCHI(inchi, strict));
+    return backend.checkInchi(inchi, strict);
   }
   
   /**
@@ -594,7 +755,7 @@ public class JnaInchi {
    */
   public static InchiKeyCheckStatus checkInchiKey(String inchiKey) {
     checkLibrary();
-    return InchiKeyCheckStatus.of(InchiLibrary.CheckINCHIKey(inchiKey));
+    return backend.checkInchiKey(inchiKey);
   }
   
   /**
@@ -616,15 +777,10 @@ public class JnaInchi {
       
       tagINCHI_Input populatedInput = input.pInp;
       if (populatedInput.num_atoms > 0) {
-        tagInchiAtom[] nativeAtoms = new tagInchiAtom[populatedInput.num_atoms];
-        populatedInput.atom.toArray(nativeAtoms);
-        nativeToJavaAtoms(inchiInput, nativeAtoms);
-        nativeToJavaBonds(inchiInput, nativeAtoms);
+        NativeStructDecoder.readAtoms(inchiInput, populatedInput.atom.getPointer(), populatedInput.num_atoms);
       }
       if (populatedInput.num_stereo0D > 0) {
-        tagINCHIStereo0D[] nativeStereos = new tagINCHIStereo0D[populatedInput.num_stereo0D];
-        populatedInput.stereo0D.toArray(nativeStereos);
-        nativeToJavaStereos(inchiInput, nativeStereos);
+        NativeStructDecoder.readStereos(inchiInput, populatedInput.stereo0D.getPointer(), populatedInput.num_stereo0D);
       }
       String message = toString(input.szErrMsg);
       Boolean chiralFlag = null;
@@ -655,15 +811,10 @@ public class JnaInchi {
       InchiInput inchiInput = new InchiInput();
       
       if (output.num_atoms > 0) {
-        tagInchiAtom[] nativeAtoms = new tagInchiAtom[output.num_atoms];
-        output.atom.toArray(nativeAtoms);
-        nativeToJavaAtoms(inchiInput, nativeAtoms);
-        nativeToJavaBonds(inchiInput, nativeAtoms);
+        NativeStructDecoder.readAtoms(inchiInput, output.atom.getPointer(), output.num_atoms);
       }
       if (output.num_stereo0D > 0) {
-        tagINCHIStereo0D[] nativeStereos = new tagINCHIStereo0D[output.num_stereo0D];
-        output.stereo0D.toArray(nativeStereos);
-        nativeToJavaStereos(inchiInput, nativeStereos);
+        NativeStructDecoder.readStereos(inchiInput, output.stereo0D.getPointer(), output.num_stereo0D);
       }
       String message = output.szMessage;
       String log = output.szLog;
@@ -696,74 +847,7 @@ public class JnaInchi {
     }
   }
 
-  private static void nativeToJavaAtoms(InchiInput inchiInput, tagInchiAtom[] nativeAtoms) {
-    for (int i = 0, numAtoms = nativeAtoms.length; i < numAtoms; i++) {
-      tagInchiAtom nativeAtom = nativeAtoms[i];
-      String elSymbol = toString(nativeAtom.elname);
-      InchiAtom atom = new InchiAtom(elSymbol);
-      atom.setX(nativeAtom.x);
-      atom.setY(nativeAtom.y);
-      atom.setZ(nativeAtom.z);
-      atom.setImplicitHydrogen(nativeAtom.num_iso_H[0]);
-      atom.setImplicitProtium(nativeAtom.num_iso_H[1]);
-      atom.setImplicitDeuterium(nativeAtom.num_iso_H[2]);
-      atom.setImplicitTritium(nativeAtom.num_iso_H[3]);
-      int isotopicMass = nativeAtom.isotopic_mass;
-      if (isotopicMass >= ISOTOPIC_SHIFT_RANGE_MIN && isotopicMass <= ISOTOPIC_SHIFT_RANGE_MAX) {
-        //isotopic mass contains a delta from a hardcoded base mass
-        int baseMass = inchiBaseAtomicMasses.getOrDefault(elSymbol, 0);
-        int delta = isotopicMass - InchiLibrary.ISOTOPIC_SHIFT_FLAG;
-        isotopicMass = baseMass + delta;
-      }
-      atom.setIsotopicMass(isotopicMass);
-      atom.setRadical(InchiRadical.of(nativeAtom.radical));
-      atom.setCharge(nativeAtom.charge);
-      inchiInput.addAtom(atom);
-    }
-  }
-
-  private static void nativeToJavaBonds(InchiInput inchiInput, tagInchiAtom[] nativeAtoms) {
-    int numAtoms = nativeAtoms.length;
-    boolean[] seenAtoms = new boolean[numAtoms];
-    for (int i = 0; i < numAtoms; i++) {
-      tagInchiAtom nativeAtom = nativeAtoms[i];
-      int numBonds = nativeAtom.num_bonds;
-      if (numBonds > 0) {
-        InchiAtom atom = inchiInput.getAtom(i);
-        for (int j = 0; j < numBonds; j++) {
-          int neighborIdx = nativeAtom.neighbor[j];
-          if (seenAtoms[neighborIdx]) {
-            //Only add each bond once
-            continue;
-          }
-          InchiAtom neighbor = inchiInput.getAtom(neighborIdx);
-          InchiBondType bondType = InchiBondType.of(nativeAtom.bond_type[j]);
-          InchiBondStereo bondStereo = InchiBondStereo.of(nativeAtom.bond_stereo[j]);
-          inchiInput.addBond(new InchiBond(atom, neighbor, bondType, bondStereo));
-        }
-      }
-      seenAtoms[i] = true;
-    }
-  }
-
-  private static void nativeToJavaStereos(InchiInput inchiInput, tagINCHIStereo0D[] nativeStereos) {
-    for (tagINCHIStereo0D nativeStereo : nativeStereos) {
-      InchiAtom[] atoms = new InchiAtom[4];
-      //idxToAtom will give null for -1 input (implicit hydrogen)
-      for (int i = 0; i < 4; i++) {
-        int idx = nativeStereo.neighbor[i];
-        atoms[i] = idx >=0 ?  inchiInput.getAtom(idx) : null;
-      }
-
-      InchiAtom centralAtom = nativeStereo.central_atom >=0 ? inchiInput.getAtom(nativeStereo.central_atom) : null;
-      InchiStereoType stereoType = InchiStereoType.of(nativeStereo.type);
-      InchiStereoParity parity = InchiStereoParity.of(nativeStereo.parity);
-      
-      inchiInput.addStereo(new InchiStereo(atoms, centralAtom, stereoType, parity));
-    }
-  }
-
-  private static InchiStatus getInchiStatus(int ret) {
+  static InchiStatus getInchiStatus(int ret) {
     switch (ret) {
     case tagRetValGetINCHI.inchi_Ret_OKAY:/* Success; no errors or warnings*/
       return InchiStatus.SUCCESS;
@@ -780,6 +864,22 @@ public class JnaInchi {
     }
   }
 
+  static InchiStatus getMolToInchiStatus(int ret) {
+    switch (ret) {
+    case tagRetValMOL2INCHI.mol2inchi_Ret_OKAY:
+      return InchiStatus.SUCCESS;
+    case tagRetValMOL2INCHI.mol2inchi_Ret_WARNING:
+      return InchiStatus.WARNING;
+    case tagRetValMOL2INCHI.mol2inchi_Ret_EOF:
+    case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR:
+    case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR_get:
+    case tagRetValMOL2INCHI.mol2inchi_Ret_ERROR_comp:
+      return InchiStatus.ERROR;
+    default:
+      return InchiStatus.ERROR;
+    }
+  }
+
   private static String toString(byte[] cstr) {
     StringBuilder sb = new StringBuilder(cstr.length);
     for (int i = 0; i < cstr.length; i++) {
@@ -793,6 +893,16 @@ public class JnaInchi {
   }
   
   
+  /**
+   * Returns the name of the binding used for the classic InChI API calls e.g. "JNA" or "FFM".
+   * Setting the jnainchi.backend system property to "jna" forces the use of JNA
+   * @return Binding name
+   */
+  public static String getBackend() {
+    checkLibrary();
+    return backend.getName();
+  }
+
   /**
    * Returns the version of the wrapped InChI C library
    * @return Version number String
@@ -823,10 +933,13 @@ public class JnaInchi {
     }
   }
 
-  private static void checkLibrary() {
+  static void checkLibrary() {
     if (libraryLoadingError != null) {
       throw new RuntimeException("Error loading InChI native code. Please check that the binaries for your platform (" + platform + ") have been included on the classpath.", libraryLoadingError);
     }
+    if (backendLoadingError != null) {
+      throw new IllegalStateException(backendLoadingError.getMessage(), backendLoadingError);
+    }
   }
 
 }
@@ -0,0 +1,182 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnainchi.inchi.tagINCHI_Output;
+
+/**
+ * {@link InchiBackend} that calls the InChI library through JNA
+ */
+class JnaInchiBackend implements InchiBackend {
+
+  static final JnaInchiBackend INSTANCE = new JnaInchiBackend();
+
+  private JnaInchiBackend() {
+  }
+
+  @Override
+  public String getName() {
+    return "JNA";
+  }
+
+  @Override
+  public InchiOutput toInchi(PackedInchiInput input) {
+    Memory packedInput = input.toMemory();
+    tagINCHI_Output nativeOutput = newNativeOutput();
+    try {
+      InchiStatus status = JnaInchi.getInchiStatus(InchiLibrary.GetINCHIEx(packedInput, nativeOutput));
+      return toInchiOutput(nativeOutput, input.getOptions(), status);
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  @Override
+  public InchiStatus toInchi(PackedInchiInput input, ByteBuffer sink) {
+    Memory packedInput = input.toMemory();
+    tagINCHI_Output nativeOutput = newNativeOutput();
+    try {
+      InchiStatus status = JnaInchi.getInchiStatus(InchiLibrary.GetINCHIEx(packedInput, nativeOutput));
+      writeInchi(nativeOutput, sink);
+      return status;
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  @Override
+  public InchiOutput molToInchi(String molText, InchiOptions options) {
+    tagINCHI_Output nativeOutput = newNativeOutput();
+    try {
+      InchiStatus status = JnaInchi.getMolToInchiStatus(InchiLibrary.MakeINCHIFromMolfileText(molText, options.toClassicOptionsString(), nativeOutput));
+      // The way nativeOutput.szLog is truncated can be a bit odd, but this seems pseudo-intentional, see copy_corrected_log_tail in inchi_dll.c 
+      return toInchiOutput(nativeOutput, options, status);
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  @Override
+  public InchiStatus molToInchi(String molText, InchiOptions options, ByteBuffer sink) {
+    tagINCHI_Output nativeOutput = newNativeOutput();
+    try {
+      InchiStatus status = JnaInchi.getMolToInchiStatus(InchiLibrary.MakeINCHIFromMolfileText(molText, options.toClassicOptionsString(), nativeOutput));
+      writeInchi(nativeOutput, sink);
+      return status;
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  @Override
+  public InchiOutput molToInchi(ByteBuffer molText, InchiOptions options) {
+    Memory nativeMolText = toCString(molText);
+    tagINCHI_Output nativeOutput = newNativeOutput();
+    try {
+      InchiStatus status = JnaInchi.getMolToInchiStatus(InchiLibrary.MakeINCHIFromMolfileText(nativeMolText, options.toClassicOptionsString(), nativeOutput));
+      return toInchiOutput(nativeOutput, options, status);
+    }
+    finally {
+      InchiLibrary.FreeINCHI(nativeOutput);
+    }
+  }
+
+  /**
+   * Copies the remaining bytes of the buffer into native memory, followed by a NUL
+   * @param bytes
+   * @return
+   */
+  private static Memory toCString(ByteBuffer bytes) {
+    int len = bytes.remaining();
+    Memory memory = new Memory(len + 1L);
+    memory.getByteBuffer(0, len).put(bytes.duplicate());
+    memory.setByte(len, (byte) 0);
+    return memory;
+  }
+
+  /**
+   * The output structure is not automatically read after the call, so that only the requested strings are copied into Java.
+   * As it is also not automatically written, the native pointers are left intact for FreeINCHI
+   * @return
+   */
+  private static tagINCHI_Output newNativeOutput() {
+    tagINCHI_Output nativeOutput = new tagINCHI_Output();
+    nativeOutput.setAutoSynch(false);
+    return nativeOutput;
+  }
+
+  static InchiOutput toInchiOutput(tagINCHI_Output nativeOutput, InchiOptions options, InchiStatus status) {
+    String inchi = (String) nativeOutput.readField("szInChI");
+    String auxInfo = options.isOutputRequested(InchiOutputField.AUXINFO) ? (String) nativeOutput.readField("szAuxInfo") : null;
+    String message = options.isOutputRequested(InchiOutputField.MESSAGE) ? (String) nativeOutput.readField("szMessage") : null;
+    String log = options.isOutputRequested(InchiOutputField.LOG) ? (String) nativeOutput.readField("szLog") : null;
+    return new InchiOutput(inchi, auxInfo, message, log, status);
+  }
+
+  private static void writeInchi(tagINCHI_Output nativeOutput, ByteBuffer sink) {
+    Pointer inchi = nativeOutput.getPointer().getPointer(tagINCHI_Output.SZINCHI_OFFSET);
+    JnaInchi.writeCString(inchi, sink);
+  }
+
+  @Override
+  public InchiKeyOutput inchiToInchiKey(String inchi) {
+    byte[] inchiKeyBytes = new byte[28];
+    byte[] szXtra1Bytes = new byte[65];
+    byte[] szXtra2Bytes = new byte[65];
+    InchiKeyStatus ret = InchiKeyStatus.of(InchiLibrary.GetINCHIKeyFromINCHI(inchi, 1, 1, inchiKeyBytes, szXtra1Bytes, szXtra2Bytes));
+    String inchiKeyStr = new String(inchiKeyBytes, StandardCharsets.UTF_8).trim();
+    String szXtra1 = new String(szXtra1Bytes, StandardCharsets.UTF_8).trim();
+    String szXtra2 = new String(szXtra2Bytes, StandardCharsets.UTF_8).trim();
+    return new InchiKeyOutput(inchiKeyStr, ret, szXtra1, szXtra2);
+  }
+
+  @Override
+  public InchiKeyStatus inchiToInchiKey(String inchi, ByteBuffer sink) {
+    byte[] inchiKeyBytes = new byte[28];
+    //The hash extensions are not requested, so no buffers are needed for them
+    InchiKeyStatus ret = InchiKeyStatus.of(InchiLibrary.GetINCHIKeyFromINCHI(inchi, 0, 0, inchiKeyBytes, null, null));
+    int len = 0;
+    while (len < inchiKeyBytes.length && inchiKeyBytes[len] != 0) {
+      len++;
+    }
+    sink.put(inchiKeyBytes, 0, len);
+    return ret;
+  }
+
+  @Override
+  public InchiCheckStatus checkInchi(String inchi, boolean strict) {
+    return InchiCheckStatus.of(InchiLibrary.CheckINCHI(inchi, strict));
+  }
+
+  @Override
+  public InchiKeyCheckStatus checkInchiKey(String inchiKey) {
+    return InchiKeyCheckStatus.of(InchiLibrary.CheckINCHIKey(inchiKey));
+  }
+
+}
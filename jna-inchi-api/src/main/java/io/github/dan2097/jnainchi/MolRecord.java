@@ -0,0 +1,244 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single record of an SD file, as read by {@link SdfReader}.
+ * The record is held as the raw bytes of the file, the molfile and data items are only decoded when requested.
+ * The molfile is decoded as ISO-8859-1, which maps each byte to one char so the string can be stored compactly,
+ * and the data items as UTF-8
+ */
+public final class MolRecord {
+
+  private static final byte[] M_END = {'M', ' ', ' ', 'E', 'N', 'D'};
+
+  private final ByteBuffer bytes;
+  private final long index;
+  private final long offset;
+  private int molfileEnd = -1;
+  private Map<String, String> properties;
+
+  /**
+   * @param bytes the record, from position 0 to the limit, excluding the $$$$ line
+   * @param index
+   * @param offset
+   */
+  MolRecord(ByteBuffer bytes, long index, long offset) {
+    this.bytes = bytes;
+    this.index = index;
+    this.offset = offset;
+  }
+
+  /**
+   * @return the zero-based position of this record in the SD file, or -1 if not known as the record was read from part of the file by {@link SdfReader#parallelStream(java.nio.file.Path)}
+   */
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the position in the SD file of the first byte of this record
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return a read-only view of the record's bytes, excluding the $$$$ line
+   */
+  public ByteBuffer getBytes() {
+    return bytes.asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the first line of the molfile
+   */
+  public String getTitle() {
+    return decode(0, trimNewline(0, lineEnd(0)), StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * The molfile part of the record, up to and including the "M  END" line, or the whole record if there is no such line
+   * @return
+   */
+  public String getMolfile() {
+    return decode(0, getMolfileEnd(), StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * @return a read-only view of the molfile part of the record, as described for {@link #getMolfile()}
+   */
+  public ByteBuffer getMolfileBytes() {
+    ByteBuffer view = bytes.asReadOnlyBuffer();
+    view.limit(getMolfileEnd());
+    return view;
+  }
+
+  /**
+   * As {@link JnaInchi#molToInchi(ByteBuffer, InchiOptions)} on the molfile part of the record, so the molfile is never decoded into a String
+   * @param options
+   * @return
+   */
+  public InchiOutput toInchi(InchiOptions options) {
+    return JnaInchi.molToInchi(getMolfileBytes(), options);
+  }
+
+  /**
+   * @param name
+   * @return the value of the data item with the given name, or null if the record has no such data item
+   */
+  public String getProperty(String name) {
+    return getProperties().get(name);
+  }
+
+  /**
+   * The data items that follow the molfile, parsed the first time that this method is called.
+   * Multi-line values are joined with a newline. If a name is repeated the first value is used
+   * @return data item names to values, in the order they appear in the record
+   */
+  public Map<String, String> getProperties() {
+    Map<String, String> properties = this.properties;
+    if (properties == null) {
+      properties = Collections.unmodifiableMap(parseProperties());
+      this.properties = properties;
+    }
+    return properties;
+  }
+
+  private int getMolfileEnd() {
+    int molfileEnd = this.molfileEnd;
+    if (molfileEnd < 0) {
+      molfileEnd = findMolfileEnd();
+      this.molfileEnd = molfileEnd;
+    }
+    return molfileEnd;
+  }
+
+  private int findMolfileEnd() {
+    int limit = bytes.limit();
+    int i = 0;
+    while (i < limit) {
+      int end = lineEnd(i);
+      if (startsWith(i, end, M_END)) {
+        return end;
+      }
+      i = end;
+    }
+    return limit;
+  }
+
+  private Map<String, String> parseProperties() {
+    Map<String, String> properties = new LinkedHashMap<>();
+    int limit = bytes.limit();
+    int i = getMolfileEnd();
+    while (i < limit) {
+      int end = lineEnd(i);
+      if (bytes.get(i) != '>') {
+        i = end;
+        continue;
+      }
+      String name = null;
+      int nameStart = indexOf(i, end, (byte) '<');
+      if (nameStart >= 0) {
+        int nameEnd = indexOf(nameStart + 1, end, (byte) '>');
+        if (nameEnd >= 0) {
+          name = decode(nameStart + 1, nameEnd, StandardCharsets.UTF_8);
+        }
+      }
+      //the value runs until a blank line
+      int valueStart = end;
+      int valueEnd = valueStart;
+      i = valueStart;
+      while (i < limit) {
+        end = lineEnd(i);
+        int textEnd = trimNewline(i, end);
+        if (textEnd == i) {
+          i = end;
+          break;
+        }
+        valueEnd = textEnd;
+        i = end;
+      }
+      if (name != null && !properties.containsKey(name)) {
+        properties.put(name, decode(valueStart, valueEnd, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * @param start
+   * @return the index after the newline that ends the line starting at start, or the limit
+   */
+  private int lineEnd(int start) {
+    int nl = indexOf(start, bytes.limit(), (byte) '\n');
+    return nl >= 0 ? nl + 1 : bytes.limit();
+  }
+
+  private int trimNewline(int start, int end) {
+    while (end > start && (bytes.get(end - 1) == '\n' || bytes.get(end - 1) == '\r')) {
+      end--;
+    }
+    return end;
+  }
+
+  private int indexOf(int start, int end, byte b) {
+    for (int i = start; i < end; i++) {
+      if (bytes.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean startsWith(int start, int end, byte[] prefix) {
+    if (end - start < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes.get(start + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(int start, int end, Charset charset) {
+    if (bytes.hasArray()) {
+      return new String(bytes.array(), bytes.arrayOffset() + start, end - start, charset);
+    }
+    byte[] copy = new byte[end - start];
+    ByteBuffer view = bytes.duplicate();
+    view.position(start);
+    view.get(copy);
+    return new String(copy, charset);
+  }
+
+  @Override
+  public String toString() {
+    return "MolRecord[index=" + index + ", offset=" + offset + ", title=" + getTitle() + "]";
+  }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnainchi.inchi.tagINCHIStereo0D;
+import io.github.dan2097.jnainchi.inchi.tagInchiAtom;
+
+/**
+ * Converts the inchi_Atom and inchi_Stereo0D arrays returned by the InChI library into an {@link InchiInput}.
+ * The arrays are read in place using the field offsets of the JNA structures, rather than with {@link com.sun.jna.Structure#toArray(com.sun.jna.Structure[])},
+ * so only the populated entries of each atom's fixed size neighbor/bond_type/bond_stereo arrays are read.
+ * This is the inverse of the atom/stereo layout written by {@link PackedInchiInput}
+ */
+class NativeStructDecoder {
+
+  private static final int ISOTOPIC_SHIFT_RANGE_MIN = InchiLibrary.ISOTOPIC_SHIFT_FLAG - InchiLibrary.ISOTOPIC_SHIFT_MAX;
+  private static final int ISOTOPIC_SHIFT_RANGE_MAX = InchiLibrary.ISOTOPIC_SHIFT_FLAG + InchiLibrary.ISOTOPIC_SHIFT_MAX;
+
+  private NativeStructDecoder() {}
+
+  /**
+   * Adds the atoms, and the bonds between them, to the given empty input
+   * @param inchiInput
+   * @param atoms pointer to the first inchi_Atom
+   * @param numAtoms
+   */
+  static void readAtoms(InchiInput inchiInput, Pointer atoms, int numAtoms) {
+    ByteBuffer buffer = atoms.getByteBuffer(0, (long) numAtoms * tagInchiAtom.SIZE).order(ByteOrder.nativeOrder());
+    for (int i = 0; i < numAtoms; i++) {
+      inchiInput.addAtom(readAtom(buffer, i * tagInchiAtom.SIZE));
+    }
+    readBonds(inchiInput, buffer, numAtoms);
+  }
+
+  private static InchiAtom readAtom(ByteBuffer buffer, int offset) {
+    String elSymbol = readElName(buffer, offset + tagInchiAtom.ELNAME_OFFSET);
+    InchiAtom atom = new InchiAtom(elSymbol);
+    atom.setX(buffer.getDouble(offset + tagInchiAtom.X_OFFSET));
+    atom.setY(buffer.getDouble(offset + tagInchiAtom.Y_OFFSET));
+    atom.setZ(buffer.getDouble(offset + tagInchiAtom.Z_OFFSET));
+    atom.setImplicitHydrogen(buffer.get(offset + tagInchiAtom.NUM_ISO_H_OFFSET));
+    atom.setImplicitProtium(buffer.get(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 1));
+    atom.setImplicitDeuterium(buffer.get(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 2));
+    atom.setImplicitTritium(buffer.get(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 3));
+    int isotopicMass = buffer.getShort(offset + tagInchiAtom.ISOTOPIC_MASS_OFFSET);
+    if (isotopicMass >= ISOTOPIC_SHIFT_RANGE_MIN && isotopicMass <= ISOTOPIC_SHIFT_RANGE_MAX) {
+      //isotopic mass contains a delta from a hardcoded base mass
+      int baseMass = Elements.getBaseMass(elSymbol);
+      int delta = isotopicMass - InchiLibrary.ISOTOPIC_SHIFT_FLAG;
+      isotopicMass = baseMass + delta;
+    }
+    atom.setIsotopicMass(isotopicMass);
+    atom.setRadical(InchiRadical.of(buffer.get(offset + tagInchiAtom.RADICAL_OFFSET)));
+    atom.setCharge(buffer.get(offset + tagInchiAtom.CHARGE_OFFSET));
+    return atom;
+  }
+
+  private static String readElName(ByteBuffer buffer, int offset) {
+    char[] chars = new char[InchiLibrary.ATOM_EL_LEN];
+    int len = 0;
+    while (len < chars.length) {
+      byte b = buffer.get(offset + len);
+      if (b == 0) {
+        break;
+      }
+      chars[len++] = (char) b;
+    }
+    return new String(chars, 0, len);
+  }
+
+  private static void readBonds(InchiInput inchiInput, ByteBuffer buffer, int numAtoms) {
+    for (int i = 0; i < numAtoms; i++) {
+      int offset = i * tagInchiAtom.SIZE;
+      int numBonds = buffer.getShort(offset + tagInchiAtom.NUM_BONDS_OFFSET);
+      if (numBonds <= 0) {
+        continue;
+      }
+      InchiAtom atom = inchiInput.getAtom(i);
+      for (int j = 0; j < numBonds; j++) {
+        int neighborIdx = buffer.getShort(offset + tagInchiAtom.NEIGHBOR_OFFSET + j * 2);
+        if (neighborIdx < i) {
+          //Only add each bond once
+          continue;
+        }
+        InchiAtom neighbor = inchiInput.getAtom(neighborIdx);
+        InchiBondType bondType = InchiBondType.of(buffer.get(offset + tagInchiAtom.BOND_TYPE_OFFSET + j));
+        InchiBondStereo bondStereo = InchiBondStereo.of(buffer.get(offset + tagInchiAtom.BOND_STEREO_OFFSET + j));
+        inchiInput.addBond(new InchiBond(atom, neighbor, bondType, bondStereo));
+      }
+    }
+  }
+
+  /**
+   * Adds the stereo elements to the given input, which must already contain the atoms they refer to
+   * @param inchiInput
+   * @param stereos pointer to the first inchi_Stereo0D
+   * @param numStereos
+   */
+  static void readStereos(InchiInput inchiInput, Pointer stereos, int numStereos) {
+    ByteBuffer buffer = stereos.getByteBuffer(0, (long) numStereos * tagINCHIStereo0D.SIZE).order(ByteOrder.nativeOrder());
+    for (int i = 0; i < numStereos; i++) {
+      int offset = i * tagINCHIStereo0D.SIZE;
+      InchiAtom[] atoms = new InchiAtom[4];
+      //-1 indicates an implicit hydrogen, which is represented by null
+      for (int j = 0; j < 4; j++) {
+        int idx = buffer.getShort(offset + tagINCHIStereo0D.NEIGHBOR_OFFSET + j * 2);
+        atoms[j] = idx >= 0 ? inchiInput.getAtom(idx) : null;
+      }
+      int centralAtomIdx = buffer.getShort(offset + tagINCHIStereo0D.CENTRAL_ATOM_OFFSET);
+      InchiAtom centralAtom = centralAtomIdx >= 0 ? inchiInput.getAtom(centralAtomIdx) : null;
+      InchiStereoType stereoType = InchiStereoType.of(buffer.get(offset + tagINCHIStereo0D.TYPE_OFFSET));
+      InchiStereoParity parity = InchiStereoParity.of(buffer.get(offset + tagINCHIStereo0D.PARITY_OFFSET));
+      inchiInput.addStereo(new InchiStereo(atoms, centralAtom, stereoType, parity));
+    }
+  }
+
+}
@@ -0,0 +1,363 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+import io.github.dan2097.jnainchi.inchi.inchi_InputEx;
+import io.github.dan2097.jnainchi.inchi.tagINCHIStereo0D;
+import io.github.dan2097.jnainchi.inchi.tagINCHI_Input;
+import io.github.dan2097.jnainchi.inchi.tagInchiAtom;
+
+/**
+ * Lays out an {@link InchiInput} as an inchi_Input struct in a single block of memory.
+ * The block starts with the inchi_Input header, followed by the inchi_Atom array, the inchi_Stereo0D array
+ * and finally the NUL-terminated options string, with the header's pointers referencing the later sections.
+ * This is the representation used by {@link InchiEngine#PACKED}
+ */
+class PackedInchiInput {
+
+  private static final int MAX_BONDS_PER_ATOM = InchiLibrary.MAXVAL;
+
+  private final InchiInput input;
+  private final InchiOptions inchiOptions;
+  private final byte[] options;
+  private final int stereoCount;
+  private final int atomsOffset;
+  private final int stereosOffset;
+  private final int optionsOffset;
+  private final int size;
+
+  PackedInchiInput(InchiInput input, InchiOptions options) {
+    List<InchiAtom> atoms = input.getAtoms();
+    int atomCount = atoms.size();
+    if (atomCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("InChI is limited to 32767 atoms, input contained " + atomCount + " atoms");
+    }
+    int stereoCount = 0;
+    for (InchiStereo stereo : input.getStereos()) {
+      if (stereo.getType() != InchiStereoType.None) {
+        stereoCount++;
+      }
+    }
+    if (stereoCount > Short.MAX_VALUE) {
+      throw new IllegalStateException("Too many stereochemistry elements in input");
+    }
+    this.input = input;
+    this.inchiOptions = options;
+    this.options = toCString(toOptionsString(options));
+    this.stereoCount = stereoCount;
+    this.atomsOffset = align(inchi_InputEx.SIZE);
+    this.stereosOffset = align(atomsOffset + atomCount * tagInchiAtom.SIZE);
+    this.optionsOffset = stereosOffset + stereoCount * tagINCHIStereo0D.SIZE;
+    this.size = optionsOffset + this.options.length;
+  }
+
+  InchiOptions getOptions() {
+    return inchiOptions;
+  }
+
+  /**
+   * @return The number of bytes required to hold the packed input
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Allocates a native block and packs the input into it
+   * @return
+   */
+  Memory toMemory() {
+    Memory memory = new Memory(size);
+    memory.clear();
+    ByteBuffer buffer = memory.getByteBuffer(0, size);
+    write(buffer, Pointer.nativeValue(memory));
+    return memory;
+  }
+
+  /**
+   * Writes the packed input into the given buffer, which must be zero-filled and at least {@link #size()} bytes long.
+   * The internal pointers of the structure are calculated from the native address of the buffer
+   * @param buffer
+   * @param address native address of the start of the buffer
+   */
+  void write(ByteBuffer buffer, long address) {
+    buffer = buffer.duplicate().order(ByteOrder.nativeOrder());
+    int atomCount = input.getAtoms().size();
+    writePointer(buffer, tagINCHI_Input.ATOM_OFFSET, atomCount > 0 ? address + atomsOffset : 0);
+    writePointer(buffer, tagINCHI_Input.STEREO0D_OFFSET, stereoCount > 0 ? address + stereosOffset : 0);
+    writePointer(buffer, tagINCHI_Input.SZOPTIONS_OFFSET, address + optionsOffset);
+    buffer.putShort(tagINCHI_Input.NUM_ATOMS_OFFSET, (short) atomCount);
+    buffer.putShort(tagINCHI_Input.NUM_STEREO0D_OFFSET, (short) stereoCount);
+
+    writeAtoms(buffer);
+    writeBonds(buffer);
+    writeStereos(buffer);
+    for (int i = 0; i < options.length; i++) {
+      buffer.put(optionsOffset + i, options[i]);
+    }
+  }
+
+  private void writeAtoms(ByteBuffer buffer) {
+    List<InchiAtom> atoms = input.getAtoms();
+    for (int i = 0, atomCount = atoms.size(); i < atomCount; i++) {
+      InchiAtom atom = atoms.get(i);
+      int offset = atomsOffset + i * tagInchiAtom.SIZE;
+      buffer.putDouble(offset + tagInchiAtom.X_OFFSET, atom.getX());
+      buffer.putDouble(offset + tagInchiAtom.Y_OFFSET, atom.getY());
+      buffer.putDouble(offset + tagInchiAtom.Z_OFFSET, atom.getZ());
+      String elName = atom.getElName();
+      if (elName.length() > 5) {
+        throw new IllegalArgumentException("Element name was too long: " + elName);
+      }
+      for (int j = 0, len = elName.length(); j < len; j++) {
+        buffer.put(offset + tagInchiAtom.ELNAME_OFFSET + j, (byte) elName.charAt(j));
+      }
+      buffer.put(offset + tagInchiAtom.NUM_ISO_H_OFFSET, (byte) atom.getImplicitHydrogen());
+      buffer.put(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 1, (byte) atom.getImplicitProtium());
+      buffer.put(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 2, (byte) atom.getImplicitDeuterium());
+      buffer.put(offset + tagInchiAtom.NUM_ISO_H_OFFSET + 3, (byte) atom.getImplicitTritium());
+      buffer.putShort(offset + tagInchiAtom.ISOTOPIC_MASS_OFFSET, (short) atom.getIsotopicMass());
+      buffer.put(offset + tagInchiAtom.RADICAL_OFFSET, atom.getRadical().getCode());
+      buffer.put(offset + tagInchiAtom.CHARGE_OFFSET, (byte) atom.getCharge());
+    }
+  }
+
+  private void writeBonds(ByteBuffer buffer) {
+    for (InchiBond bond : input.getBonds()) {
+      int start = input.indexOf(bond.getStart());
+      int end = input.indexOf(bond.getEnd());
+      if (start < 0 || end < 0) {
+        throw new IllegalStateException("Bond referenced an atom that was not part of the InchiInput");
+      }
+      //Each bond only needs to be listed once, on the atom the bond stereo is relative to
+      byte stereo = bond.getStereo().getCode();
+      if (!addNeighbor(buffer, start, end, bond.getType().getCode(), stereo)) {
+        if (bond.getStereo() != InchiBondStereo.DOUBLE_EITHER) {
+          //e.g. SINGLE_1UP <--> SINGLE_2UP
+          stereo = (byte) -stereo;
+        }
+        if (!addNeighbor(buffer, end, start, bond.getType().getCode(), stereo)) {
+          throw new IllegalStateException("InChI is limited to " + MAX_BONDS_PER_ATOM + " bonds per atom");
+        }
+      }
+    }
+  }
+
+  private boolean addNeighbor(ByteBuffer buffer, int atomIdx, int neighborIdx, byte bondType, byte bondStereo) {
+    int offset = atomsOffset + atomIdx * tagInchiAtom.SIZE;
+    int numBonds = buffer.getShort(offset + tagInchiAtom.NUM_BONDS_OFFSET);
+    if (numBonds >= MAX_BONDS_PER_ATOM) {
+      return false;
+    }
+    buffer.putShort(offset + tagInchiAtom.NEIGHBOR_OFFSET + numBonds * 2, (short) neighborIdx);
+    buffer.put(offset + tagInchiAtom.BOND_TYPE_OFFSET + numBonds, bondType);
+    buffer.put(offset + tagInchiAtom.BOND_STEREO_OFFSET + numBonds, bondStereo);
+    buffer.putShort(offset + tagInchiAtom.NUM_BONDS_OFFSET, (short) (numBonds + 1));
+    return true;
+  }
+
+  private void writeStereos(ByteBuffer buffer) {
+    int i = 0;
+    for (InchiStereo stereo : input.getStereos()) {
+      InchiStereoType type = stereo.getType();
+      if (type == InchiStereoType.None) {
+        continue;
+      }
+      InchiAtom[] atomsInCenter = stereo.getAtoms();
+      int[] neighbors = new int[4];
+      int centralAtom;
+      InchiStereoParity parity = stereo.getParity();
+      switch (type) {
+      case Tetrahedral:
+      {
+        centralAtom = getCentralAtom(stereo);
+        for (int j = 0; j < 4; j++) {
+          //An implicit hydrogen, like a lone pair, is indicated by the central atom
+          neighbors[j] = atomsInCenter[j] == InchiStereo.STEREO_IMPLICIT_H ? centralAtom : getStereoVertex(atomsInCenter[j]);
+        }
+        break;
+      }
+      case Allene:
+      {
+        //The inchi_Stereo0D representation is {X, A, B, Y} for X-A=C=B-Y, hence only one substituent is needed on each end.
+        //Its parity is the opposite of the parity for the four substituents, and is inverted again each time the other substituent is used instead
+        centralAtom = getCentralAtom(stereo);
+        if (isInchiAlleneForm(buffer, centralAtom, atomsInCenter)) {
+          //e.g. from getInchiInputFromInchi, which already gives the stereo atoms as {X, A, B, Y}
+          for (int j = 0; j < 4; j++) {
+            neighbors[j] = getStereoVertex(atomsInCenter[j]);
+          }
+          break;
+        }
+        boolean invertParity = true;
+        InchiAtom x = atomsInCenter[0];
+        if (x == InchiStereo.STEREO_IMPLICIT_H) {
+          x = atomsInCenter[1];
+          invertParity = !invertParity;
+        }
+        InchiAtom y = atomsInCenter[2];
+        if (y == InchiStereo.STEREO_IMPLICIT_H) {
+          y = atomsInCenter[3];
+          invertParity = !invertParity;
+        }
+        neighbors[0] = getStereoVertex(x);
+        neighbors[1] = findCommonNeighbor(stereo.getCentralAtom(), x);
+        neighbors[2] = findCommonNeighbor(stereo.getCentralAtom(), y);
+        neighbors[3] = getStereoVertex(y);
+        parity = invertParity ? invert(parity) : parity;
+        break;
+      }
+      case DoubleBond:
+      {
+        centralAtom = InchiLibrary.NO_ATOM;
+        for (int j = 0; j < 4; j++) {
+          neighbors[j] = getStereoVertex(atomsInCenter[j]);
+        }
+        //For cumulenes the atoms of the central double bond are given, but the ends of the cumulene are expected
+        if (!isBonded(buffer, neighbors[0], neighbors[1])) {
+          neighbors[1] = findCommonNeighbor(atomsInCenter[0], atomsInCenter[1]);
+        }
+        if (!isBonded(buffer, neighbors[3], neighbors[2])) {
+          neighbors[2] = findCommonNeighbor(atomsInCenter[3], atomsInCenter[2]);
+        }
+        break;
+      }
+      default:
+        throw new IllegalStateException("Unexpected InChI stereo type:" + type);
+      }
+      int offset = stereosOffset + i * tagINCHIStereo0D.SIZE;
+      for (int j = 0; j < 4; j++) {
+        buffer.putShort(offset + tagINCHIStereo0D.NEIGHBOR_OFFSET + j * 2, (short) neighbors[j]);
+      }
+      buffer.putShort(offset + tagINCHIStereo0D.CENTRAL_ATOM_OFFSET, (short) centralAtom);
+      buffer.put(offset + tagINCHIStereo0D.TYPE_OFFSET, type.getCode());
+      buffer.put(offset + tagINCHIStereo0D.PARITY_OFFSET, parity.getCode());
+      i++;
+    }
+  }
+
+  private int getCentralAtom(InchiStereo stereo) {
+    int centralAtom = input.indexOf(stereo.getCentralAtom());
+    if (centralAtom < 0) {
+      throw new IllegalStateException("Stereo configuration central atom referenced an atom that does not exist");
+    }
+    return centralAtom;
+  }
+
+  private int getStereoVertex(InchiAtom inchiAtom) {
+    int vertex = input.indexOf(inchiAtom);
+    if (vertex < 0) {
+      throw new IllegalStateException("Stereo configuration referenced an atom that does not exist");
+    }
+    return vertex;
+  }
+
+  private static InchiStereoParity invert(InchiStereoParity parity) {
+    switch (parity) {
+    case ODD:
+      return InchiStereoParity.EVEN;
+    case EVEN:
+      return InchiStereoParity.ODD;
+    default:
+      return parity;
+    }
+  }
+
+  private boolean isInchiAlleneForm(ByteBuffer buffer, int centralAtom, InchiAtom[] atomsInCenter) {
+    for (int j = 1; j <= 2; j++) {
+      if (atomsInCenter[j] == InchiStereo.STEREO_IMPLICIT_H || !isBonded(buffer, centralAtom, getStereoVertex(atomsInCenter[j]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isBonded(ByteBuffer buffer, int atom1, int atom2) {
+    return hasNeighbor(buffer, atom1, atom2) || hasNeighbor(buffer, atom2, atom1);
+  }
+
+  private boolean hasNeighbor(ByteBuffer buffer, int atomIdx, int neighborIdx) {
+    int offset = atomsOffset + atomIdx * tagInchiAtom.SIZE;
+    int numBonds = buffer.getShort(offset + tagInchiAtom.NUM_BONDS_OFFSET);
+    for (int i = 0; i < numBonds; i++) {
+      if (buffer.getShort(offset + tagInchiAtom.NEIGHBOR_OFFSET + i * 2) == neighborIdx) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int findCommonNeighbor(InchiAtom atom1, InchiAtom atom2) {
+    //Only required for the rare case of allenes/cumulenes, hence just search the bonds
+    List<InchiBond> bonds = input.getBonds();
+    for (InchiBond bond1 : bonds) {
+      InchiAtom neighbor = bond1.getOther(atom1);
+      if (neighbor == null) {
+        continue;
+      }
+      for (InchiBond bond2 : bonds) {
+        if (bond2.getOther(atom2) == neighbor) {
+          return getStereoVertex(neighbor);
+        }
+      }
+    }
+    throw new IllegalStateException("Could not find olefin/cumulene central bond");
+  }
+
+  private static String toOptionsString(InchiOptions options) {
+    String optionsString = options.toClassicOptionsString();
+    if (options.hasFlag(InchiFlag.ChiralFlagON) || options.hasFlag(InchiFlag.ChiralFlagOFF)) {
+      return optionsString;
+    }
+    //The IXA API marks molecules as not chiral unless told otherwise, which is reflected in the AuxInfo
+    String chiralFlagOff = (InchiOptions.IS_WINDOWS ? "/" : "-") + InchiFlag.ChiralFlagOFF;
+    return optionsString.isEmpty() ? chiralFlagOff : optionsString + " " + chiralFlagOff;
+  }
+
+  private static void writePointer(ByteBuffer buffer, int offset, long address) {
+    if (Native.POINTER_SIZE == 8) {
+      buffer.putLong(offset, address);
+    }
+    else {
+      buffer.putInt(offset, (int) address);
+    }
+  }
+
+  private static int align(int offset) {
+    int alignment = 8;
+    return (offset + alignment - 1) & -alignment;
+  }
+
+  private static byte[] toCString(String jstr) {
+    int strLen = jstr.length();
+    byte[] cstr = new byte[strLen + 1];
+    for (int i = 0; i < strLen; i++) {
+      cstr[i] = (byte) jstr.charAt(i);
+    }
+    return cstr;
+  }
+}
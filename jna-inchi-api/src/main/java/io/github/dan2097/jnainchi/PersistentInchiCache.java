@@ -0,0 +1,906 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A disk-backed cache of InChIs and InChIKeys that persists between runs, for jobs that repeatedly convert the same large collections of structures.
+ * Results are keyed on a digest of the input and the options. Only the InChI, InChIKey and status are stored, not the AuxInfo, messages or log.
+ * Results with the status {@link InchiStatus#ERROR} are not stored, as their cause would be lost, see {@link InchiFailureCache} for remembering failures.
+ * A result that cannot be stored, e.g. as the disk is full, is still returned, see {@link #getStoreFailureCount()}.
+ * <br>
+ * The cache is a directory holding an append-only log of results, and an open-addressing index from digest to position in the log.
+ * Both files are memory-mapped, so opening a cache doesn't read it into the heap and lookups are served from the operating system's page cache.
+ * Each file is numbered, and when the index grows, or the cache is compacted, new files are written rather than replacing files that may be mapped by this or another process.
+ * Files that are no longer used are deleted once they can be, which on Windows is once no process has them mapped.
+ * One JVM at a time may open the cache for writing, while any number of JVMs on the same host may open it read-only.
+ * A read-only cache sees the results added after it was opened on a best-effort basis, and never stores results.
+ * <br>
+ * A cache written by a different version of this library, or of the InChI library, is discarded when opened for writing,
+ * and treated as empty when opened read-only. Results that aren't looked up for a number of runs can be removed with {@link #compact(int)}.
+ * <pre>
+ * try (PersistentInchiCache cache = PersistentInchiCache.open(Paths.get("inchi-cache"))) {
+ *   InchiWithKeyOutput output = cache.molToInchiWithKey(molText, options);
+ * }
+ * </pre>
+ */
+public final class PersistentInchiCache implements AutoCloseable {
+
+  static final String FILE_PREFIX = "inchi-cache-";
+  static final String LOG_SUFFIX = ".log";
+  static final String INDEX_SUFFIX = ".idx";
+  static final String LOCK_FILE = "inchi-cache.lock";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final long LOG_MAGIC = 0x4a4e41494c4f4700L | FORMAT_VERSION;// "JNAILOG"
+  private static final long INDEX_MAGIC = 0x4a4e414949445800L | FORMAT_VERSION;// "JNAIIDX"
+
+  /*
+   * Log header: magic, log id (the number in the file name), length of the library signature, library signature
+   */
+  private static final int LOG_ID_OFFSET = 8;
+  private static final int LOG_SIGNATURE_OFFSET = 16;
+  private static final int LOG_HEADER_SIZE = 256;
+
+  /*
+   * Index header: magic, capacity, epoch (the number of times the cache has been opened for writing), count, end of the log, log id.
+   * The magic is written last, so an index that was not completely written is never used.
+   * Then the slots, each holding the high half of a digest and the position of the record in the log, along with the epoch it was last used
+   */
+  private static final int INDEX_CAPACITY_OFFSET = 8;
+  private static final int INDEX_EPOCH_OFFSET = 12;
+  private static final int INDEX_COUNT_OFFSET = 16;
+  private static final int INDEX_LOG_END_OFFSET = 24;
+  private static final int INDEX_LOG_ID_OFFSET = 32;
+  private static final int INDEX_HEADER_SIZE = 64;
+  private static final int SLOT_SIZE = 16;
+  private static final int MIN_CAPACITY = 1 << 12;
+  private static final int MAX_CAPACITY = 1 << 26;
+  private static final int OFFSET_BITS = 40;
+  private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+  private static final int EPOCH_MASK = (1 << 24) - 1;
+
+  /*
+   * Record: the digest, status, InChIKey status, InChIKey length, InChI length (-1 if no InChI), InChIKey, InChI.
+   * A record never spans two regions of the log, so each can be read from a single mapping
+   */
+  private static final int RECORD_STATUS_OFFSET = 16;
+  private static final int RECORD_KEY_STATUS_OFFSET = 17;
+  private static final int RECORD_KEY_LENGTH_OFFSET = 18;
+  private static final int RECORD_INCHI_LENGTH_OFFSET = 19;
+  private static final int RECORD_HEADER_SIZE = 23;
+  private static final int MAX_RECORD_SIZE = 1 << 20;
+  private static final byte NO_KEY_STATUS = -1;
+
+  private static final int DEFAULT_REGION_SIZE = 1 << 30;
+  private static final int MAX_GROWTH = 1 << 24;
+
+  private static final InchiStatus[] STATUSES = InchiStatus.values();
+  private static final InchiKeyStatus[] KEY_STATUSES = InchiKeyStatus.values();
+
+  private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required to be supported by the JVM", e);
+    }
+  });
+
+  private final Path directory;
+  private final boolean readOnly;
+  private final int regionSize;
+  private final int growth;
+  private final byte[] signature;
+  private final FileChannel lockChannel;
+  private final FileLock lock;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder storeFailures = new LongAdder();
+
+  private FileChannel logChannel;
+  private FileChannel indexChannel;
+  private volatile MappedByteBuffer index;
+  private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+  /** Only maintained when writable, read-only caches use the value in the index */
+  private long logEnd;
+  private int epoch;
+  /** The number of the next file to be created, only used when writable */
+  private long nextFileNumber;
+  /** The number of the index that is mapped */
+  private long indexNumber;
+  private volatile boolean closed = false;
+
+  /**
+   * Opens the cache in the given directory for reading and writing, creating it if necessary
+   * @param directory
+   * @return
+   * @throws IOException if the cache couldn't be opened, or is already open for writing by another JVM or another instance in this JVM
+   */
+  public static PersistentInchiCache open(Path directory) throws IOException {
+    return new PersistentInchiCache(directory, false, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * Opens the cache in the given directory for reading. If there is no cache in the directory, every lookup is a miss
+   * @param directory
+   * @return
+   * @throws IOException if the cache couldn't be opened
+   */
+  public static PersistentInchiCache openReadOnly(Path directory) throws IOException {
+    return new PersistentInchiCache(directory, true, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * @param directory
+   * @param readOnly
+   * @param regionSize the size of each mapping of the log, records larger than this are not cached
+   * @throws IOException
+   */
+  PersistentInchiCache(Path directory, boolean readOnly, int regionSize) throws IOException {
+    this.directory = directory;
+    this.readOnly = readOnly;
+    this.regionSize = regionSize;
+    this.growth = Math.min(regionSize, MAX_GROWTH);
+    this.signature = librarySignature();
+    if (readOnly) {
+      lockChannel = null;
+      lock = null;
+      openForReading();
+      return;
+    }
+    Files.createDirectories(directory);
+    lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock acquired = null;
+    try {
+      acquired = lockChannel.tryLock();
+    }
+    catch (OverlappingFileLockException e) {
+      //held by another instance in this JVM
+    }
+    if (acquired == null) {
+      lockChannel.close();
+      throw new IOException("InChI cache in " + directory + " is already open for writing");
+    }
+    lock = acquired;
+    try {
+      openForWriting();
+    }
+    catch (IOException | RuntimeException e) {
+      closeFiles();
+      lock.release();
+      lockChannel.close();
+      throw e;
+    }
+  }
+
+  private static byte[] librarySignature() {
+    String signature = "jnainchi=" + JnaInchi.getJnaInchiVersion() + " inchi=" + JnaInchi.getInchiLibraryVersion();
+    byte[] bytes = signature.getBytes(StandardCharsets.UTF_8);
+    return bytes.length > LOG_HEADER_SIZE - LOG_SIGNATURE_OFFSET - 4 ? Arrays.copyOf(bytes, LOG_HEADER_SIZE - LOG_SIGNATURE_OFFSET - 4) : bytes;
+  }
+
+  private void openForReading() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    //the files may be replaced by a writer while they are being listed, in which case list them again
+    for (int attempt = 0; attempt < 3; attempt++) {
+      for (long number : fileNumbers(INDEX_SUFFIX)) {
+        if (mapFiles(number)) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void openForWriting() throws IOException {
+    long[] indexNumbers = fileNumbers(INDEX_SUFFIX);
+    long[] logNumbers = fileNumbers(LOG_SUFFIX);
+    nextFileNumber = Math.max(indexNumbers.length > 0 ? indexNumbers[0] : 0, logNumbers.length > 0 ? logNumbers[0] : 0) + 1;
+    for (long number : indexNumbers) {
+      if (mapFiles(number)) {
+        logEnd = index.getLong(INDEX_LOG_END_OFFSET);
+        epoch = (index.getInt(INDEX_EPOCH_OFFSET) + 1) & EPOCH_MASK;
+        index.putInt(INDEX_EPOCH_OFFSET, epoch);
+        deleteUnusedFiles();
+        return;
+      }
+    }
+    //no cache, or one written by another version, or damaged, either way start again
+    long logId = nextFileNumber++;
+    writeEmptyLog(logId);
+    long number = nextFileNumber++;
+    writeEmptyIndex(number, MIN_CAPACITY, 0, logId);
+    if (!mapFiles(number)) {
+      throw new IOException("Failed to create InChI cache in " + directory);
+    }
+    logEnd = LOG_HEADER_SIZE;
+    epoch = 0;
+    deleteUnusedFiles();
+  }
+
+  private Path logPath(long logId) {
+    return directory.resolve(FILE_PREFIX + logId + LOG_SUFFIX);
+  }
+
+  private Path indexPath(long number) {
+    return directory.resolve(FILE_PREFIX + number + INDEX_SUFFIX);
+  }
+
+  /**
+   * @param suffix
+   * @return the numbers of the files in the cache directory with the given suffix, highest first
+   * @throws IOException
+   */
+  private long[] fileNumbers(String suffix) throws IOException {
+    List<Long> numbers = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + suffix)) {
+      for (Path file : files) {
+        long number = fileNumber(file, suffix);
+        if (number > 0) {
+          numbers.add(number);
+        }
+      }
+    }
+    return numbers.stream().sorted(Comparator.reverseOrder()).mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * @param file
+   * @param suffix
+   * @return the number in the file's name, or -1 if it is not a cache file with the given suffix
+   */
+  private static long fileNumber(Path file, String suffix) {
+    String name = file.getFileName().toString();
+    if (!name.startsWith(FILE_PREFIX) || !name.endsWith(suffix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - suffix.length()));
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Deletes the files, other than the current index and log, left by previous runs, rebuilds, or writers that didn't finish.
+   * Files that can't be deleted, e.g. on Windows while another process has them mapped, are tried again when the cache is next rebuilt or opened for writing
+   */
+  private void deleteUnusedFiles() {
+    long logId = index.getLong(INDEX_LOG_ID_OFFSET);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*")) {
+      for (Path file : files) {
+        if (file.equals(indexPath(indexNumber)) || file.equals(logPath(logId))) {
+          continue;
+        }
+        if (fileNumber(file, INDEX_SUFFIX) > 0 || fileNumber(file, LOG_SUFFIX) > 0) {
+          try {
+            Files.deleteIfExists(file);
+          }
+          catch (IOException e) {
+            //still in use
+          }
+        }
+      }
+    }
+    catch (IOException e) {
+      //left until next time
+    }
+  }
+
+  private boolean isConsistent(long end) throws IOException {
+    if (logChannel.size() < LOG_HEADER_SIZE || indexChannel.size() < INDEX_HEADER_SIZE) {
+      return false;
+    }
+    ByteBuffer logHeader = ByteBuffer.allocate(LOG_HEADER_SIZE);
+    readFully(logChannel, logHeader, 0);
+    if (logHeader.getLong(0) != LOG_MAGIC || index.getLong(0) != INDEX_MAGIC) {
+      return false;
+    }
+    if (logHeader.getLong(LOG_ID_OFFSET) != index.getLong(INDEX_LOG_ID_OFFSET)) {
+      return false;
+    }
+    int signatureLength = logHeader.getInt(LOG_SIGNATURE_OFFSET);
+    if (signatureLength != signature.length) {
+      return false;
+    }
+    for (int i = 0; i < signatureLength; i++) {
+      if (logHeader.get(LOG_SIGNATURE_OFFSET + 4 + i) != signature[i]) {
+        return false;
+      }
+    }
+    int capacity = index.getInt(INDEX_CAPACITY_OFFSET);
+    if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1 || index.capacity() < INDEX_HEADER_SIZE + capacity * SLOT_SIZE) {
+      return false;
+    }
+    return end >= LOG_HEADER_SIZE && end <= logChannel.size() && end <= OFFSET_MASK;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+  }
+
+  /**
+   * Creates a new empty log
+   * @param logId
+   * @throws IOException
+   */
+  private void writeEmptyLog(long logId) throws IOException {
+    try (FileChannel channel = FileChannel.open(logPath(logId), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      writeLogHeader(channel, logId);
+      channel.force(true);
+    }
+  }
+
+  private void writeLogHeader(FileChannel channel, long logId) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+    header.putLong(0, LOG_MAGIC);
+    header.putLong(LOG_ID_OFFSET, logId);
+    header.putInt(LOG_SIGNATURE_OFFSET, signature.length);
+    for (int i = 0; i < signature.length; i++) {
+      header.put(LOG_SIGNATURE_OFFSET + 4 + i, signature[i]);
+    }
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+  }
+
+  /**
+   * Maps a new index, without the magic, which must be written once the index is complete
+   */
+  private static MappedByteBuffer mapEmptyIndex(FileChannel channel, int capacity, int epoch, long logId) throws IOException {
+    MappedByteBuffer newIndex = channel.map(MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE);
+    newIndex.putInt(INDEX_CAPACITY_OFFSET, capacity);
+    newIndex.putInt(INDEX_EPOCH_OFFSET, epoch);
+    newIndex.putLong(INDEX_LOG_END_OFFSET, LOG_HEADER_SIZE);
+    newIndex.putLong(INDEX_LOG_ID_OFFSET, logId);
+    return newIndex;
+  }
+
+  private void writeEmptyIndex(long number, int capacity, int epoch, long logId) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer newIndex = mapEmptyIndex(channel, capacity, epoch, logId);
+      newIndex.force();
+      newIndex.putLong(0, INDEX_MAGIC);
+      newIndex.force();
+    }
+  }
+
+  /**
+   * Maps the index with the given number, and the log it refers to
+   * @param number
+   * @return whether the files exist and are consistent, if not nothing is mapped
+   * @throws IOException
+   */
+  private boolean mapFiles(long number) throws IOException {
+    StandardOpenOption[] openOptions = readOnly ? new StandardOpenOption[]{StandardOpenOption.READ} : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+    try {
+      indexChannel = FileChannel.open(indexPath(number), openOptions);
+      if (indexChannel.size() >= INDEX_HEADER_SIZE) {
+        index = indexChannel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, 0, indexChannel.size());
+        logChannel = FileChannel.open(logPath(index.getLong(INDEX_LOG_ID_OFFSET)), openOptions);
+        regions = new MappedByteBuffer[0];
+        if (isConsistent(index.getLong(INDEX_LOG_END_OFFSET))) {
+          indexNumber = number;
+          return true;
+        }
+      }
+    }
+    catch (NoSuchFileException e) {
+      //deleted by a writer since the directory was listed
+    }
+    closeFiles();
+    return false;
+  }
+
+  private void closeFiles() throws IOException {
+    index = null;
+    regions = new MappedByteBuffer[0];
+    if (logChannel != null) {
+      logChannel.close();
+      logChannel = null;
+    }
+    if (indexChannel != null) {
+      indexChannel.close();
+      indexChannel = null;
+    }
+  }
+
+  /**
+   * As {@link JnaInchi#toInchiWithKey(InchiInput, InchiOptions)}, returning the stored result if this input has been converted with these options before
+   * @param inchiInput
+   * @param options
+   * @return
+   */
+  public InchiWithKeyOutput toInchiWithKey(InchiInput inchiInput, InchiOptions options) {
+    if (inchiInput == null) {
+      throw new IllegalArgumentException("inchiInput must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(InchiCache.KIND_INPUT, inchiInput.getFingerprint(), options, () -> JnaInchi.toInchiWithKey(inchiInput, options));
+  }
+
+  /**
+   * As {@link JnaInchi#molToInchiWithKey(String, InchiOptions)}, returning the stored result if this molfile has been converted with these options before
+   * @param molText
+   * @param options
+   * @return
+   */
+  public InchiWithKeyOutput molToInchiWithKey(String molText, InchiOptions options) {
+    if (molText == null) {
+      throw new IllegalArgumentException("molText must not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    return get(InchiCache.KIND_MOLFILE, molText, options, () -> JnaInchi.molToInchiWithKey(molText, options));
+  }
+
+  /**
+   * Returns the stored result for the given input, or loads it, storing it if the cache is writable
+   * @param kind the type of conversion e.g. {@link InchiCache#KIND_MOLFILE}
+   * @param content String, or {@link InchiFingerprint}, that uniquely identifies the input
+   * @param options
+   * @param loader
+   * @return
+   * @throws E if loading failed, in which case nothing is stored
+   * @throws UncheckedIOException if the cache's files could not be read
+   */
+  <E extends Exception> InchiWithKeyOutput get(byte kind, Object content, InchiOptions options, InchiCache.Loader<InchiWithKeyOutput, E> loader) throws E {
+    checkOpen();
+    MessageDigest md = DIGESTS.get();
+    md.update(kind);
+    if (content instanceof InchiFingerprint) {
+      InchiFingerprint fingerprint = (InchiFingerprint) content;
+      md.update(ByteBuffer.allocate(16).putLong(fingerprint.getMostSignificantBits()).putLong(fingerprint.getLeastSignificantBits()).array());
+    }
+    else {
+      md.update(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    md.update((byte) 0);
+    md.update(options.toString().getBytes(StandardCharsets.UTF_8));
+    md.update((byte) options.getEngine().ordinal());
+    ByteBuffer digest = ByteBuffer.wrap(md.digest());
+    long high = digest.getLong(0);
+    long low = digest.getLong(8);
+    try {
+      InchiWithKeyOutput stored = lookup(high, low);
+      if (stored != null) {
+        hits.increment();
+        return stored;
+      }
+      misses.increment();
+      InchiWithKeyOutput loaded = loader.load();
+      if (loaded != null && !readOnly && loaded.getStatus() != InchiStatus.ERROR) {
+        try {
+          store(high, low, loaded);
+        }
+        catch (IOException | RuntimeException e) {
+          //the result is still returned, it just isn't cached
+          storeFailures.increment();
+        }
+      }
+      return loaded;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int slotOf(long high, int mask) {
+    return (int) (high ^ (high >>> 32)) & mask;
+  }
+
+  private InchiWithKeyOutput lookup(long high, long low) throws IOException {
+    MappedByteBuffer idx = index;
+    if (idx == null) {
+      return null;
+    }
+    int mask = idx.getInt(INDEX_CAPACITY_OFFSET) - 1;
+    int slot = slotOf(high, mask);
+    for (int probes = 0; probes <= mask; probes++) {
+      int pos = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+      long meta = idx.getLong(pos + 8);
+      if (meta == 0) {
+        return null;
+      }
+      if (idx.getLong(pos) == high) {
+        long offset = meta & OFFSET_MASK;
+        InchiWithKeyOutput output = readRecord(offset, high, low);
+        if (output != null) {
+          if (!readOnly && (int) (meta >>> OFFSET_BITS) != epoch) {
+            touch(idx, pos, offset);
+          }
+          return output;
+        }
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Records that the entry in the given slot was used in this run
+   */
+  private synchronized void touch(MappedByteBuffer idx, int pos, long offset) {
+    if (idx == index) {
+      idx.putLong(pos + 8, offset | ((long) epoch << OFFSET_BITS));
+    }
+  }
+
+  private InchiWithKeyOutput readRecord(long offset, long high, long low) throws IOException {
+    int pos = (int) (offset % regionSize);
+    ByteBuffer region = getRegion(offset, RECORD_HEADER_SIZE);
+    if (region == null || region.getLong(pos) != high || region.getLong(pos + 8) != low) {
+      return null;
+    }
+    int statusCode = region.get(pos + RECORD_STATUS_OFFSET);
+    int keyStatusCode = region.get(pos + RECORD_KEY_STATUS_OFFSET);
+    int keyLength = region.get(pos + RECORD_KEY_LENGTH_OFFSET) & 0xff;
+    int inchiLength = region.getInt(pos + RECORD_INCHI_LENGTH_OFFSET);
+    if (statusCode < 0 || statusCode >= STATUSES.length || keyStatusCode >= KEY_STATUSES.length || inchiLength < -1 || inchiLength > MAX_RECORD_SIZE) {
+      return null;
+    }
+    region = getRegion(offset, recordSize(region, pos));
+    if (region == null) {
+      return null;
+    }
+    String inchiKey = readAscii(region, pos + RECORD_HEADER_SIZE, keyLength);
+    String inchi = inchiLength >= 0 ? readAscii(region, pos + RECORD_HEADER_SIZE + keyLength, inchiLength) : null;
+    InchiOutput output = new InchiOutput(inchi, null, (String) null, null, STATUSES[statusCode]);
+    InchiKeyStatus keyStatus = keyStatusCode >= 0 ? KEY_STATUSES[keyStatusCode] : null;
+    return new InchiWithKeyOutput(output, new InchiKeyOutput(inchiKey, keyStatus, "", ""));
+  }
+
+  private static String readAscii(ByteBuffer buffer, int pos, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) buffer.get(pos + i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * The mapping of the region of the log containing the given bytes, mapping more of the log if required
+   * @param offset
+   * @param length
+   * @return the mapping, or null if the bytes are not yet in the log (only possible when read-only)
+   * @throws IOException
+   */
+  private ByteBuffer getRegion(long offset, int length) throws IOException {
+    int regionIdx = (int) (offset / regionSize);
+    int end = (int) (offset % regionSize) + length;
+    MappedByteBuffer[] current = regions;
+    if (regionIdx < current.length && current[regionIdx] != null && current[regionIdx].capacity() >= end) {
+      return current[regionIdx];
+    }
+    synchronized (this) {
+      current = regions;
+      if (regionIdx < current.length && current[regionIdx] != null && current[regionIdx].capacity() >= end) {
+        return current[regionIdx];
+      }
+      if (end > regionSize) {
+        return null;
+      }
+      long start = (long) regionIdx * regionSize;
+      long size;
+      if (readOnly) {
+        size = Math.min(regionSize, logChannel.size() - start);
+        if (size < end) {
+          return null;
+        }
+      }
+      else {
+        //grow the log in steps, rather than remapping for every record
+        size = Math.min(regionSize, (end + (long) growth - 1) / growth * growth);
+      }
+      MappedByteBuffer[] grown = Arrays.copyOf(current, Math.max(current.length, regionIdx + 1));
+      grown[regionIdx] = logChannel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE, start, size);
+      regions = grown;
+      return grown[regionIdx];
+    }
+  }
+
+  private synchronized void store(long high, long low, InchiWithKeyOutput output) throws IOException {
+    if (closed || index == null || lookup(high, low) != null) {
+      return;
+    }
+    int capacity = index.getInt(INDEX_CAPACITY_OFFSET);
+    long count = index.getLong(INDEX_COUNT_OFFSET);
+    if ((count + 1) * 4 > (long) capacity * 3) {
+      if (capacity == MAX_CAPACITY) {
+        return;
+      }
+      rebuild(capacity * 2, -1, false);
+    }
+    String inchiKey = output.getInchiKey();
+    String inchi = output.getInchi();
+    int keyLength = inchiKey != null ? inchiKey.length() : 0;
+    int inchiLength = inchi != null ? inchi.length() : -1;
+    int size = RECORD_HEADER_SIZE + keyLength + Math.max(0, inchiLength);
+    if (keyLength > 0xff || size > Math.min(MAX_RECORD_SIZE, regionSize) || !isAscii(inchiKey) || !isAscii(inchi)) {
+      return;
+    }
+    long offset = logEnd;
+    if (offset % regionSize + size > regionSize) {
+      //start of the next region
+      offset = (offset / regionSize + 1) * regionSize;
+    }
+    if (offset + size > OFFSET_MASK) {
+      return;
+    }
+    ByteBuffer region = getRegion(offset, size);
+    int pos = (int) (offset % regionSize);
+    region.putLong(pos, high);
+    region.putLong(pos + 8, low);
+    region.put(pos + RECORD_STATUS_OFFSET, (byte) output.getStatus().ordinal());
+    InchiKeyStatus keyStatus = output.getInchiKeyOutput().getStatus();
+    region.put(pos + RECORD_KEY_STATUS_OFFSET, keyStatus != null ? (byte) keyStatus.ordinal() : NO_KEY_STATUS);
+    region.put(pos + RECORD_KEY_LENGTH_OFFSET, (byte) keyLength);
+    region.putInt(pos + RECORD_INCHI_LENGTH_OFFSET, inchiLength);
+    writeAscii(region, pos + RECORD_HEADER_SIZE, inchiKey);
+    writeAscii(region, pos + RECORD_HEADER_SIZE + keyLength, inchi);
+    logEnd = offset + size;
+    //The record is written before the index refers to it, so that concurrent readers never see a partial record
+    index.putLong(INDEX_LOG_END_OFFSET, logEnd);
+    insert(index, high, offset | ((long) epoch << OFFSET_BITS));
+    index.putLong(INDEX_COUNT_OFFSET, count + 1);
+  }
+
+  private static void insert(MappedByteBuffer idx, long high, long meta) {
+    int mask = idx.getInt(INDEX_CAPACITY_OFFSET) - 1;
+    int slot = slotOf(high, mask);
+    while (idx.getLong(INDEX_HEADER_SIZE + slot * SLOT_SIZE + 8) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    int pos = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    idx.putLong(pos, high);
+    idx.putLong(pos + 8, meta);
+  }
+
+  private static boolean isAscii(String str) {
+    if (str == null) {
+      return true;
+    }
+    for (int i = 0, len = str.length(); i < len; i++) {
+      if (str.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeAscii(ByteBuffer buffer, int pos, String str) {
+    if (str == null) {
+      return;
+    }
+    for (int i = 0, len = str.length(); i < len; i++) {
+      buffer.put(pos + i, (byte) str.charAt(i));
+    }
+  }
+
+  /**
+   * Rewrites the cache without the space left by aborted writes and at the end of each mapping of the log.
+   * The cache must be writable
+   * @throws IOException
+   */
+  public void compact() throws IOException {
+    compact(-1);
+  }
+
+  /**
+   * Rewrites the cache keeping only the results that were stored or looked up in the given number of most recent runs,
+   * where a run is each time the cache is opened for writing, including the current one.
+   * Lookups by read-only caches are not recorded. The cache must be writable
+   * @param retainedRuns the number of runs, or -1 to keep all results
+   * @throws IOException
+   */
+  public void compact(int retainedRuns) throws IOException {
+    if (retainedRuns == 0 || retainedRuns < -1) {
+      throw new IllegalArgumentException("retainedRuns must be positive, or -1 to keep all results: " + retainedRuns);
+    }
+    synchronized (this) {
+      checkOpen();
+      if (readOnly) {
+        throw new IllegalStateException("InChI cache was opened read-only");
+      }
+      long count = index.getLong(INDEX_COUNT_OFFSET);
+      int capacity = MIN_CAPACITY;
+      while (capacity < MAX_CAPACITY && count * 4 > (long) capacity * 3) {
+        capacity *= 2;
+      }
+      rebuild(capacity, retainedRuns, true);
+    }
+  }
+
+  /**
+   * Copies the results to a new index of the given capacity, and if compactLog is set, to a new log without any gaps.
+   * Read-only caches continue to use the previous files, so don't see results added after the rebuild
+   * @param capacity
+   * @param retainedRuns the number of recent runs whose results are kept, or -1 to keep all results
+   * @param compactLog
+   * @throws IOException
+   */
+  private void rebuild(int capacity, int retainedRuns, boolean compactLog) throws IOException {
+    long logId = compactLog ? nextFileNumber++ : index.getLong(INDEX_LOG_ID_OFFSET);
+    long newIndexNumber = nextFileNumber++;
+    long newLogEnd = compactLog ? LOG_HEADER_SIZE : logEnd;
+    try (FileChannel newIndexChannel = FileChannel.open(indexPath(newIndexNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel newLogChannel = compactLog ? FileChannel.open(logPath(logId), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) : null) {
+      if (compactLog) {
+        writeLogHeader(newLogChannel, logId);
+      }
+      MappedByteBuffer newIndex = mapEmptyIndex(newIndexChannel, capacity, epoch, logId);
+      int oldCapacity = index.getInt(INDEX_CAPACITY_OFFSET);
+      long count = 0;
+      for (int slot = 0; slot < oldCapacity; slot++) {
+        int pos = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+        long meta = index.getLong(pos + 8);
+        if (meta == 0) {
+          continue;
+        }
+        int entryEpoch = (int) (meta >>> OFFSET_BITS);
+        if (retainedRuns > 0 && ((epoch - entryEpoch) & EPOCH_MASK) >= retainedRuns) {
+          continue;
+        }
+        long offset = meta & OFFSET_MASK;
+        if (compactLog) {
+          int recordPos = (int) (offset % regionSize);
+          ByteBuffer region = getRegion(offset, RECORD_HEADER_SIZE);
+          int size = recordSize(region, recordPos);
+          ByteBuffer record = getRegion(offset, size).duplicate();
+          record.limit(recordPos + size).position(recordPos);
+          if (newLogEnd % regionSize + size > regionSize) {
+            newLogEnd = (newLogEnd / regionSize + 1) * regionSize;
+          }
+          offset = newLogEnd;
+          while (record.hasRemaining()) {
+            newLogChannel.write(record, offset + record.position() - recordPos);
+          }
+          newLogEnd += size;
+        }
+        insert(newIndex, index.getLong(pos), offset | ((long) entryEpoch << OFFSET_BITS));
+        count++;
+      }
+      newIndex.putLong(INDEX_COUNT_OFFSET, count);
+      newIndex.putLong(INDEX_LOG_END_OFFSET, newLogEnd);
+      if (compactLog) {
+        newLogChannel.force(true);
+      }
+      newIndex.force();
+      //the new index is only used once it is complete, until then the previous files remain the cache
+      newIndex.putLong(0, INDEX_MAGIC);
+      newIndex.force();
+    }
+    closeFiles();
+    if (!mapFiles(newIndexNumber)) {
+      throw new IOException("Rebuilt InChI cache in " + directory + " is not consistent");
+    }
+    logEnd = newLogEnd;
+    deleteUnusedFiles();
+  }
+
+  private static int recordSize(ByteBuffer region, int pos) {
+    int keyLength = region.get(pos + RECORD_KEY_LENGTH_OFFSET) & 0xff;
+    int inchiLength = region.getInt(pos + RECORD_INCHI_LENGTH_OFFSET);
+    return RECORD_HEADER_SIZE + keyLength + Math.max(0, inchiLength);
+  }
+
+  /**
+   * @return the number of results stored in the cache
+   */
+  public long size() {
+    MappedByteBuffer idx = index;
+    return idx != null ? idx.getLong(INDEX_COUNT_OFFSET) : 0;
+  }
+
+  /**
+   * @return the number of lookups that returned a stored result
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups that had to call the InChI library
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the number of results that could not be written to the cache, these results were still returned
+   */
+  public long getStoreFailureCount() {
+    return storeFailures.sum();
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("InChI cache has been closed");
+    }
+  }
+
+  /**
+   * Flushes the cache to disk and closes its files. Subsequent attempts to use the cache will fail
+   * @throws IOException
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (!readOnly && index != null) {
+        for (MappedByteBuffer region : regions) {
+          if (region != null) {
+            region.force();
+          }
+        }
+        index.force();
+      }
+      closeFiles();
+    }
+    finally {
+      if (lock != null) {
+        lock.release();
+        lockChannel.close();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PersistentInchiCache[" + directory + ", size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + (readOnly ? ", read-only" : "") + "]";
+  }
+
+}
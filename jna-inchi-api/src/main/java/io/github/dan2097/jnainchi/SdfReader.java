@@ -0,0 +1,375 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records of an SD file one at a time, splitting on the $$$$ lines in the raw bytes of the file.
+ * Records are not decoded to strings unless their molfile or data items are requested, see {@link MolRecord}.
+ * <br>
+ * Files opened with {@link #open(Path)} are memory-mapped, a window at a time, and each record is a view of the mapped file.
+ * Records read from a channel or stream are copied out of a buffer that grows to fit the largest record.
+ * <pre>
+ * try (SdfReader reader = SdfReader.open(path)) {
+ *   reader.stream().map(record -&gt; record.toInchi(options)).forEach(...);
+ * }
+ * </pre>
+ * A reader is not thread-safe, but the records it returns can be converted on other threads.
+ */
+public final class SdfReader implements Iterator<MolRecord>, Closeable {
+
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+  private static final int MIN_WINDOW_SIZE = 1 << 16;
+  private static final long MIN_SPLIT_SIZE = 1 << 20;
+
+  private final ReadableByteChannel channel;
+  private final FileChannel file;
+  private final int windowSize;
+  //records starting at or after this position in the file are not read
+  private final long end;
+  //-1 if the index of the records is not known
+  private long index;
+  private ByteBuffer window;
+  //the position in the file of the start of the window
+  private long windowOffset;
+  private boolean eof;
+  //start of the next record in the window
+  private int pos;
+  private MolRecord next;
+
+  /**
+   * Reads the SD file from the channel, which is closed when the reader is closed
+   * @param channel
+   */
+  public SdfReader(ReadableByteChannel channel) {
+    if (channel == null) {
+      throw new IllegalArgumentException("channel must not be null");
+    }
+    this.channel = channel;
+    this.file = null;
+    this.windowSize = DEFAULT_BUFFER_SIZE;
+    this.end = Long.MAX_VALUE;
+    this.window = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    window.limit(0);
+  }
+
+  /**
+   * Reads the SD file from the stream, which is closed when the reader is closed
+   * @param in
+   */
+  public SdfReader(InputStream in) {
+    this(Channels.newChannel(in));
+  }
+
+  SdfReader(FileChannel file, int windowSize) throws IOException {
+    this(file, windowSize, 0, Long.MAX_VALUE, 0);
+  }
+
+  /**
+   * Reads the records of a mapped file that start within the given range
+   * @param file
+   * @param windowSize
+   * @param start the start of a record, or the end of the file
+   * @param end
+   * @param index the index of the record at start, or -1 if not known
+   * @throws IOException
+   */
+  SdfReader(FileChannel file, int windowSize, long start, long end, long index) throws IOException {
+    this.channel = null;
+    this.file = file;
+    this.windowSize = windowSize;
+    this.end = end;
+    this.index = index;
+    this.window = ByteBuffer.allocate(0);
+    this.windowOffset = start;
+    this.eof = start >= file.size();
+  }
+
+  /**
+   * Memory-maps the given SD file
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static SdfReader open(Path path) throws IOException {
+    return open(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  static SdfReader open(Path path, int windowSize) throws IOException {
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new SdfReader(file, windowSize);
+    }
+    catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Memory-maps the given SD file, returning a parallel stream of its records.
+   * The file is split into byte ranges, each starting at a record boundary, that are read by the stream's worker threads, so there is no single reading thread.
+   * Records are in file order if the stream is processed in encounter order, but their {@link MolRecord#getIndex() index} is not known.
+   * Closing the stream closes the file
+   * <pre>
+   * try (Stream&lt;MolRecord&gt; records = SdfReader.parallelStream(path)) {
+   *   List&lt;InchiOutput&gt; outputs = records.map(record -&gt; record.toInchi(options)).collect(Collectors.toList());
+   * }
+   * </pre>
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static Stream<MolRecord> parallelStream(Path path) throws IOException {
+    return parallelStream(path, DEFAULT_WINDOW_SIZE, MIN_SPLIT_SIZE);
+  }
+
+  static Stream<MolRecord> parallelStream(Path path, int windowSize, long minSplitSize) throws IOException {
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return StreamSupport.stream(new SdfSpliterator(file, windowSize, minSplitSize), true).onClose(() -> {
+        try {
+          file.close();
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = readRecord();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return next != null;
+  }
+
+  /**
+   * @throws UncheckedIOException if the SD file could not be read
+   */
+  @Override
+  public MolRecord next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    MolRecord record = next;
+    next = null;
+    return record;
+  }
+
+  /**
+   * The remaining records, in the order they appear in the file. Closing the stream closes this reader
+   * @return
+   */
+  public Stream<MolRecord> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+      try {
+        close();
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private MolRecord readRecord() throws IOException {
+    //offset from the start of the record of the line being scanned, which is retained when more of the file is read
+    int lineOffset = 0;
+    if (windowOffset + pos >= end) {
+      return null;
+    }
+    while (true) {
+      int limit = window.limit();
+      int i = pos + lineOffset;
+      while (i < limit) {
+        int nl = indexOfNewline(i, limit);
+        if (nl < 0 && !eof) {
+          break;
+        }
+        int lineEnd = nl >= 0 ? nl + 1 : limit;
+        if (isTerminator(i, lineEnd)) {
+          MolRecord record = createRecord(pos, i);
+          pos = lineEnd;
+          return record;
+        }
+        i = lineEnd;
+      }
+      lineOffset = i - pos;
+      if (eof) {
+        if (i == pos) {
+          return null;
+        }
+        //last record may not be terminated
+        int start = pos;
+        pos = limit;
+        if (isBlank(start, limit)) {
+          return null;
+        }
+        return createRecord(start, limit);
+      }
+      fill();
+    }
+  }
+
+  private boolean isTerminator(int start, int end) {
+    return end - start >= 4 && window.get(start) == '$' && window.get(start + 1) == '$' && window.get(start + 2) == '$' && window.get(start + 3) == '$';
+  }
+
+  private int indexOfNewline(int start, int end) {
+    ByteBuffer window = this.window;
+    for (int i = start; i < end; i++) {
+      if (window.get(i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isBlank(int start, int end) {
+    for (int i = start; i < end; i++) {
+      byte b = window.get(i);
+      if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private MolRecord createRecord(int start, int end) {
+    ByteBuffer bytes;
+    if (file != null) {
+      //a view of the mapping, which stays mapped for as long as the record is referenced
+      ByteBuffer view = window.duplicate();
+      view.limit(end);
+      view.position(start);
+      bytes = view.slice();
+    }
+    else {
+      //the buffer is reused, so the record needs its own copy
+      byte[] copy = new byte[end - start];
+      ByteBuffer view = window.duplicate();
+      view.position(start);
+      view.get(copy);
+      bytes = ByteBuffer.wrap(copy);
+    }
+    MolRecord record = new MolRecord(bytes, index, windowOffset + start);
+    if (index >= 0) {
+      index++;
+    }
+    return record;
+  }
+
+  /**
+   * Reads more of the file, such that the start of the current record is at the start of the window
+   * @throws IOException
+   */
+  private void fill() throws IOException {
+    if (file != null) {
+      map();
+      return;
+    }
+    if (pos == 0 && window.limit() == window.capacity()) {
+      //the record does not fit in the buffer
+      if (window.capacity() == Integer.MAX_VALUE) {
+        throw new IOException("SD file record exceeds " + Integer.MAX_VALUE + " bytes");
+      }
+      ByteBuffer larger = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, window.capacity() * 2L));
+      larger.put(window);
+      window = larger;
+    }
+    else {
+      window.position(pos);
+      window.compact();
+    }
+    windowOffset += pos;
+    pos = 0;
+    int read;
+    do {
+      read = channel.read(window);
+    }
+    while (read == 0 && window.hasRemaining());
+    if (read < 0) {
+      eof = true;
+    }
+    window.flip();
+  }
+
+  private void map() throws IOException {
+    long start = windowOffset + pos;
+    long size;
+    if (pos == 0 && window.limit() > 0) {
+      //the record does not fit in the window
+      size = window.limit() * 2L;
+    }
+    else {
+      //only map as much as is needed for the range of records being read
+      size = Math.max(MIN_WINDOW_SIZE, Math.min(windowSize, end - start));
+    }
+    size = Math.min(size, file.size() - start);
+    if (size > Integer.MAX_VALUE) {
+      if (pos == 0 && window.limit() == Integer.MAX_VALUE) {
+        throw new IOException("SD file record exceeds " + Integer.MAX_VALUE + " bytes");
+      }
+      size = Integer.MAX_VALUE;
+    }
+    window = file.map(FileChannel.MapMode.READ_ONLY, start, size);
+    windowOffset = start;
+    pos = 0;
+    eof = start + size == file.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    next = null;
+    if (file != null) {
+      file.close();
+    }
+    else {
+      channel.close();
+    }
+  }
+
+}
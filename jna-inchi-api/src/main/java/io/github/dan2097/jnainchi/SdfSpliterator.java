@@ -0,0 +1,173 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a memory-mapped SD file into byte ranges, each of which is moved forward to the start of the next record, so the ranges can be read in parallel.
+ * A range covers the records that start within it, the last of which may end after the range.
+ * Once traversal has started a range is no longer split
+ */
+class SdfSpliterator implements Spliterator<MolRecord> {
+
+  private static final int SCAN_BLOCK_SIZE = 1 << 12;
+
+  private final FileChannel file;
+  private final int windowSize;
+  private final long minSplitSize;
+  //start of a record, or the end of the file
+  private long start;
+  private final long end;
+  private SdfReader reader;
+
+  SdfSpliterator(FileChannel file, int windowSize, long minSplitSize) throws IOException {
+    this(file, windowSize, minSplitSize, 0, file.size());
+  }
+
+  private SdfSpliterator(FileChannel file, int windowSize, long minSplitSize, long start, long end) {
+    this.file = file;
+    this.windowSize = windowSize;
+    this.minSplitSize = minSplitSize;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super MolRecord> action) {
+    try {
+      if (reader == null) {
+        reader = new SdfReader(file, windowSize, start, end, -1);
+      }
+      if (!reader.hasNext()) {
+        return false;
+      }
+      action.accept(reader.next());
+      return true;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Spliterator<MolRecord> trySplit() {
+    if (reader != null || end - start < minSplitSize * 2) {
+      return null;
+    }
+    try {
+      long mid = recordStartAtOrAfter(start + (end - start) / 2);
+      if (mid >= end) {
+        return null;
+      }
+      SdfSpliterator prefix = new SdfSpliterator(file, windowSize, minSplitSize, start, mid);
+      start = mid;
+      return prefix;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param pos
+   * @return the start of the first record at or after pos, or the end of the file if there isn't one
+   * @throws IOException
+   */
+  long recordStartAtOrAfter(long pos) throws IOException {
+    long size = file.size();
+    if (pos <= 0) {
+      return 0;
+    }
+    ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+    //back up to the start of the line containing pos - 1, as a $$$$ line ending at pos ends the previous record
+    long lineStart = pos - 1;
+    while (lineStart > 0) {
+      long blockStart = Math.max(0, lineStart - SCAN_BLOCK_SIZE);
+      int len = read(block, blockStart, (int) (lineStart - blockStart));
+      int i = len - 1;
+      while (i >= 0 && block.get(i) != '\n') {
+        i--;
+      }
+      if (i >= 0) {
+        lineStart = blockStart + i + 1;
+        break;
+      }
+      lineStart = blockStart;
+    }
+    //then look for the next $$$$ line
+    boolean atLineStart = true;
+    int dollars = 0;
+    boolean terminator = false;
+    long blockStart = lineStart;
+    while (blockStart < size) {
+      int len = read(block, blockStart, (int) Math.min(SCAN_BLOCK_SIZE, size - blockStart));
+      for (int i = 0; i < len; i++) {
+        byte b = block.get(i);
+        if (b == '\n') {
+          if (terminator) {
+            return blockStart + i + 1;
+          }
+          atLineStart = true;
+          dollars = 0;
+          continue;
+        }
+        if (atLineStart) {
+          if (b == '$') {
+            if (++dollars == 4) {
+              terminator = true;
+              atLineStart = false;
+            }
+          }
+          else {
+            atLineStart = false;
+          }
+        }
+      }
+      blockStart += len;
+    }
+    return size;
+  }
+
+  private int read(ByteBuffer block, long position, int len) throws IOException {
+    block.clear();
+    block.limit(len);
+    while (block.hasRemaining()) {
+      if (file.read(block, position + block.position()) < 0) {
+        break;
+      }
+    }
+    return block.position();
+  }
+
+  @Override
+  public long estimateSize() {
+    return end - start;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL | IMMUTABLE;
+  }
+
+}
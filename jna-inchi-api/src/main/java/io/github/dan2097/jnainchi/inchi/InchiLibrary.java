@@ -236,6 +236,7 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int GetINCHI(tagINCHI_Input inp, tagINCHI_Output out);
+  
   /**
    * Original signature : <code>int GetStdINCHI(inchi_Input*, inchi_Output*)</code><br>
    * @param inp
@@ -251,6 +252,15 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int GetINCHIEx(inchi_InputEx inp, tagINCHI_Output out);
+  /**
+   * As {@link #GetINCHIEx(inchi_InputEx, tagINCHI_Output)}, but with inp pointing at a pre-populated inchi_InputEx struct
+   * (along with the atoms and stereo elements it references) e.g. a block of memory prepared without using {@link inchi_InputEx}<br>
+   * Original signature : <code>int GetINCHIEx(inchi_InputEx*, inchi_Output*)</code><br>
+   * @param inp
+   * @param out
+   * @return
+   */
+  public static native int GetINCHIEx(Pointer inp, tagINCHI_Output out);
   /**
    * ^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^<br>
    * FreeINCHI / FreeStdINCHI<br>
@@ -486,6 +496,16 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int INCHIGEN_Setup(Pointer HGen, tagINCHIGEN_DATA pGenData, tagINCHI_Input pInp);
+  /**
+   * As {@link #INCHIGEN_Setup(Pointer, tagINCHIGEN_DATA, tagINCHI_Input)}, but with pInp pointing at a pre-populated inchi_Input struct
+   * (along with the atoms and stereo elements it references) e.g. a block of memory prepared without using {@link tagINCHI_Input}<br>
+   * Original signature : <code>int INCHIGEN_Setup(INCHIGEN_HANDLE, INCHIGEN_DATA*, inchi_Input*)</code><br>
+   * @param HGen
+   * @param pGenData
+   * @param pInp
+   * @return
+   */
+  public static native int INCHIGEN_Setup(Pointer HGen, tagINCHIGEN_DATA pGenData, Pointer pInp);
   /**
    * Original signature : <code>int STDINCHIGEN_Setup(INCHIGEN_HANDLE, INCHIGEN_DATA*, inchi_Input*)</code><br>
    * @param HGen
@@ -594,6 +614,14 @@ public class InchiLibrary implements Library {
    * @return
    */
   public static native int MakeINCHIFromMolfileText(String moltext, String options, tagINCHI_Output result);
+  /**
+   * As {@link #MakeINCHIFromMolfileText(String, String, tagINCHI_Output)}, but with moltext pointing at NUL-terminated text that is already in native memory
+   * @param moltext
+   * @param options
+   * @param result
+   * @return
+   */
+  public static native int MakeINCHIFromMolfileText(Pointer moltext, String options, tagINCHI_Output result);
   
   /** enum values */
   public static interface IXA_STATUS {
@@ -0,0 +1,51 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.inchi;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_INCHIKEYBUILDER_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
+
+/**
+ * Equivalent of {@link IxaFunctions#IXA_INCHIBUILDER_GetInChI(IXA_STATUS_HANDLE, IXA_INCHIBUILDER_HANDLE)}, with the InChI returned as a pointer to the NUL-terminated ASCII
+ * string owned by the InChI builder, rather than being decoded into a Java String.
+ * The pointer is only valid until the builder is next used or destroyed.
+ * It can be passed straight back to {@link #IXA_INCHIKEYBUILDER_SetInChI(IXA_STATUS_HANDLE, IXA_INCHIKEYBUILDER_HANDLE, Pointer)}
+ */
+public class IxaCStringFunctions {
+
+  private static class CStrings {
+    static {
+      Native.register(CStrings.class, InchiLibrary.JNA_NATIVE_LIB);
+    }
+    static native Pointer IXA_INCHIBUILDER_GetInChI(Pointer hStatus, Pointer hInChIBuilder);
+    static native void IXA_INCHIKEYBUILDER_SetInChI(Pointer hStatus, Pointer hInChIKeyBuilder, Pointer pInChI);
+  }
+
+  public static Pointer IXA_INCHIBUILDER_GetInChI(IXA_STATUS_HANDLE hStatus, IXA_INCHIBUILDER_HANDLE hInChIBuilder) {
+    return CStrings.IXA_INCHIBUILDER_GetInChI(hStatus.getPointer(), hInChIBuilder.getPointer());
+  }
+
+  public static void IXA_INCHIKEYBUILDER_SetInChI(IXA_STATUS_HANDLE hStatus, IXA_INCHIKEYBUILDER_HANDLE hInChIKeyBuilder, Pointer pInChI) {
+    CStrings.IXA_INCHIKEYBUILDER_SetInChI(hStatus.getPointer(), hInChIKeyBuilder.getPointer(), pInChI);
+  }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.inchi;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_MOL_HANDLE;
+import io.github.dan2097.jnainchi.inchi.IxaFunctions.IXA_STATUS_HANDLE;
+
+/**
+ * Equivalents of the {@link IxaFunctions} used to build a molecule, with atom, bond and stereo ids passed around as primitive longs
+ * rather than being wrapped in {@link IxaFunctions.IXA_ATOMID}/{@link IxaFunctions.IXA_BONDID}/{@link IxaFunctions.IXA_STEREOID} objects.
+ * This allows the ids for a whole molecule to be held in a long[].
+ * <br>
+ * IXA ids are pointer-sized, hence the native functions are bound with either 64-bit or 32-bit integer arguments depending on the platform
+ */
+public class IxaIdFunctions {
+
+  private static final boolean IS_64_BIT = Native.POINTER_SIZE == 8;
+
+  /** Equivalent of {@link IxaFunctions#IXA_ATOMID_IMPLICIT_H} */
+  public static final long IXA_ATOMID_IMPLICIT_H = -1;
+
+  /** Indicates the absence of an id e.g. when {@link #IXA_MOL_GetCommonBond(IXA_STATUS_HANDLE, IXA_MOL_HANDLE, long, long)} finds no bond */
+  public static final long IXA_ID_NONE = 0;
+
+  private static class Ids64 {
+    static {
+      Native.register(Ids64.class, InchiLibrary.JNA_NATIVE_LIB);
+    }
+    static native long IXA_MOL_CreateAtom(Pointer hStatus, Pointer hMolecule);
+    static native void IXA_MOL_SetAtomElement(Pointer hStatus, Pointer hMolecule, long vAtom, byte[] pElement);
+    static native void IXA_MOL_SetAtomMass(Pointer hStatus, Pointer hMolecule, long vAtom, int vMassNumber);
+    static native void IXA_MOL_SetAtomCharge(Pointer hStatus, Pointer hMolecule, long vAtom, int vCharge);
+    static native void IXA_MOL_SetAtomRadical(Pointer hStatus, Pointer hMolecule, long vAtom, int vRadical);
+    static native void IXA_MOL_SetAtomHydrogens(Pointer hStatus, Pointer hMolecule, long vAtom, int vHydrogenMassNumber, int vHydrogenCount);
+    static native void IXA_MOL_SetAtomX(Pointer hStatus, Pointer hMolecule, long vAtom, double vX);
+    static native void IXA_MOL_SetAtomY(Pointer hStatus, Pointer hMolecule, long vAtom, double vY);
+    static native void IXA_MOL_SetAtomZ(Pointer hStatus, Pointer hMolecule, long vAtom, double vZ);
+    static native long IXA_MOL_CreateBond(Pointer hStatus, Pointer hMolecule, long vAtom1, long vAtom2);
+    static native void IXA_MOL_SetBondType(Pointer hStatus, Pointer hMolecule, long vBond, int vType);
+    static native void IXA_MOL_SetBondWedge(Pointer hStatus, Pointer hMolecule, long vBond, long vRefAtom, int vDirection);
+    static native void IXA_MOL_SetDblBondConfig(Pointer hStatus, Pointer hMolecule, long vBond, int vConfig);
+    static native long IXA_MOL_CreateStereoTetrahedron(Pointer hStatus, Pointer hMolecule, long vCentralAtom, long vVertex1, long vVertex2, long vVertex3, long vVertex4);
+    static native long IXA_MOL_CreateStereoRectangle(Pointer hStatus, Pointer hMolecule, long vCentralBond, long vVertex1, long vVertex2, long vVertex3, long vVertex4);
+    static native long IXA_MOL_CreateStereoAntiRectangle(Pointer hStatus, Pointer hMolecule, long vCentralAtom, long vVertex1, long vVertex2, long vVertex3, long vVertex4);
+    static native void IXA_MOL_SetStereoParity(Pointer hStatus, Pointer hMolecule, long vStereo, int vParity);
+    static native long IXA_MOL_GetCommonBond(Pointer hStatus, Pointer hMolecule, long vAtom1, long vAtom2);
+  }
+
+  private static class Ids32 {
+    static {
+      Native.register(Ids32.class, InchiLibrary.JNA_NATIVE_LIB);
+    }
+    static native int IXA_MOL_CreateAtom(Pointer hStatus, Pointer hMolecule);
+    static native void IXA_MOL_SetAtomElement(Pointer hStatus, Pointer hMolecule, int vAtom, byte[] pElement);
+    static native void IXA_MOL_SetAtomMass(Pointer hStatus, Pointer hMolecule, int vAtom, int vMassNumber);
+    static native void IXA_MOL_SetAtomCharge(Pointer hStatus, Pointer hMolecule, int vAtom, int vCharge);
+    static native void IXA_MOL_SetAtomRadical(Pointer hStatus, Pointer hMolecule, int vAtom, int vRadical);
+    static native void IXA_MOL_SetAtomHydrogens(Pointer hStatus, Pointer hMolecule, int vAtom, int vHydrogenMassNumber, int vHydrogenCount);
+    static native void IXA_MOL_SetAtomX(Pointer hStatus, Pointer hMolecule, int vAtom, double vX);
+    static native void IXA_MOL_SetAtomY(Pointer hStatus, Pointer hMolecule, int vAtom, double vY);
+    static native void IXA_MOL_SetAtomZ(Pointer hStatus, Pointer hMolecule, int vAtom, double vZ);
+    static native int IXA_MOL_CreateBond(Pointer hStatus, Pointer hMolecule, int vAtom1, int vAtom2);
+    static native void IXA_MOL_SetBondType(Pointer hStatus, Pointer hMolecule, int vBond, int vType);
+    static native void IXA_MOL_SetBondWedge(Pointer hStatus, Pointer hMolecule, int vBond, int vRefAtom, int vDirection);
+    static native void IXA_MOL_SetDblBondConfig(Pointer hStatus, Pointer hMolecule, int vBond, int vConfig);
+    static native int IXA_MOL_CreateStereoTetrahedron(Pointer hStatus, Pointer hMolecule, int vCentralAtom, int vVertex1, int vVertex2, int vVertex3, int vVertex4);
+    static native int IXA_MOL_CreateStereoRectangle(Pointer hStatus, Pointer hMolecule, int vCentralBond, int vVertex1, int vVertex2, int vVertex3, int vVertex4);
+    static native int IXA_MOL_CreateStereoAntiRectangle(Pointer hStatus, Pointer hMolecule, int vCentralAtom, int vVertex1, int vVertex2, int vVertex3, int vVertex4);
+    static native void IXA_MOL_SetStereoParity(Pointer hStatus, Pointer hMolecule, int vStereo, int vParity);
+    static native int IXA_MOL_GetCommonBond(Pointer hStatus, Pointer hMolecule, int vAtom1, int vAtom2);
+  }
+
+  public static long IXA_MOL_CreateAtom(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_CreateAtom(hStatus.getPointer(), hMolecule.getPointer());
+    }
+    else {
+      return Ids32.IXA_MOL_CreateAtom(hStatus.getPointer(), hMolecule.getPointer());
+    }
+  }
+
+  public static void IXA_MOL_SetAtomElement(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, String pElement) {
+    IXA_MOL_SetAtomElement(hStatus, hMolecule, vAtom, fromString(pElement));
+  }
+
+  /**
+   * As {@link #IXA_MOL_SetAtomElement(IXA_STATUS_HANDLE, IXA_MOL_HANDLE, long, String)} with an already NUL-terminated element symbol
+   * @param hStatus
+   * @param hMolecule
+   * @param vAtom
+   * @param pElement
+   */
+  public static void IXA_MOL_SetAtomElement(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, byte[] pElement) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomElement(hStatus.getPointer(), hMolecule.getPointer(), vAtom, pElement);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomElement(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, pElement);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomMass(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, int vMassNumber) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomMass(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vMassNumber);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomMass(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vMassNumber);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomCharge(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, int vCharge) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomCharge(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vCharge);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomCharge(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vCharge);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomRadical(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, int vRadical) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomRadical(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vRadical);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomRadical(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vRadical);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomHydrogens(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, int vHydrogenMassNumber, int vHydrogenCount) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomHydrogens(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vHydrogenMassNumber, vHydrogenCount);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomHydrogens(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vHydrogenMassNumber, vHydrogenCount);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomX(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, double vX) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomX(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vX);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomX(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vX);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomY(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, double vY) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomY(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vY);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomY(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vY);
+    }
+  }
+
+  public static void IXA_MOL_SetAtomZ(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom, double vZ) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetAtomZ(hStatus.getPointer(), hMolecule.getPointer(), vAtom, vZ);
+    }
+    else {
+      Ids32.IXA_MOL_SetAtomZ(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom, vZ);
+    }
+  }
+
+  public static long IXA_MOL_CreateBond(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom1, long vAtom2) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_CreateBond(hStatus.getPointer(), hMolecule.getPointer(), vAtom1, vAtom2);
+    }
+    else {
+      return Ids32.IXA_MOL_CreateBond(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom1, (int) vAtom2);
+    }
+  }
+
+  public static void IXA_MOL_SetBondType(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vBond, int vType) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetBondType(hStatus.getPointer(), hMolecule.getPointer(), vBond, vType);
+    }
+    else {
+      Ids32.IXA_MOL_SetBondType(hStatus.getPointer(), hMolecule.getPointer(), (int) vBond, vType);
+    }
+  }
+
+  public static void IXA_MOL_SetBondWedge(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vBond, long vRefAtom, int vDirection) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetBondWedge(hStatus.getPointer(), hMolecule.getPointer(), vBond, vRefAtom, vDirection);
+    }
+    else {
+      Ids32.IXA_MOL_SetBondWedge(hStatus.getPointer(), hMolecule.getPointer(), (int) vBond, (int) vRefAtom, vDirection);
+    }
+  }
+
+  public static void IXA_MOL_SetDblBondConfig(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vBond, int vConfig) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetDblBondConfig(hStatus.getPointer(), hMolecule.getPointer(), vBond, vConfig);
+    }
+    else {
+      Ids32.IXA_MOL_SetDblBondConfig(hStatus.getPointer(), hMolecule.getPointer(), (int) vBond, vConfig);
+    }
+  }
+
+  public static long IXA_MOL_CreateStereoTetrahedron(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vCentralAtom, long vVertex1, long vVertex2, long vVertex3, long vVertex4) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_CreateStereoTetrahedron(hStatus.getPointer(), hMolecule.getPointer(), vCentralAtom, vVertex1, vVertex2, vVertex3, vVertex4);
+    }
+    else {
+      return Ids32.IXA_MOL_CreateStereoTetrahedron(hStatus.getPointer(), hMolecule.getPointer(), (int) vCentralAtom, (int) vVertex1, (int) vVertex2, (int) vVertex3, (int) vVertex4);
+    }
+  }
+
+  public static long IXA_MOL_CreateStereoRectangle(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vCentralBond, long vVertex1, long vVertex2, long vVertex3, long vVertex4) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_CreateStereoRectangle(hStatus.getPointer(), hMolecule.getPointer(), vCentralBond, vVertex1, vVertex2, vVertex3, vVertex4);
+    }
+    else {
+      return Ids32.IXA_MOL_CreateStereoRectangle(hStatus.getPointer(), hMolecule.getPointer(), (int) vCentralBond, (int) vVertex1, (int) vVertex2, (int) vVertex3, (int) vVertex4);
+    }
+  }
+
+  public static long IXA_MOL_CreateStereoAntiRectangle(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vCentralAtom, long vVertex1, long vVertex2, long vVertex3, long vVertex4) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_CreateStereoAntiRectangle(hStatus.getPointer(), hMolecule.getPointer(), vCentralAtom, vVertex1, vVertex2, vVertex3, vVertex4);
+    }
+    else {
+      return Ids32.IXA_MOL_CreateStereoAntiRectangle(hStatus.getPointer(), hMolecule.getPointer(), (int) vCentralAtom, (int) vVertex1, (int) vVertex2, (int) vVertex3, (int) vVertex4);
+    }
+  }
+
+  public static void IXA_MOL_SetStereoParity(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vStereo, int vParity) {
+    if (IS_64_BIT) {
+      Ids64.IXA_MOL_SetStereoParity(hStatus.getPointer(), hMolecule.getPointer(), vStereo, vParity);
+    }
+    else {
+      Ids32.IXA_MOL_SetStereoParity(hStatus.getPointer(), hMolecule.getPointer(), (int) vStereo, vParity);
+    }
+  }
+
+  public static long IXA_MOL_GetCommonBond(IXA_STATUS_HANDLE hStatus, IXA_MOL_HANDLE hMolecule, long vAtom1, long vAtom2) {
+    if (IS_64_BIT) {
+      return Ids64.IXA_MOL_GetCommonBond(hStatus.getPointer(), hMolecule.getPointer(), vAtom1, vAtom2);
+    }
+    else {
+      return Ids32.IXA_MOL_GetCommonBond(hStatus.getPointer(), hMolecule.getPointer(), (int) vAtom1, (int) vAtom2);
+    }
+  }
+
+  private static byte[] fromString(String jstr) {
+    int strLen = jstr.length();
+    byte[] cstr = new byte[strLen + 1];
+    for (int i = 0; i < strLen; i++) {
+      cstr[i] = (byte) jstr.charAt(i);
+    }
+    cstr[strLen] = '\0';
+    return cstr;
+  }
+
+}
@@ -27,6 +27,17 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class inchi_InputEx extends Structure implements ByReference {
+  public static final int SIZE;
+  public static final int POLYMER_OFFSET;
+  public static final int V3000_OFFSET;
+  
+  static {
+    inchi_InputEx layout = new inchi_InputEx();
+    SIZE = layout.size();
+    POLYMER_OFFSET = layout.fieldOffset("polymer");
+    V3000_OFFSET = layout.fieldOffset("v3000");
+  }
+  
   /**
    * array of num_atoms elements<br>
    * C type : inchi_Atom*
@@ -92,5 +103,9 @@ public class inchi_InputEx extends Structure implements ByReference {
     this.polymer = polymer;
     this.v3000 = v3000;
   }
+  
+  public inchi_InputEx() {
+    super();
+  }
 
 }
@@ -27,6 +27,19 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class tagINCHIGEN_DATA extends Structure implements ByReference {
+  
+  /*
+   * Native layout of this struct, allowing the fields to be read directly from native memory
+   */
+  public static final int PSTRERRSTRUCT_OFFSET;
+  public static final int NUM_COMPONENTS_OFFSET;
+  
+  static {
+    tagINCHIGEN_DATA layout = new tagINCHIGEN_DATA();
+    PSTRERRSTRUCT_OFFSET = layout.fieldOffset("pStrErrStruct");
+    NUM_COMPONENTS_OFFSET = layout.fieldOffset("num_components");
+  }
+  
   /**
    * intermediate log (warning/error report)<br>
    * C type : char[256]
@@ -45,6 +58,9 @@ public class tagINCHIGEN_DATA extends Structure implements ByReference {
   protected List<String> getFieldOrder() {
     return Arrays.asList("pStrErrStruct", "num_components", "NormAtomsNontaut", "NormAtomsTaut");
   }
+  public tagINCHIGEN_DATA() {
+    super();
+  }
   /**
    * @param pStrErrStruct intermediate log (warning/error report)<br>
    * C type : char[256]<br>
@@ -27,6 +27,25 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class tagINCHIStereo0D extends Structure implements ByReference {
+  
+  /*
+   * Native layout of this struct, allowing an array of stereo elements to be read/written directly from/to a block of memory
+   */
+  public static final int SIZE;
+  public static final int NEIGHBOR_OFFSET;
+  public static final int CENTRAL_ATOM_OFFSET;
+  public static final int TYPE_OFFSET;
+  public static final int PARITY_OFFSET;
+  
+  static {
+    tagINCHIStereo0D layout = new tagINCHIStereo0D();
+    SIZE = layout.size();
+    NEIGHBOR_OFFSET = layout.fieldOffset("neighbor");
+    CENTRAL_ATOM_OFFSET = layout.fieldOffset("central_atom");
+    TYPE_OFFSET = layout.fieldOffset("type");
+    PARITY_OFFSET = layout.fieldOffset("parity");
+  }
+  
   /**
    * 4 atoms always<br>
    * C type : AT_NUM[4]
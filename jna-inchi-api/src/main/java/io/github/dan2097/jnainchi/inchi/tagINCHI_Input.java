@@ -27,6 +27,27 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class tagINCHI_Input extends Structure implements ByReference {
+  
+  /*
+   * Native layout of this struct, allowing it to be written directly to a block of memory
+   */
+  public static final int SIZE;
+  public static final int ATOM_OFFSET;
+  public static final int STEREO0D_OFFSET;
+  public static final int SZOPTIONS_OFFSET;
+  public static final int NUM_ATOMS_OFFSET;
+  public static final int NUM_STEREO0D_OFFSET;
+  
+  static {
+    tagINCHI_Input layout = new tagINCHI_Input();
+    SIZE = layout.size();
+    ATOM_OFFSET = layout.fieldOffset("atom");
+    STEREO0D_OFFSET = layout.fieldOffset("stereo0D");
+    SZOPTIONS_OFFSET = layout.fieldOffset("szOptions");
+    NUM_ATOMS_OFFSET = layout.fieldOffset("num_atoms");
+    NUM_STEREO0D_OFFSET = layout.fieldOffset("num_stereo0D");
+  }
+  
   /**
    * array of num_atoms elements<br>
    * C type : inchi_Atom*
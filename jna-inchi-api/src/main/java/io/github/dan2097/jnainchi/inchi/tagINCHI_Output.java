@@ -27,6 +27,23 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class tagINCHI_Output extends Structure implements ByReference {
+  
+  /*
+   * Native layout of this struct, allowing the strings to be read directly from native memory
+   */
+  public static final int SZINCHI_OFFSET;
+  public static final int SZAUXINFO_OFFSET;
+  public static final int SZMESSAGE_OFFSET;
+  public static final int SZLOG_OFFSET;
+  
+  static {
+    tagINCHI_Output layout = new tagINCHI_Output();
+    SZINCHI_OFFSET = layout.fieldOffset("szInChI");
+    SZAUXINFO_OFFSET = layout.fieldOffset("szAuxInfo");
+    SZMESSAGE_OFFSET = layout.fieldOffset("szMessage");
+    SZLOG_OFFSET = layout.fieldOffset("szLog");
+  }
+  
   /**
    * InChI ASCIIZ string<br>
    * C type : char*
@@ -27,6 +27,41 @@ import com.sun.jna.Structure.ByReference;
  * For help, please visit <a href="http://nativelibs4java.googlecode.com/">NativeLibs4Java</a> , <a href="http://rococoa.dev.java.net/">Rococoa</a>, or <a href="http://jna.dev.java.net/">JNA</a>.
  */
 public class tagInchiAtom extends Structure implements ByReference {
+  
+  /*
+   * Native layout of this struct, allowing an array of atoms to be read/written directly from/to a block of memory
+   */
+  public static final int SIZE;
+  public static final int X_OFFSET;
+  public static final int Y_OFFSET;
+  public static final int Z_OFFSET;
+  public static final int NEIGHBOR_OFFSET;
+  public static final int BOND_TYPE_OFFSET;
+  public static final int BOND_STEREO_OFFSET;
+  public static final int ELNAME_OFFSET;
+  public static final int NUM_BONDS_OFFSET;
+  public static final int NUM_ISO_H_OFFSET;
+  public static final int ISOTOPIC_MASS_OFFSET;
+  public static final int RADICAL_OFFSET;
+  public static final int CHARGE_OFFSET;
+  
+  static {
+    tagInchiAtom layout = new tagInchiAtom();
+    SIZE = layout.size();
+    X_OFFSET = layout.fieldOffset("x");
+    Y_OFFSET = layout.fieldOffset("y");
+    Z_OFFSET = layout.fieldOffset("z");
+    NEIGHBOR_OFFSET = layout.fieldOffset("neighbor");
+    BOND_TYPE_OFFSET = layout.fieldOffset("bond_type");
+    BOND_STEREO_OFFSET = layout.fieldOffset("bond_stereo");
+    ELNAME_OFFSET = layout.fieldOffset("elname");
+    NUM_BONDS_OFFSET = layout.fieldOffset("num_bonds");
+    NUM_ISO_H_OFFSET = layout.fieldOffset("num_iso_H");
+    ISOTOPIC_MASS_OFFSET = layout.fieldOffset("isotopic_mass");
+    RADICAL_OFFSET = layout.fieldOffset("radical");
+    CHARGE_OFFSET = layout.fieldOffset("charge");
+  }
+  
   public double x;
   public double y;
   public double z;
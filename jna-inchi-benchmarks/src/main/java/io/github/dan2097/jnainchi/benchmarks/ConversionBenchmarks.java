@@ -0,0 +1,97 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.dan2097.jnainchi.InchiInput;
+import io.github.dan2097.jnainchi.JnaInchi;
+import io.github.dan2097.jnainchi.SmilesToInchi;
+
+/**
+ * Benchmarks of each public conversion. Each operation converts every molecule of the {@link Dataset},
+ * so scores are per pass over the bucket and should only be compared within a bucket.
+ * The thread count is set by the subclasses
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class ConversionBenchmarks {
+
+  @Benchmark
+  public void toInchi(Dataset data, Blackhole bh) {
+    for (InchiInput inchiInput : data.inchiInputs) {
+      bh.consume(JnaInchi.toInchi(inchiInput, data.options));
+    }
+  }
+
+  @Benchmark
+  public void molToInchi(Dataset data, Blackhole bh) {
+    for (String molfile : data.molfiles) {
+      bh.consume(JnaInchi.molToInchi(molfile, data.options));
+    }
+  }
+
+  @Benchmark
+  public void inchiToInchi(Dataset data, Blackhole bh) {
+    for (String inchi : data.inchis) {
+      bh.consume(JnaInchi.inchiToInchi(inchi, data.options));
+    }
+  }
+
+  @Benchmark
+  public void inchiToInchiKey(Dataset data, Blackhole bh) {
+    for (String inchi : data.inchis) {
+      bh.consume(JnaInchi.inchiToInchiKey(inchi));
+    }
+  }
+
+  @Benchmark
+  public void getInchiInputFromInchi(Dataset data, Blackhole bh) {
+    for (String inchi : data.inchis) {
+      bh.consume(JnaInchi.getInchiInputFromInchi(inchi, data.options));
+    }
+  }
+
+  @Benchmark
+  public void getInchiInputFromAuxInfo(Dataset data, Blackhole bh) {
+    for (String auxInfo : data.auxInfos) {
+      bh.consume(JnaInchi.getInchiInputFromAuxInfo(auxInfo, false, false));
+    }
+  }
+
+  @Benchmark
+  public void smilesToInchi(Dataset data, Blackhole bh) throws IOException {
+    for (String smiles : data.smiles) {
+      bh.consume(SmilesToInchi.toInchi(smiles, data.options));
+    }
+  }
+
+}
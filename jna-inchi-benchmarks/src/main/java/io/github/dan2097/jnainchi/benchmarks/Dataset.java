@@ -0,0 +1,109 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.github.dan2097.jnainchi.InchiFlag;
+import io.github.dan2097.jnainchi.InchiInput;
+import io.github.dan2097.jnainchi.InchiInputFromInchiOutput;
+import io.github.dan2097.jnainchi.InchiOptions;
+import io.github.dan2097.jnainchi.InchiOutput;
+import io.github.dan2097.jnainchi.InchiStatus;
+import io.github.dan2097.jnainchi.JnaInchi;
+import io.github.dan2097.jnainchi.SmilesToInchi;
+
+/**
+ * One of the bundled sets of molecules, with each molecule prepared in every input format that the benchmarks need.
+ * <ul>
+ * <li>small: solvents, reagents, salts and simple isotopologues</li>
+ * <li>druglike: marketed drugs and natural products</li>
+ * <li>large: peptides, polyethers and dendrimers of 100-999 heavy atoms</li>
+ * <li>largemolecules: as large but over 999 heavy atoms, hence converted with {@link InchiFlag#LargeMolecules}</li>
+ * </ul>
+ * The SMILES are read from the bucket's .smi file, the other formats are derived from these during setup so are not timed
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+  @Param({"small", "druglike", "large", "largemolecules"})
+  public String bucket;
+
+  InchiOptions options;
+  List<String> smiles;
+  List<InchiInput> inchiInputs;
+  List<String> molfiles;
+  List<String> inchis;
+  List<String> auxInfos;
+
+  @Setup(Level.Trial)
+  public void load() throws IOException {
+    options = "largemolecules".equals(bucket) ? new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.LargeMolecules).build() : InchiOptions.DEFAULT_OPTIONS;
+    smiles = readSmiles(bucket + ".smi");
+    inchiInputs = new ArrayList<>();
+    molfiles = new ArrayList<>();
+    inchis = new ArrayList<>();
+    auxInfos = new ArrayList<>();
+    for (String smi : smiles) {
+      InchiOutput output = SmilesToInchi.toInchi(smi, options);
+      if (output.getStatus() == InchiStatus.ERROR) {
+        throw new IllegalStateException("Failed to convert " + smi + ": " + output.getMessage());
+      }
+      inchis.add(output.getInchi());
+      auxInfos.add(output.getAuxInfo());
+      InchiInputFromInchiOutput inputFromInchi = JnaInchi.getInchiInputFromInchi(output.getInchi(), options);
+      if (inputFromInchi.getStatus() == InchiStatus.ERROR) {
+        throw new IllegalStateException("Failed to read back " + output.getInchi() + ": " + inputFromInchi.getMessage());
+      }
+      inchiInputs.add(inputFromInchi.getInchiInput());
+      molfiles.add(Molfiles.toMolfile(inputFromInchi.getInchiInput()));
+    }
+  }
+
+  private static List<String> readSmiles(String resourceName) throws IOException {
+    InputStream is = Dataset.class.getResourceAsStream(resourceName);
+    if (is == null) {
+      throw new IOException("Dataset not found: " + resourceName);
+    }
+    List<String> smiles = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        int tab = line.indexOf('\t');
+        smiles.add(tab >= 0 ? line.substring(0, tab) : line);
+      }
+    }
+    return smiles;
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.benchmarks;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.github.dan2097.jnainchi.InchiAtom;
+import io.github.dan2097.jnainchi.InchiBond;
+import io.github.dan2097.jnainchi.InchiInput;
+
+/**
+ * Minimal molfile writer, used to give {@link io.github.dan2097.jnainchi.JnaInchi#molToInchi(String)} inputs of the same molecules as the other benchmarks.
+ * Only the connection table, charges and isotopes are written, atoms are placed at the origin and hydrogen counts are left for InChI to perceive.
+ * V3000 is used when the V2000 atom/bond count fields would overflow
+ */
+class Molfiles {
+
+  private static final int V2000_MAX = 999;
+
+  private Molfiles() {}
+
+  static String toMolfile(InchiInput input) {
+    List<InchiAtom> atoms = input.getAtoms();
+    List<InchiBond> bonds = input.getBonds();
+    Map<InchiAtom, Integer> atomNumbers = new IdentityHashMap<>();
+    for (int i = 0; i < atoms.size(); i++) {
+      atomNumbers.put(atoms.get(i), i + 1);
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("\n  jna-inchi\n\n");
+    if (atoms.size() > V2000_MAX || bonds.size() > V2000_MAX) {
+      writeV3000(sb, atoms, bonds, atomNumbers);
+    }
+    else {
+      writeV2000(sb, atoms, bonds, atomNumbers);
+    }
+    sb.append("M  END\n");
+    return sb.toString();
+  }
+
+  private static void writeV2000(StringBuilder sb, List<InchiAtom> atoms, List<InchiBond> bonds, Map<InchiAtom, Integer> atomNumbers) {
+    int bondCount = countBonds(bonds);
+    sb.append(String.format(Locale.ROOT, "%3d%3d  0  0  0  0  0  0  0  0999 V2000\n", atoms.size(), bondCount));
+    for (InchiAtom atom : atoms) {
+      sb.append(String.format(Locale.ROOT, "    0.0000    0.0000    0.0000 %-3s 0  0  0  0  0  0  0  0  0  0  0  0\n", atom.getElName()));
+    }
+    for (InchiBond bond : bonds) {
+      int order = bondOrder(bond);
+      if (order > 0) {
+        sb.append(String.format(Locale.ROOT, "%3d%3d%3d  0  0  0  0\n", atomNumbers.get(bond.getStart()), atomNumbers.get(bond.getEnd()), order));
+      }
+    }
+    for (InchiAtom atom : atoms) {
+      if (atom.getCharge() != 0) {
+        sb.append(String.format(Locale.ROOT, "M  CHG  1 %3d %3d\n", atomNumbers.get(atom), atom.getCharge()));
+      }
+      if (atom.getIsotopicMass() != 0) {
+        sb.append(String.format(Locale.ROOT, "M  ISO  1 %3d %3d\n", atomNumbers.get(atom), atom.getIsotopicMass()));
+      }
+    }
+  }
+
+  private static void writeV3000(StringBuilder sb, List<InchiAtom> atoms, List<InchiBond> bonds, Map<InchiAtom, Integer> atomNumbers) {
+    int bondCount = countBonds(bonds);
+    sb.append("  0  0  0     0  0            999 V3000\n");
+    sb.append("M  V30 BEGIN CTAB\n");
+    sb.append("M  V30 COUNTS ").append(atoms.size()).append(' ').append(bondCount).append(" 0 0 0\n");
+    sb.append("M  V30 BEGIN ATOM\n");
+    for (InchiAtom atom : atoms) {
+      sb.append("M  V30 ").append(atomNumbers.get(atom)).append(' ').append(atom.getElName()).append(" 0 0 0 0");
+      if (atom.getCharge() != 0) {
+        sb.append(" CHG=").append(atom.getCharge());
+      }
+      if (atom.getIsotopicMass() != 0) {
+        sb.append(" MASS=").append(atom.getIsotopicMass());
+      }
+      sb.append('\n');
+    }
+    sb.append("M  V30 END ATOM\n");
+    sb.append("M  V30 BEGIN BOND\n");
+    int bondNumber = 0;
+    for (InchiBond bond : bonds) {
+      int order = bondOrder(bond);
+      if (order > 0) {
+        sb.append("M  V30 ").append(++bondNumber).append(' ').append(order).append(' ')
+          .append(atomNumbers.get(bond.getStart())).append(' ').append(atomNumbers.get(bond.getEnd())).append('\n');
+      }
+    }
+    sb.append("M  V30 END BOND\n");
+    sb.append("M  V30 END CTAB\n");
+  }
+
+  private static int countBonds(List<InchiBond> bonds) {
+    int bondCount = 0;
+    for (InchiBond bond : bonds) {
+      if (bondOrder(bond) > 0) {
+        bondCount++;
+      }
+    }
+    return bondCount;
+  }
+
+  /**
+   * @param bond
+   * @return molfile bond type, or 0 if the bond should be omitted
+   */
+  private static int bondOrder(InchiBond bond) {
+    switch (bond.getType()) {
+    case SINGLE:
+      return 1;
+    case DOUBLE:
+      return 2;
+    case TRIPLE:
+      return 3;
+    case ALTERN:
+      return 4;
+    default:
+      return 0;
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of consecutive records that are converted together by one worker, which amortizes the cost of handing work between threads
+ */
+final class Chunk {
+
+  final List<Record> records;
+  //the UTF-8 encoded output lines, populated by the worker
+  byte[] output;
+  int succeeded;
+  int warnings;
+  int failed;
+  final List<String> failures = new ArrayList<>();
+
+  Chunk(List<Record> records) {
+    this.records = records;
+  }
+
+}
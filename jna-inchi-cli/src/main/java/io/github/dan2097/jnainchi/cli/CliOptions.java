@@ -0,0 +1,201 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+import io.github.dan2097.jnainchi.InchiFlag;
+import io.github.dan2097.jnainchi.InchiOptions;
+import io.github.dan2097.jnainchi.InchiOutputField;
+
+/**
+ * The parsed command line of {@link InchiCli}
+ */
+final class CliOptions {
+
+  static final String STDIO = "-";
+
+  static final String USAGE =
+      "Usage: java -jar jna-inchi-cli.jar [options] [input [output]]\n" +
+      "Converts SMILES, SD files or InChIs to InChI, InChIKey and/or AuxInfo, writing one tab-separated line per record.\n" +
+      "The input and output default to, or may be given as, - for stdin and stdout. A summary is written to stderr.\n" +
+      "  -f, --format smiles|sdf|inchi  input format, by default taken from the input file extension, otherwise smiles\n" +
+      "  -o, --output COLUMN,...        columns to write from inchi, inchikey and auxinfo, default inchi,inchikey\n" +
+      "  -t, --threads N                number of worker threads, default the number of processors\n" +
+      "  -u, --unordered                write results as they complete, rather than in input order\n" +
+      "      --flags FLAG,...           InChI options e.g. SNon,FixedH\n" +
+      "      --timeout MS               InChI timeout per record in milliseconds, default none\n" +
+      "      --id-field NAME            SD file data item to use as the identifier, default the title line\n" +
+      "  -q, --quiet                    do not report individual failures\n" +
+      "  -h, --help                     print this message\n";
+
+  InputFormat format;
+  List<OutputColumn> columns = new ArrayList<>();
+  int threads = Runtime.getRuntime().availableProcessors();
+  boolean unordered;
+  EnumSet<InchiFlag> flags = EnumSet.noneOf(InchiFlag.class);
+  long timeoutMilliSecs;
+  String idField;
+  boolean quiet;
+  boolean help;
+  String input = STDIO;
+  String output = STDIO;
+
+  private CliOptions() {}
+
+  /**
+   * @param args
+   * @return
+   * @throws IllegalArgumentException if the command line is invalid
+   */
+  static CliOptions parse(String[] args) {
+    CliOptions options = new CliOptions();
+    List<String> positional = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      switch (arg) {
+      case "-f":
+      case "--format":
+        options.format = parseEnum(InputFormat.class, arg, value(args, ++i, arg));
+        break;
+      case "-o":
+      case "--output":
+        options.columns.clear();
+        for (String column : value(args, ++i, arg).split(",")) {
+          OutputColumn outputColumn = parseEnum(OutputColumn.class, arg, column.trim());
+          if (options.columns.contains(outputColumn)) {
+            throw new IllegalArgumentException("Duplicated column for " + arg + ": " + column);
+          }
+          options.columns.add(outputColumn);
+        }
+        break;
+      case "-t":
+      case "--threads":
+        options.threads = parsePositiveInt(arg, value(args, ++i, arg));
+        break;
+      case "-u":
+      case "--unordered":
+        options.unordered = true;
+        break;
+      case "--flags":
+        for (String flag : value(args, ++i, arg).split(",")) {
+          options.flags.add(parseFlag(flag.trim()));
+        }
+        break;
+      case "--timeout":
+        options.timeoutMilliSecs = parsePositiveInt(arg, value(args, ++i, arg));
+        break;
+      case "--id-field":
+        options.idField = value(args, ++i, arg);
+        break;
+      case "-q":
+      case "--quiet":
+        options.quiet = true;
+        break;
+      case "-h":
+      case "--help":
+        options.help = true;
+        break;
+      default:
+        if (arg.startsWith("-") && !arg.equals(STDIO)) {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        positional.add(arg);
+      }
+    }
+    if (positional.size() > 2) {
+      throw new IllegalArgumentException("Expected at most an input and an output, but found: " + positional);
+    }
+    if (positional.size() > 0) {
+      options.input = positional.get(0);
+    }
+    if (positional.size() > 1) {
+      options.output = positional.get(1);
+    }
+    if (options.columns.isEmpty()) {
+      options.columns.add(OutputColumn.INCHI);
+      options.columns.add(OutputColumn.INCHIKEY);
+    }
+    if (options.format == null) {
+      InputFormat implied = options.input.equals(STDIO) ? null : InputFormat.fromFileName(options.input);
+      options.format = implied != null ? implied : InputFormat.SMILES;
+    }
+    if (options.idField != null && options.format != InputFormat.SDF) {
+      throw new IllegalArgumentException("--id-field is only applicable to SD files");
+    }
+    return options;
+  }
+
+  /**
+   * @return the options to pass to the InChI library, only generating the AuxInfo if it is to be written
+   */
+  InchiOptions toInchiOptions() {
+    InchiOptions.InchiOptionsBuilder builder = new InchiOptions.InchiOptionsBuilder();
+    builder.withFlag(flags.toArray(new InchiFlag[0]));
+    builder.withTimeoutMilliSeconds(timeoutMilliSecs);
+    if (columns.contains(OutputColumn.AUXINFO)) {
+      builder.withOutputFields(InchiOutputField.AUXINFO, InchiOutputField.MESSAGE);
+    }
+    else {
+      builder.withOutputFields(InchiOutputField.MESSAGE);
+    }
+    return builder.build();
+  }
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length) {
+      throw new IllegalArgumentException("Missing value for " + option);
+    }
+    return args[i];
+  }
+
+  private static <T extends Enum<T>> T parseEnum(Class<T> enumClass, String option, String value) {
+    try {
+      return Enum.valueOf(enumClass, value.toUpperCase(Locale.ROOT));
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown value for " + option + ": " + value);
+    }
+  }
+
+  private static InchiFlag parseFlag(String flag) {
+    for (InchiFlag inchiFlag : InchiFlag.values()) {
+      if (inchiFlag.name().equalsIgnoreCase(flag)) {
+        return inchiFlag;
+      }
+    }
+    throw new IllegalArgumentException("Unknown InChI flag: " + flag);
+  }
+
+  private static int parsePositiveInt(String option, String value) {
+    try {
+      int i = Integer.parseInt(value);
+      if (i > 0) {
+        return i;
+      }
+    }
+    catch (NumberFormatException e) {
+      //reported below
+    }
+    throw new IllegalArgumentException("Expected a positive integer for " + option + ": " + value);
+  }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import io.github.dan2097.jnainchi.InchiKeyStatus;
+import io.github.dan2097.jnainchi.InchiOptions;
+import io.github.dan2097.jnainchi.InchiOutput;
+import io.github.dan2097.jnainchi.InchiSession;
+import io.github.dan2097.jnainchi.InchiStatus;
+import io.github.dan2097.jnainchi.JnaInchi;
+import io.github.dan2097.jnainchi.SmilesToInchi;
+
+/**
+ * Converts chunks of records on a single worker thread, reusing the same native handles for every record
+ */
+final class Converter implements AutoCloseable {
+
+  private final InputFormat format;
+  private final InchiOptions options;
+  private final List<OutputColumn> columns;
+  private final String idField;
+  private final InchiSession session;
+  private final StringBuilder sb = new StringBuilder();
+  private final ByteBuffer inchiKeySink = ByteBuffer.allocate(27);
+
+  Converter(InputFormat format, InchiOptions options, List<OutputColumn> columns, String idField) {
+    this.format = format;
+    this.options = options;
+    this.columns = columns;
+    this.idField = idField;
+    //molfiles are converted with the classic API, which has no handles to reuse
+    this.session = format != InputFormat.SDF ? new InchiSession() : null;
+  }
+
+  /**
+   * Converts the records of the chunk, populating its output and counts
+   * @param chunk
+   * @return the chunk
+   */
+  Chunk convert(Chunk chunk) {
+    sb.setLength(0);
+    for (Record record : chunk.records) {
+      convert(record, chunk);
+    }
+    chunk.output = sb.toString().getBytes(StandardCharsets.UTF_8);
+    return chunk;
+  }
+
+  private void convert(Record record, Chunk chunk) {
+    String id = record.id;
+    InchiOutput output = null;
+    String error = null;
+    try {
+      if (record.mol != null) {
+        id = idField != null ? record.mol.getProperty(idField) : record.mol.getTitle();
+      }
+      output = toInchi(record);
+    }
+    catch (IOException | RuntimeException e) {
+      error = e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+    if (output != null && output.getStatus() == InchiStatus.ERROR) {
+      error = output.getMessage() != null && !output.getMessage().isEmpty() ? output.getMessage() : "InChI generation failed";
+    }
+    String inchi = output != null && output.getStatus() != InchiStatus.ERROR ? output.getInchi() : null;
+    String inchiKey = null;
+    if (inchi != null && columns.contains(OutputColumn.INCHIKEY)) {
+      inchiKeySink.clear();
+      InchiKeyStatus keyStatus = JnaInchi.inchiToInchiKey(inchi, inchiKeySink);
+      if (keyStatus == InchiKeyStatus.OK) {
+        inchiKey = new String(inchiKeySink.array(), 0, inchiKeySink.position(), StandardCharsets.US_ASCII);
+      }
+      else {
+        //the InChI is still written, but the record is incomplete so counts as failed
+        error = "InChIKey generation failed: " + keyStatus;
+      }
+    }
+    if (error != null) {
+      chunk.failed++;
+      chunk.failures.add(describe(record, id) + ": " + error);
+    }
+    else if (output.getStatus() == InchiStatus.WARNING) {
+      chunk.warnings++;
+    }
+    else {
+      chunk.succeeded++;
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        sb.append('\t');
+      }
+      if (inchi == null) {
+        continue;
+      }
+      switch (columns.get(i)) {
+      case INCHI:
+        sb.append(inchi);
+        break;
+      case INCHIKEY:
+        if (inchiKey != null) {
+          sb.append(inchiKey);
+        }
+        break;
+      case AUXINFO:
+        if (output.getAuxInfo() != null) {
+          sb.append(output.getAuxInfo());
+        }
+        break;
+      }
+    }
+    if (id != null && !id.isEmpty()) {
+      sb.append('\t').append(id);
+    }
+    sb.append('\n');
+  }
+
+  private static String describe(Record record, String id) {
+    return "Record " + (record.index + 1) + (id != null && !id.isEmpty() ? " (" + id + ")" : "");
+  }
+
+  private InchiOutput toInchi(Record record) throws IOException {
+    switch (format) {
+    case SMILES:
+      return SmilesToInchi.toInchi(record.text, options, session);
+    case INCHI:
+      return session.inchiToInchi(record.text, options);
+    case SDF:
+      return record.mol.toInchi(options);
+    default:
+      throw new IllegalStateException("Unexpected format: " + format);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (session != null) {
+      session.close();
+    }
+  }
+
+}
@@ -0,0 +1,249 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.dan2097.jnainchi.InchiOptions;
+
+/**
+ * Command line converter to InChI, InChIKey and AuxInfo, see {@link CliOptions#USAGE}.
+ * <br>
+ * The input is read on the main thread, in chunks of records, that are converted by a pool of worker threads each with its own {@link Converter}.
+ * At most a fixed number of chunks are in flight, so reading waits for the workers and memory use does not depend on the size of the input.
+ * Converted chunks are written on the main thread, either in input order or as they complete
+ */
+public final class InchiCli {
+
+  private static final int CHUNK_SIZE = 64;
+  private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+  private InchiCli() {}
+
+  public static void main(String[] args) {
+    int exitCode = run(args, System.in, System.out, System.err);
+    System.out.flush();
+    System.exit(exitCode);
+  }
+
+  /**
+   * @param args
+   * @param stdin
+   * @param stdout
+   * @param stderr
+   * @return the exit code, 0 if the input was converted, even if some records could not be, 1 if reading or writing failed, and 2 for an invalid command line
+   */
+  static int run(String[] args, InputStream stdin, OutputStream stdout, PrintStream stderr) {
+    CliOptions cliOptions;
+    InchiOptions inchiOptions;
+    try {
+      cliOptions = CliOptions.parse(args);
+      inchiOptions = cliOptions.toInchiOptions();
+    }
+    catch (IllegalArgumentException e) {
+      stderr.println(e.getMessage());
+      stderr.print(CliOptions.USAGE);
+      return 2;
+    }
+    if (cliOptions.help) {
+      stderr.print(CliOptions.USAGE);
+      return 0;
+    }
+    try {
+      Summary summary = convert(cliOptions, inchiOptions, stdin, stdout, stderr);
+      stderr.println(summary);
+      return 0;
+    }
+    catch (IOException e) {
+      stderr.println("Conversion failed: " + e.getMessage());
+      return 1;
+    }
+  }
+
+  private static Summary convert(CliOptions cliOptions, InchiOptions inchiOptions, InputStream stdin, OutputStream stdout, PrintStream stderr) throws IOException {
+    List<Converter> converters = Collections.synchronizedList(new ArrayList<>());
+    ThreadLocal<Converter> workerConverter = ThreadLocal.withInitial(() -> {
+      Converter converter = new Converter(cliOptions.format, inchiOptions, cliOptions.columns, cliOptions.idField);
+      converters.add(converter);
+      return converter;
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(cliOptions.threads, new WorkerThreadFactory());
+    boolean useStdout = cliOptions.output.equals(CliOptions.STDIO);
+    WritableByteChannel channel = useStdout ? Channels.newChannel(stdout) :
+        FileChannel.open(Paths.get(cliOptions.output), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    Summary summary = new Summary();
+    try (RecordReader reader = RecordReader.open(cliOptions.format, cliOptions.input, stdin)) {
+      ChannelWriter writer = new ChannelWriter(channel);
+      int maxInFlight = cliOptions.threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+      Queue<Future<Chunk>> ordered = new ArrayDeque<>();
+      CompletionService<Chunk> completion = new ExecutorCompletionService<>(executor);
+      int inFlight = 0;
+      List<Record> records;
+      while (!(records = readChunk(reader)).isEmpty()) {
+        Chunk chunk = new Chunk(records);
+        if (cliOptions.unordered) {
+          completion.submit(() -> workerConverter.get().convert(chunk));
+        }
+        else {
+          ordered.add(executor.submit(() -> workerConverter.get().convert(chunk)));
+        }
+        if (++inFlight >= maxInFlight) {
+          write(cliOptions.unordered ? completion.take() : ordered.remove(), writer, summary, cliOptions.quiet, stderr);
+          inFlight--;
+        }
+      }
+      for (; inFlight > 0; inFlight--) {
+        write(cliOptions.unordered ? completion.take() : ordered.remove(), writer, summary, cliOptions.quiet, stderr);
+      }
+      writer.flush();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    }
+    finally {
+      //the native handles are only released once no worker can be using them, otherwise they are leaked
+      if (stopWorkers(executor)) {
+        for (Converter converter : converters) {
+          converter.close();
+        }
+      }
+      else {
+        stderr.println("Worker threads did not stop, their native resources have not been released");
+      }
+      if (!useStdout) {
+        channel.close();
+      }
+    }
+    summary.finish();
+    return summary;
+  }
+
+  /**
+   * Cancels any chunks that have not been started, then waits for the workers to finish those in progress
+   * @param executor
+   * @return whether all the workers have stopped
+   */
+  private static boolean stopWorkers(ExecutorService executor) {
+    executor.shutdownNow();
+    try {
+      if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        return true;
+      }
+      executor.shutdownNow();
+      return executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return executor.isTerminated();
+    }
+  }
+
+  private static List<Record> readChunk(RecordReader reader) throws IOException {
+    List<Record> records = new ArrayList<>(CHUNK_SIZE);
+    Record record;
+    while (records.size() < CHUNK_SIZE && (record = reader.read()) != null) {
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static void write(Future<Chunk> future, ChannelWriter writer, Summary summary, boolean quiet, PrintStream stderr) throws IOException, InterruptedException {
+    Chunk chunk;
+    try {
+      chunk = future.get();
+    }
+    catch (ExecutionException e) {
+      throw new IOException("Conversion failed", e.getCause());
+    }
+    writer.write(chunk.output);
+    summary.add(chunk);
+    if (!quiet) {
+      for (String failure : chunk.failures) {
+        stderr.println(failure);
+      }
+    }
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "jna-inchi-worker-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * Counts of the records converted, and the throughput
+   */
+  static final class Summary {
+
+    private final long startNanos = System.nanoTime();
+    private long elapsedNanos;
+    long records;
+    long succeeded;
+    long warnings;
+    long failed;
+
+    void add(Chunk chunk) {
+      records += chunk.records.size();
+      succeeded += chunk.succeeded;
+      warnings += chunk.warnings;
+      failed += chunk.failed;
+    }
+
+    void finish() {
+      elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+      double seconds = elapsedNanos / 1e9;
+      return String.format(Locale.ROOT, "Converted %d records in %.2f s (%.0f records/s): %d succeeded, %d with warnings, %d failed",
+          records, seconds, seconds > 0 ? records / seconds : 0, succeeded, warnings, failed);
+    }
+  }
+
+}
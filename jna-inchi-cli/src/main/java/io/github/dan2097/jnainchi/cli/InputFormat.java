@@ -0,0 +1,54 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.util.Locale;
+
+/**
+ * The types of file that can be converted
+ */
+enum InputFormat {
+
+  /** One SMILES per line, optionally followed by whitespace and an identifier */
+  SMILES,
+
+  /** SD file, the identifier is the title line or a data item */
+  SDF,
+
+  /** One InChI per line, optionally followed by whitespace and an identifier */
+  INCHI;
+
+  /**
+   * @param fileName
+   * @return the format implied by the file's extension, or null if not recognised
+   */
+  static InputFormat fromFileName(String fileName) {
+    String lower = fileName.toLowerCase(Locale.ROOT);
+    if (lower.endsWith(".smi") || lower.endsWith(".smiles") || lower.endsWith(".ism")) {
+      return SMILES;
+    }
+    if (lower.endsWith(".sdf") || lower.endsWith(".sd") || lower.endsWith(".mol")) {
+      return SDF;
+    }
+    if (lower.endsWith(".inchi") || lower.endsWith(".ich")) {
+      return INCHI;
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,47 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import io.github.dan2097.jnainchi.MolRecord;
+
+/**
+ * One structure to convert, either a line of text (SMILES or InChI) or an SD file record
+ */
+final class Record {
+
+  final long index;
+  final String text;
+  final MolRecord mol;
+  //for SD files the identifier is read from the record when it is converted
+  final String id;
+
+  Record(long index, String text, String id) {
+    this.index = index;
+    this.text = text;
+    this.mol = null;
+    this.id = id;
+  }
+
+  Record(long index, MolRecord mol) {
+    this.index = index;
+    this.text = null;
+    this.mol = mol;
+    this.id = null;
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import io.github.dan2097.jnainchi.SdfReader;
+
+/**
+ * Reads the records of the input one at a time, so that the input is never held in memory in its entirety
+ */
+abstract class RecordReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private long index;
+
+  /**
+   * @return the next record, or null at the end of the input
+   * @throws IOException
+   */
+  abstract Record read() throws IOException;
+
+  /**
+   * SD files are memory-mapped, other files and stdin are read through a buffer
+   * @param format
+   * @param input file name, or - for stdin
+   * @param stdin
+   * @return
+   * @throws IOException
+   */
+  static RecordReader open(InputFormat format, String input, InputStream stdin) throws IOException {
+    boolean useStdin = input.equals(CliOptions.STDIO);
+    if (format == InputFormat.SDF) {
+      return new SdfRecordReader(useStdin ? new SdfReader(stdin) : SdfReader.open(Paths.get(input)));
+    }
+    InputStream in = useStdin ? stdin : Files.newInputStream(Paths.get(input));
+    return new LineRecordReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+  }
+
+  long nextIndex() {
+    return index++;
+  }
+
+  /**
+   * Each non-blank line is a record, the identifier is anything after the first space or tab
+   */
+  private static final class LineRecordReader extends RecordReader {
+
+    private final BufferedReader reader;
+
+    LineRecordReader(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    Record read() throws IOException {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) {
+          continue;
+        }
+        int sep = 0;
+        while (sep < line.length() && line.charAt(sep) != ' ' && line.charAt(sep) != '\t') {
+          sep++;
+        }
+        String text = line.substring(0, sep);
+        String id = sep < line.length() ? line.substring(sep + 1).trim() : null;
+        return new Record(nextIndex(), text, id);
+      }
+      return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  private static final class SdfRecordReader extends RecordReader {
+
+    private final SdfReader reader;
+
+    SdfRecordReader(SdfReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    Record read() throws IOException {
+      try {
+        if (!reader.hasNext()) {
+          return null;
+        }
+        //the identifier is decoded on the worker thread
+        return new Record(nextIndex(), reader.next());
+      }
+      catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class InchiCliTest {
+
+  private static final String METHANE = "methane\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+
+  private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+  private int run(String stdin, String... args) {
+    return InchiCli.run(args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)), stdout, new PrintStream(stderr, true));
+  }
+
+  private List<String> outputLines() {
+    return Arrays.asList(new String(stdout.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+  }
+
+  @Test
+  public void testSmiles() {
+    assertEquals(0, run("CO methanol\n", "-t", "1"));
+    assertEquals(Arrays.asList("InChI=1S/CH4O/c1-2/h2H,1H3\tOKKJLVBELUTLKV-UHFFFAOYSA-N\tmethanol"), outputLines());
+  }
+
+  @Test
+  public void testInchi() {
+    String input = "InChI=1S/CH4O/c1-2/h2H,1H3 methanol\n\nInChI=1S/CH4/h1H4\nInChI=1S/invalid bad\n";
+    assertEquals(0, run(input, "-f", "inchi", "-o", "inchikey,auxinfo", "-t", "2"));
+    List<String> lines = outputLines();
+    assertEquals(3, lines.size());
+    assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N\tAuxInfo=1/0/N:1,2/rA:2nCO/rB:s1;/rC:;;\tmethanol", lines.get(0));
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N\tAuxInfo=1/0/N:1/rA:1nC/rB:/rC:;", lines.get(1));
+    assertEquals("\t\tbad", lines.get(2));
+    String summary = new String(stderr.toByteArray(), StandardCharsets.UTF_8);
+    assertTrue(summary.contains("Record 3 (bad)"), summary);
+    assertTrue(summary.contains("Converted 3 records"), summary);
+    assertTrue(summary.contains("2 succeeded, 0 with warnings, 1 failed"), summary);
+  }
+
+  @Test
+  public void testSdfFile(@TempDir Path dir) throws IOException {
+    StringBuilder sdf = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sdf.append(METHANE).append("> <ID>\nM").append(i).append("\n\n$$$$\n");
+    }
+    Path input = dir.resolve("input.sdf");
+    Path output = dir.resolve("output.txt");
+    Files.write(input, sdf.toString().getBytes(StandardCharsets.UTF_8));
+    assertEquals(0, run("", "--id-field", "ID", "-t", "4", input.toString(), output.toString()));
+    List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+    assertEquals(1000, lines.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("InChI=1S/CH4/h1H4\tVNWKTOKETHGBQD-UHFFFAOYSA-N\tM" + i, lines.get(i));
+    }
+  }
+
+  @Test
+  public void testUnordered() {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append(i % 2 == 0 ? "InChI=1S/CH4/h1H4" : "InChI=1S/CH4O/c1-2/h2H,1H3").append(' ').append(i).append('\n');
+    }
+    assertEquals(0, run(input.toString(), "-f", "inchi", "-o", "inchikey", "-u", "-t", "4"));
+    List<String> lines = outputLines();
+    assertEquals(1000, lines.size());
+    assertEquals(500, lines.stream().filter(l -> l.startsWith("VNWKTOKETHGBQD-UHFFFAOYSA-N\t")).count());
+  }
+
+  @Test
+  public void testInvalidCommandLine() {
+    assertEquals(2, run("", "--threads", "0"));
+    assertEquals(2, run("", "--flags", "SNon,SRel"));
+    assertEquals(2, run("", "a", "b", "c"));
+    assertEquals(0, stdout.size());
+  }
+
+  @Test
+  public void testOptions() {
+    CliOptions options = CliOptions.parse(new String[] {"input.sdf"});
+    assertEquals(InputFormat.SDF, options.format);
+    assertEquals(Arrays.asList(OutputColumn.INCHI, OutputColumn.INCHIKEY), options.columns);
+    assertEquals(CliOptions.STDIO, options.output);
+    assertEquals(InputFormat.SMILES, CliOptions.parse(new String[0]).format);
+    assertEquals(InputFormat.INCHI, CliOptions.parse(new String[] {"-f", "InChI", "input.sdf"}).format);
+    assertThrows(IllegalArgumentException.class, () -> CliOptions.parse(new String[] {"-o", "inchi,inchi"}));
+    assertThrows(IllegalArgumentException.class, () -> CliOptions.parse(new String[] {"--id-field", "ID", "input.smi"}));
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class ElementsTest {
+
+  @Test
+  public void testAtomicNumbers() {
+    assertEquals(1, Elements.getAtomicNumber("H"));
+    assertEquals(6, Elements.getAtomicNumber("C"));
+    assertEquals(17, Elements.getAtomicNumber("Cl"));
+    assertEquals(118, Elements.getAtomicNumber("Og"));
+    assertEquals(0, Elements.getAtomicNumber("D"));
+    assertEquals(0, Elements.getAtomicNumber("Zz"));
+    assertEquals(0, Elements.getAtomicNumber("CL"));
+    assertEquals(0, Elements.getAtomicNumber("c"));
+    assertEquals(0, Elements.getAtomicNumber(""));
+    assertEquals(0, Elements.getAtomicNumber("Cla"));
+  }
+
+  @Test
+  public void testBaseMasses() {
+    assertEquals(12, Elements.getBaseMass("C"));
+    assertEquals(35, Elements.getBaseMass("Cl"));
+    assertEquals(2, Elements.getBaseMass("D"));
+    assertEquals(3, Elements.getBaseMass("T"));
+    assertEquals(294, Elements.getBaseMass("Og"));
+    assertEquals(0, Elements.getBaseMass("Zz"));
+  }
+
+  @Test
+  public void testCSymbols() {
+    assertArrayEquals(new byte[] {'B', 'r', 0}, Elements.getCSymbol("Br"));
+    assertArrayEquals(new byte[] {'D', 0}, Elements.getCSymbol("D"));
+    assertNull(Elements.getCSymbol("Zz"));
+  }
+
+}
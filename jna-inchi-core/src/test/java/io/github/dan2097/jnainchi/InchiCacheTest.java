@@ -0,0 +1,99 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiCacheTest {
+
+  @Test
+  public void testToInchi() {
+    InchiCache cache = new InchiCache(100);
+    InchiOutput output1 = cache.toInchi(TestMolecules.bromopropene(), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", output1.getInchi());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    //an equivalent, but not identical, input
+    InchiOutput output2 = cache.toInchi(TestMolecules.bromopropene(), InchiOptions.DEFAULT_OPTIONS);
+    assertSame(output1, output2);
+    assertEquals(1, cache.getHitCount());
+
+    InchiOptions options = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build();
+    InchiOutput output3 = cache.toInchi(TestMolecules.bromopropene(), options);
+    assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3", output3.getInchi());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testModifiedInput() {
+    InchiCache cache = new InchiCache(100);
+    InchiInput input = TestMolecules.bromopropene();
+    InchiOutput output1 = cache.toInchi(input, InchiOptions.DEFAULT_OPTIONS);
+    input.getAtom(3).setElName("Cl");
+    InchiOutput output2 = cache.toInchi(input, InchiOptions.DEFAULT_OPTIONS);
+    assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", output1.getInchi());
+    assertEquals("InChI=1S/C3H5Cl/c1-2-3-4/h2-3H,1H3/b3-2-", output2.getInchi());
+  }
+
+  @Test
+  public void testOutputFieldsAreDistinguished() {
+    InchiCache cache = new InchiCache(100);
+    InchiOutput output1 = cache.toInchi(TestMolecules.bromopropene(), new InchiOptions.InchiOptionsBuilder().withOutputFields().build());
+    InchiOutput output2 = cache.toInchi(TestMolecules.bromopropene(), InchiOptions.DEFAULT_OPTIONS);
+    assertNull(output1.getAuxInfo());
+    assertTrue(output2.getAuxInfo().startsWith("AuxInfo="));
+  }
+
+  @Test
+  public void testInchiKey() {
+    InchiCache cache = new InchiCache(100);
+    String inchi = "InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3";
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", cache.inchiToInchiKey(inchi).getInchiKey());
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", cache.inchiToInchiKey(inchi).getInchiKey());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testEviction() {
+    InchiCache cache = new InchiCache(4, 1);
+    String mol = "\n\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 %s   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+    for (String element : new String[] {"C", "N", "O", "S", "P"}) {
+      cache.molToInchi(String.format(mol, element), InchiOptions.DEFAULT_OPTIONS);
+    }
+    assertEquals(4, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    //least recently used i.e. carbon was evicted
+    cache.molToInchi(String.format(mol, "P"), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(1, cache.getHitCount());
+    cache.molToInchi(String.format(mol, "C"), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(1, cache.getHitCount());
+    assertEquals(6, cache.getMissCount());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+}
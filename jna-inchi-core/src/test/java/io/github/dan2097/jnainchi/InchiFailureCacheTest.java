@@ -0,0 +1,127 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiFailureCacheTest {
+
+  private static InchiInput pseudoatom() {
+    InchiInput input = new InchiInput();
+    input.addAtom(new InchiAtom("Zz"));
+    return input;
+  }
+
+  private static InchiInput methanol() {
+    InchiInput input = new InchiInput();
+    InchiAtom c = new InchiAtom("C");
+    c.setImplicitHydrogen(3);
+    InchiAtom o = new InchiAtom("O");
+    o.setImplicitHydrogen(1);
+    input.addAtom(c);
+    input.addAtom(o);
+    input.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+    return input;
+  }
+
+  @Test
+  public void testFailureRemembered() {
+    InchiFailureCache cache = new InchiFailureCache(100, 1, TimeUnit.HOURS);
+    InchiOutput output1 = cache.toInchi(pseudoatom(), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(InchiStatus.ERROR, output1.getStatus());
+    assertEquals(0, cache.getHitCount());
+    assertTrue(cache.isKnownFailure(pseudoatom(), InchiOptions.DEFAULT_OPTIONS));
+
+    InchiOutput output2 = cache.toInchi(pseudoatom(), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(InchiStatus.ERROR, output2.getStatus());
+    assertNull(output2.getInchi());
+    assertEquals(output1.getMessage(), output2.getMessage());
+    assertSame(output2, cache.toInchi(pseudoatom(), InchiOptions.DEFAULT_OPTIONS));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    //a failure with some options says nothing about other options
+    assertFalse(cache.isKnownFailure(pseudoatom(), new InchiOptions.InchiOptionsBuilder().withTimeout(10).build()));
+  }
+
+  @Test
+  public void testSuccessNotRemembered() {
+    InchiFailureCache cache = new InchiFailureCache(100, 1, TimeUnit.HOURS);
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", cache.toInchi(methanol(), InchiOptions.DEFAULT_OPTIONS).getInchi());
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", cache.toInchi(methanol(), InchiOptions.DEFAULT_OPTIONS).getInchi());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMolToInchi() {
+    String polymer = "poly(ethylene)\n  -INDIGO-01152200132D\n\n  4  3  0  0  0  0  0  0  0  0999 V2000\n   -1.9875    0.8946    0.0000 *   0  0  0  0  0  0  0  0  0  0  0  0\n   -1.1411    0.8839    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n   -0.4286    0.4714    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5357    0.4661    0.0000 *   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\n  2  3  1  0  0  0  0\n  3  4  1  0  0  0  0\nM  STY  1   1 SRU\nM  SLB  1   1   1\nM  SCN  1   1 HT \nM  SAL   1  2   2   3\nM  SBL   1  2   1   3\nM  SMT   1 n\nM  SDI   1  4   -0.0268    0.8839   -0.0321    0.0589\nM  SDI   1  4   -1.4946    0.4768   -1.4839    1.3018\nM  END\n";
+    InchiFailureCache cache = new InchiFailureCache(100, 1, TimeUnit.HOURS);
+    assertEquals(InchiStatus.ERROR, cache.molToInchi(polymer, InchiOptions.DEFAULT_OPTIONS).getStatus());
+    assertTrue(cache.isKnownFailure(polymer, InchiOptions.DEFAULT_OPTIONS));
+    InchiOptions polymers = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.Polymers).build();
+    assertEquals(InchiStatus.SUCCESS, cache.molToInchi(polymer, polymers).getStatus());
+    assertFalse(cache.isKnownFailure(polymer, polymers));
+  }
+
+  @Test
+  public void testExpiry() {
+    AtomicLong now = new AtomicLong();
+    InchiFailureCache cache = new InchiFailureCache(100, 10, TimeUnit.SECONDS, now::get);
+    cache.toInchi(pseudoatom(), InchiOptions.DEFAULT_OPTIONS);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    assertTrue(cache.isKnownFailure(pseudoatom(), InchiOptions.DEFAULT_OPTIONS));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertFalse(cache.isKnownFailure(pseudoatom(), InchiOptions.DEFAULT_OPTIONS));
+    assertEquals(0, cache.size());
+    cache.toInchi(pseudoatom(), InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(2, cache.getMissCount());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testBounded() {
+    InchiFailureCache cache = new InchiFailureCache(4, 1, TimeUnit.HOURS);
+    for (int i = 0; i < 10; i++) {
+      InchiInput input = pseudoatom();
+      input.getAtom(0).setCharge(i);
+      cache.toInchi(input, InchiOptions.DEFAULT_OPTIONS);
+    }
+    assertEquals(4, cache.size());
+    assertEquals(6, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testNullOptions() {
+    InchiFailureCache cache = new InchiFailureCache(4, 1, TimeUnit.HOURS);
+    assertThrows(IllegalArgumentException.class, () -> cache.isKnownFailure(pseudoatom(), null));
+    assertThrows(IllegalArgumentException.class, () -> cache.isKnownFailure("", null));
+  }
+
+}
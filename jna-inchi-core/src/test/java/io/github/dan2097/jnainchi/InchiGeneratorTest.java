@@ -0,0 +1,117 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiGeneratorTest {
+
+  private static InchiInput sodiumMethoxide() {
+    InchiInput input = new InchiInput();
+    InchiAtom c = new InchiAtom("C");
+    c.setImplicitHydrogen(3);
+    InchiAtom o = new InchiAtom("O");
+    o.setCharge(-1);
+    InchiAtom na = new InchiAtom("Na");
+    na.setCharge(1);
+    input.addAtom(c);
+    input.addAtom(o);
+    input.addAtom(na);
+    input.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+    return input;
+  }
+
+  @Test
+  public void testAllStages() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      InchiInput input = TestMolecules.bromopropene();
+      assertEquals(InchiStatus.SUCCESS, generator.setup(input));
+      assertEquals(InchiStatus.SUCCESS, generator.normalize());
+      assertEquals(InchiStatus.SUCCESS, generator.canonicalize());
+      InchiOutput output = generator.serialize();
+      assertEquals(InchiStatus.SUCCESS, output.getStatus());
+      assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", output.getInchi());
+      assertEquals(JnaInchi.toInchi(input).getAuxInfo(), output.getAuxInfo());
+      assertEquals(InchiGenerator.Stage.SERIALIZATION, generator.getStage());
+      long total = 0;
+      for (InchiGenerator.Stage stage : InchiGenerator.Stage.values()) {
+        assertTrue(generator.getStageNanos(stage) > 0);
+        total += generator.getStageNanos(stage);
+      }
+      assertEquals(total, generator.getTotalNanos());
+    }
+  }
+
+  @Test
+  public void testStopAfterNormalization() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(InchiStatus.SUCCESS, generator.setup(sodiumMethoxide()));
+        assertEquals(InchiStatus.SUCCESS, generator.normalize());
+        assertEquals(2, generator.getComponentCount());
+        assertEquals(0, generator.getStageNanos(InchiGenerator.Stage.CANONICALIZATION));
+      }
+      //the generator is still usable for a full run
+      generator.setup(TestMolecules.bromopropene());
+      generator.normalize();
+      generator.canonicalize();
+      assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", generator.serialize().getInchi());
+    }
+  }
+
+  @Test
+  public void testStageOrder() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      assertThrows(IllegalStateException.class, () -> generator.normalize());
+      generator.setup(TestMolecules.bromopropene());
+      assertThrows(IllegalStateException.class, () -> generator.serialize());
+      generator.normalize();
+      generator.canonicalize();
+      generator.serialize();
+      assertThrows(IllegalStateException.class, () -> generator.serialize());
+      generator.reset();
+      assertNull(generator.getStage());
+      assertEquals(0, generator.getTotalNanos());
+    }
+  }
+
+  @Test
+  public void testFailedStage() {
+    try (InchiGenerator generator = new InchiGenerator()) {
+      InchiInput input = new InchiInput();
+      input.addAtom(new InchiAtom("Zz"));
+      assertEquals(InchiStatus.ERROR, generator.setup(input));
+      assertTrue(generator.getMessage().contains("Pseudoatoms"));
+      assertThrows(IllegalStateException.class, () -> generator.normalize());
+    }
+  }
+
+  @Test
+  public void testClosed() {
+    InchiGenerator generator = new InchiGenerator();
+    generator.close();
+    generator.close();
+    assertThrows(IllegalStateException.class, () -> generator.setup(TestMolecules.bromopropene()));
+  }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiInputTest {
+
+  @Test
+  public void testEquality() {
+    InchiInput input1 = TestMolecules.bromopropene();
+    InchiInput input2 = TestMolecules.bromopropene();
+    assertEquals(input1, input2);
+    assertEquals(input1.hashCode(), input2.hashCode());
+    assertEquals(input1.getFingerprint(), input2.getFingerprint());
+
+    Set<InchiInput> inputs = new HashSet<>();
+    inputs.add(input1);
+    inputs.add(input2);
+    assertEquals(1, inputs.size());
+  }
+
+  @Test
+  public void testStereoParityDistinguished() {
+    InchiInput input1 = TestMolecules.bromopropene();
+    InchiInput input2 = new InchiInput();
+    for (InchiAtom atom : input1.getAtoms()) {
+      input2.addAtom(atom);
+    }
+    for (InchiBond bond : input1.getBonds()) {
+      input2.addBond(bond);
+    }
+    assertNotEquals(input1, input2);
+    input2.addStereo(InchiStereo.createDoubleBondStereo(input1.getAtom(0), input1.getAtom(1), input1.getAtom(2), input1.getAtom(3), InchiStereoParity.EVEN));
+    assertNotEquals(input1, input2);
+    assertNotEquals(input1.getFingerprint(), input2.getFingerprint());
+  }
+
+  @Test
+  public void testAtomModification() {
+    InchiInput input1 = TestMolecules.bromopropene();
+    InchiInput input2 = TestMolecules.bromopropene();
+    InchiFingerprint fingerprint = input1.getFingerprint();
+    input1.getAtom(3).setIsotopicMass(81);
+    assertNotEquals(fingerprint, input1.getFingerprint());
+    assertNotEquals(input1, input2);
+    input1.getAtom(3).setIsotopicMass(0);
+    assertEquals(fingerprint, input1.getFingerprint());
+    assertEquals(input1, input2);
+
+    input1.getAtom(0).setX(1.5);
+    assertNotEquals(input1, input2);
+  }
+
+  @Test
+  public void testSharedAtomModification() {
+    InchiInput input1 = TestMolecules.bromopropene();
+    InchiInput input2 = new InchiInput();
+    for (InchiAtom atom : input1.getAtoms()) {
+      input2.addAtom(atom);
+    }
+    for (InchiBond bond : input1.getBonds()) {
+      input2.addBond(bond);
+    }
+    for (InchiStereo stereo : input1.getStereos()) {
+      input2.addStereo(stereo);
+    }
+    assertEquals(input1, input2);
+    InchiFingerprint fingerprint = input2.getFingerprint();
+    input1.getAtom(0).setCharge(1);
+    assertNotEquals(fingerprint, input2.getFingerprint());
+    assertEquals(input1.getFingerprint(), input2.getFingerprint());
+  }
+
+  @Test
+  public void testConcurrentFingerprint() throws Exception {
+    InchiInput input1 = TestMolecules.bromopropene();
+    //shared atoms cause the fingerprint to be recalculated on every call
+    InchiInput input2 = new InchiInput();
+    for (InchiAtom atom : input1.getAtoms()) {
+      input2.addAtom(atom);
+    }
+    for (InchiBond bond : input1.getBonds()) {
+      input2.addBond(bond);
+    }
+    InchiInput input3 = new InchiInput();
+    input3.addAtom(new InchiAtom("C"));
+    input3.addAtom(new InchiAtom("O"));
+    InchiFingerprint expected2 = input2.getFingerprint();
+    InchiFingerprint expected3 = input3.getFingerprint();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 10000; j++) {
+            if (!input2.getFingerprint().equals(expected2) || !input3.getFingerprint().equals(expected3)) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertTrue(future.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testOrderDependent() {
+    InchiInput input1 = new InchiInput();
+    input1.addAtom(new InchiAtom("C"));
+    input1.addAtom(new InchiAtom("O"));
+    InchiInput input2 = new InchiInput();
+    input2.addAtom(new InchiAtom("O"));
+    input2.addAtom(new InchiAtom("C"));
+    assertNotEquals(input1, input2);
+    assertNotEquals(input1.getFingerprint(), input2.getFingerprint());
+  }
+
+  @Test
+  public void testBondAddedBeforeAtoms() {
+    InchiAtom c = new InchiAtom("C");
+    InchiAtom o = new InchiAtom("O");
+    InchiInput input1 = new InchiInput();
+    input1.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+    input1.addAtom(c);
+    input1.addAtom(o);
+
+    InchiInput input2 = new InchiInput();
+    InchiAtom c2 = new InchiAtom("C");
+    InchiAtom o2 = new InchiAtom("O");
+    input2.addAtom(c2);
+    input2.addAtom(o2);
+    input2.addBond(new InchiBond(c2, o2, InchiBondType.SINGLE));
+    assertEquals(input1, input2);
+    assertEquals(input1.getFingerprint(), input2.getFingerprint());
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiKeyGeneratorTest {
+
+  private static final String[] INCHIS = {
+    "InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3",
+    "InChI=1S/C3H7NO2/c1-2(4)3(5)6/h2H,4H2,1H3,(H,5,6)/t2-/m0/s1",
+    "InChI=1S/C3H7NO2/c1-2(4)3(5)6/h2H,4H2,1H3,(H,5,6)/t2-/m1/s1",
+    "InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-",
+    "InChI=1S/CHBrFI/c2-1(3)4/h1H/t1-/m0/s1",
+    "InChI=1S/ClH.Na/h1H;/q;+1/p-1",
+    "InChI=1S/H3N/h1H3/p+1",
+    "InChI=1S/Ba.H2O4S/c;1-5(2,3)4/h;(H2,1,2,3,4)/q+2;/p-2",
+    "InChI=1S/CH4/h1H4/i1+1",
+    "InChI=1/C2H6O/c1-2-3/h3H,2H2,1H3",
+    "InChI=1/CH2O2/c2-1-3/h1H,(H,2,3)/f/h2H",
+    "InChI=1/C6H12O6/c7-1-3(9)5(11)6(12)4(10)2-8/h1,3-6,8-12H,2H2/t3-,4+,5+,6+/m0/s1/rC6H12O6",
+    "InChI=1/C6H6/c1-2-4-6-5-3-1/h1-6H",
+    "InChI=1B/CH4/h1H4",
+    "InChI=1B/CH4/h1H4/f/h",
+    "InChI=1S/CH4/h1H4/f/h",
+    "InChI=1S/CH4/h1H4/r",
+    "InChI=1S/CH4/h1H4/p+1/r",
+    "InChI=1S/CH4/h1H4/i1+1/f/h",
+    "InChI=1S/CH4/h1H4/p",
+    "InChI=1S/CH4/h1H4/p+",
+    "InChI=1S/CH4/h1H4/p-0",
+    "InChI=1/CH4/h1H4/p",
+    "InChI=1/CH4/h1H4/p/fCH4",
+    "InChI=1S/CH4/h1H4/p/p+1",
+    "InChI=1S/CH4/h1H4/p+13",
+    "InChI=1S/CH4/h1H4/p+4294967297",
+    "InChI=1S/CH4/h1H4/p+99999999999999999999",
+    "InChI=1S/C4H8/c1-3-4-2/h3-4H,1-2H3/b4-3+ trailing text",
+    "InChI=1S//",
+    "InChI=1S/?CH4/h1H4",
+    "InChI=1S/?",
+    "InChI=1/?/h1H4",
+    "InChI=1B/??",
+    "InChI=1S/!CH4/h1H4",
+    "InChI=1//",
+    "InChI=1S/",
+    "InChI=1S/ C",
+    "InChI=1X/CH4/h1H4",
+    "InChI=2S/CH4/h1H4",
+    "inchi=1S/CH4/h1H4",
+    "InChI=1S",
+    ""
+  };
+
+  @Test
+  public void testKnownKeys() {
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", InchiKeyGenerator.inchiToInchiKey(INCHIS[0]).getInchiKey());
+    assertEquals("QNAYBMKLOCPYGJ-REOHCLBHSA-N", InchiKeyGenerator.inchiToInchiKey(INCHIS[1]).getInchiKey());
+    assertEquals("FAPWRFPIFSIZLT-UHFFFAOYSA-M", InchiKeyGenerator.inchiToInchiKey(INCHIS[5]).getInchiKey());
+    assertEquals("QGZKDVFQNNGYKY-UHFFFAOYSA-O", InchiKeyGenerator.inchiToInchiKey(INCHIS[6]).getInchiKey());
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYBA-N", InchiKeyGenerator.inchiToInchiKey("InChI=1B/CH4/h1H4").getInchiKey());
+    assertEquals(InchiKeyStatus.INVALID_STD_INCHI, InchiKeyGenerator.inchiToInchiKey("InChI=1S/CH4/h1H4/f/h").getStatus());
+    assertEquals(InchiKeyStatus.INVALID_STD_INCHI, InchiKeyGenerator.inchiToInchiKey("InChI=1/CH4/h1H4/p").getStatus());
+    assertEquals("TUXRNIZRXXPQHD-UHFFFAOYSA-N", InchiKeyGenerator.inchiToInchiKey("InChI=1S/?CH4/h1H4").getInchiKey());
+  }
+
+  @Test
+  public void testMatchesNative() {
+    for (String inchi : INCHIS) {
+      InchiKeyOutput expected = JnaInchi.inchiToInchiKey(inchi);
+      InchiKeyOutput output = InchiKeyGenerator.inchiToInchiKey(inchi);
+      assertEquals(expected.getStatus(), output.getStatus(), inchi);
+      assertEquals(expected.getInchiKey(), output.getInchiKey(), inchi);
+      assertEquals(expected.getBlock1HashExtension(), output.getBlock1HashExtension(), inchi);
+      assertEquals(expected.getBlock2HashExtension(), output.getBlock2HashExtension(), inchi);
+    }
+  }
+
+  @Test
+  public void testNullInput() {
+    assertEquals(InchiKeyStatus.EMPTY_INPUT, InchiKeyGenerator.inchiToInchiKey(null).getStatus());
+  }
+
+  @Test
+  public void testBatchWithoutHashExtensions() {
+    InchiKeyOutput[] outputs = InchiKeyGenerator.inchiToInchiKey(INCHIS, false);
+    assertEquals(INCHIS.length, outputs.length);
+    for (int i = 0; i < INCHIS.length; i++) {
+      InchiKeyOutput expected = InchiKeyGenerator.inchiToInchiKey(INCHIS[i]);
+      assertEquals(expected.getStatus(), outputs[i].getStatus());
+      assertEquals(expected.getInchiKey(), outputs[i].getInchiKey());
+      assertEquals("", outputs[i].getBlock1HashExtension());
+      assertEquals("", outputs[i].getBlock2HashExtension());
+    }
+  }
+
+  @Test
+  public void testCharSequenceInput() {
+    StringBuilder sb = new StringBuilder(INCHIS[0]);
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", InchiKeyGenerator.inchiToInchiKey(sb).getInchiKey());
+  }
+
+}
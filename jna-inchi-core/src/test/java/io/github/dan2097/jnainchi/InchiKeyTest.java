@@ -0,0 +1,85 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiKeyTest {
+
+  @Test
+  public void testRoundTrip() {
+    for (String s : new String[] {"SPSSULHKWOKEEL-UHFFFAOYSA-N", "QNAYBMKLOCPYGJ-REOHCLBHSA-N", "AAAAAAAAAAAAAA-AAAAAAAAAA-A", "ZZZZZZZZZZZZZZ-ZZZZZZZZZZ-Z"}) {
+      InchiKey key = InchiKey.parse(s);
+      assertEquals(s, key.toString());
+      assertEquals(key, new InchiKey(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+    }
+  }
+
+  @Test
+  public void testFirstBlock() {
+    InchiKey lAlanine = InchiKey.parse("QNAYBMKLOCPYGJ-REOHCLBHSA-N");
+    InchiKey dAlanine = InchiKey.parse("QNAYBMKLOCPYGJ-UWTATZPHSA-N");
+    InchiKey other = InchiKey.parse("QNAYBMKLOCPYGK-UWTATZPHSA-N");
+    assertEquals("QNAYBMKLOCPYGJ", lAlanine.getFirstBlock());
+    assertTrue(lAlanine.hasSameFirstBlock(dAlanine));
+    assertFalse(dAlanine.hasSameFirstBlock(other));
+    assertNotEquals(lAlanine, dAlanine);
+    assertTrue(lAlanine.isStandard());
+    assertFalse(InchiKey.parse("BDAGIHXWWSANSR-QEZKKOIZNA-N").isStandard());
+  }
+
+  @Test
+  public void testOrderingMatchesString() {
+    String[] keys = {"SPSSULHKWOKEEL-UHFFFAOYSA-N", "QNAYBMKLOCPYGJ-UWTATZPHSA-N", "QNAYBMKLOCPYGJ-REOHCLBHSA-N", "FAPWRFPIFSIZLT-UHFFFAOYSA-M", "FAPWRFPIFSIZLT-UHFFFAOYSA-N", "FAPWRFPIFSIZLU-AAAAAAAAAA-A"};
+    InchiKey[] compact = new InchiKey[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      compact[i] = InchiKey.parse(keys[i]);
+    }
+    Arrays.sort(keys);
+    Arrays.sort(compact);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(keys[i], compact[i].toString());
+    }
+  }
+
+  @Test
+  public void testInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("SPSSULHKWOKEEL-UHFFFAOYSA"));
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("SPSSULHKWOKEEL-UHFFFAOYSAN-"));
+    assertThrows(IllegalArgumentException.class, () -> InchiKey.parse("spssulhkwokeel-uhfffaoysa-n"));
+    assertThrows(IllegalArgumentException.class, () -> new InchiKey(-1, 0));
+  }
+
+  @Test
+  public void testFromOutput() {
+    InchiKeyOutput output = JnaInchi.inchiToInchiKey("InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3");
+    assertEquals(InchiKey.parse("SPSSULHKWOKEEL-UHFFFAOYSA-N"), output.getCompactInchiKey());
+    assertEquals(InchiKey.parse("SPSSULHKWOKEEL-UHFFFAOYSA-N").hashCode(), output.getCompactInchiKey().hashCode());
+    assertNull(JnaInchi.inchiToInchiKey("InChI=1S").getCompactInchiKey());
+  }
+
+}
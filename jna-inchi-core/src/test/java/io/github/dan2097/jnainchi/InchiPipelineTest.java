@@ -0,0 +1,239 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiPipelineTest {
+
+  private static InchiInput alkane(int carbons) {
+    if (carbons <= 0) {
+      throw new IllegalArgumentException("Alkane must have at least one carbon");
+    }
+    InchiInput input = new InchiInput();
+    InchiAtom prev = null;
+    for (int i = 0; i < carbons; i++) {
+      InchiAtom atom = new InchiAtom("C");
+      atom.setImplicitHydrogen(i == 0 || i == carbons - 1 ? (carbons == 1 ? 4 : 3) : 2);
+      input.addAtom(atom);
+      if (prev != null) {
+        input.addBond(new InchiBond(prev, atom, InchiBondType.SINGLE));
+      }
+      prev = atom;
+    }
+    return input;
+  }
+
+  private static List<Integer> sizes(int count) {
+    return IntStream.range(0, count).map(i -> 1 + i % 20).boxed().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testOrderedOutput() {
+    List<Integer> inputs = sizes(500);
+    int capacity = 16;
+    AtomicLong read = new AtomicLong();
+    AtomicLong written = new AtomicLong();
+    AtomicLong maxInFlight = new AtomicLong();
+    Iterator<Integer> it = inputs.iterator();
+    Iterator<Integer> counting = new Iterator<Integer>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public Integer next() {
+        maxInFlight.accumulateAndGet(read.incrementAndGet() - written.get(), Math::max);
+        return it.next();
+      }
+    };
+    List<Long> sequences = new ArrayList<>();
+    List<String> inchis = new ArrayList<>();
+    InchiPipeline<Integer, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> {
+          sequences.add(sequence);
+          inchis.add(result.getResult().getInchi());
+          written.incrementAndGet();
+        })
+        .withParseThreads(2)
+        .withConvertThreads(4)
+        .withCapacity(capacity)
+        .build();
+    assertEquals(500, pipeline.run(counting));
+    assertEquals(LongStream.range(0, 500).boxed().collect(Collectors.toList()), sequences);
+    for (int i = 0; i < 500; i++) {
+      assertEquals(JnaInchi.toInchi(alkane(inputs.get(i))).getInchi(), inchis.get(i));
+    }
+    //the item being read has not yet been admitted to the pipeline
+    assertTrue(maxInFlight.get() <= capacity + 1, "In flight: " + maxInFlight.get());
+  }
+
+  @Test
+  public void testUnorderedOutput() {
+    List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+    InchiPipeline<Integer, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> {
+          assertEquals(InchiStatus.SUCCESS, result.getResult().getStatus());
+          sequences.add(sequence);
+        })
+        .withConvertThreads(3)
+        .withWriteThreads(2)
+        .withOrderedOutput(false)
+        .withCapacity(8)
+        .build();
+    assertEquals(300, pipeline.run(sizes(300).iterator()));
+    Collections.sort(sequences);
+    assertEquals(LongStream.range(0, 300).boxed().collect(Collectors.toList()), sequences);
+  }
+
+  @Test
+  public void testOrderedOutputNeedsOneWriter() {
+    assertThrows(IllegalArgumentException.class, () -> InchiPipeline.builder((session, input) -> input, (sequence, input, result) -> {})
+        .withWriteThreads(2)
+        .build());
+  }
+
+  @Test
+  public void testItemFailures() {
+    List<InchiBatchResult<InchiOutput>> results = new ArrayList<>();
+    InchiPipeline<Integer, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> results.add(result))
+        .build();
+    assertEquals(3, pipeline.run(Arrays.asList(2, 0, 3).iterator()));
+    assertEquals("InChI=1S/C2H6/c1-2/h1-2H3", results.get(0).getResult().getInchi());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(1).getException() instanceof IllegalArgumentException);
+    assertEquals("InChI=1S/C3H8/c1-3-2/h3H2,1-2H3", results.get(2).getResult().getInchi());
+  }
+
+  @Test
+  public void testWithoutParseStage() {
+    List<String> inchis = new ArrayList<>();
+    InchiPipeline<InchiInput, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        (InchiSession session, InchiInput input) -> session.toInchi(input),
+        (sequence, input, result) -> inchis.add(result.getResult().getInchi()))
+        .withConvertThreads(2)
+        .build();
+    assertEquals(2, pipeline.run(Arrays.asList(alkane(1), alkane(2)).iterator()));
+    assertEquals(Arrays.asList("InChI=1S/CH4/h1H4", "InChI=1S/C2H6/c1-2/h1-2H3"), inchis);
+  }
+
+  @Test
+  public void testWriterFailure() {
+    InchiPipeline<Integer, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> {
+          if (sequence == 10) {
+            throw new IOException("Disk full");
+          }
+        })
+        .withCapacity(4)
+        .build();
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline.run(sizes(1000).iterator()));
+    assertTrue(e.getCause() instanceof IOException);
+  }
+
+  @Test
+  public void testInterruptDrains() {
+    List<Long> sequences = new ArrayList<>();
+    AtomicLong read = new AtomicLong();
+    Iterator<Integer> interrupting = new Iterator<Integer>() {
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public Integer next() {
+        if (read.incrementAndGet() == 6) {
+          Thread.currentThread().interrupt();
+        }
+        return 3;
+      }
+    };
+    InchiPipeline<Integer, InchiInput, InchiOutput> pipeline = InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> sequences.add(sequence))
+        .withCapacity(4)
+        .build();
+    long written = pipeline.run(interrupting);
+    assertTrue(Thread.interrupted());
+    //every input that was read is written
+    assertEquals(read.get(), written);
+    assertEquals(LongStream.range(0, written).boxed().collect(Collectors.toList()), sequences);
+  }
+
+  @Test
+  public void testShutdownDrains() {
+    List<Long> sequences = new ArrayList<>();
+    Iterator<Integer> endless = new Iterator<Integer>() {
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public Integer next() {
+        return 5;
+      }
+    };
+    AtomicReference<InchiPipeline<Integer, InchiInput, InchiOutput>> pipeline = new AtomicReference<>();
+    pipeline.set(InchiPipeline.builder(
+        InchiPipelineTest::alkane,
+        (session, input) -> session.toInchi(input),
+        (sequence, carbons, result) -> {
+          sequences.add(sequence);
+          if (sequence == 20) {
+            pipeline.get().shutdown();
+          }
+        })
+        .withCapacity(8)
+        .build());
+    long written = pipeline.get().run(endless);
+    assertEquals(written, sequences.size());
+    assertTrue(written > 20);
+    assertEquals(LongStream.range(0, written).boxed().collect(Collectors.toList()), sequences);
+  }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class InchiSessionTest {
+
+  private static InchiInput water() {
+    InchiInput input = new InchiInput();
+    InchiAtom o = new InchiAtom("O");
+    o.setImplicitHydrogen(2);
+    input.addAtom(o);
+    return input;
+  }
+
+  @Test
+  public void testReuseBetweenMolecules() {
+    try (InchiSession session = new InchiSession()) {
+      for (int i = 0; i < 3; i++) {
+        InchiOutput output1 = session.toInchi(TestMolecules.bromopropene());
+        assertEquals(InchiStatus.SUCCESS, output1.getStatus());
+        assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", output1.getInchi());
+        assertEquals(JnaInchi.toInchi(TestMolecules.bromopropene()).getAuxInfo(), output1.getAuxInfo());
+
+        InchiOutput output2 = session.toInchi(water());
+        assertEquals(InchiStatus.SUCCESS, output2.getStatus());
+        assertEquals("InChI=1S/H2O/h1H2", output2.getInchi());
+        assertEquals("", output2.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testChangingOptions() {
+    InchiOptions snon = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build();
+    InchiOptions chiral = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.ChiralFlagON).build();
+    try (InchiSession session = new InchiSession()) {
+      assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3", session.toInchi(TestMolecules.bromopropene(), snon).getInchi());
+      assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", session.toInchi(TestMolecules.bromopropene()).getInchi());
+      assertEquals(JnaInchi.toInchi(water(), chiral).getAuxInfo(), session.toInchi(water(), chiral).getAuxInfo());
+      assertEquals(JnaInchi.toInchi(water()).getAuxInfo(), session.toInchi(water()).getAuxInfo());
+      assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3", session.inchiToInchi("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", snon).getInchi());
+    }
+  }
+
+  @Test
+  public void testStatusIsResetAfterError() {
+    InchiInput invalid = new InchiInput();
+    invalid.addAtom(new InchiAtom("Qq"));
+    try (InchiSession session = new InchiSession()) {
+      assertEquals(InchiStatus.ERROR, session.toInchi(invalid).getStatus());
+      InchiOutput output = session.toInchi(water());
+      assertEquals(InchiStatus.SUCCESS, output.getStatus());
+      assertEquals("InChI=1S/H2O/h1H2", output.getInchi());
+    }
+  }
+
+  @Test
+  public void testUseAfterClose() {
+    InchiSession session = new InchiSession();
+    session.close();
+    session.close();
+    assertThrows(IllegalStateException.class, () -> session.toInchi(water()));
+  }
+
+  @Test
+  public void testToInchiWithKey() {
+    try (InchiSession session = new InchiSession()) {
+      for (int i = 0; i < 3; i++) {
+        InchiWithKeyOutput output1 = session.toInchiWithKey(TestMolecules.bromopropene());
+        assertEquals(InchiStatus.SUCCESS, output1.getStatus());
+        assertEquals(JnaInchi.inchiToInchiKey(output1.getInchi()).getInchiKey(), output1.getInchiKey());
+        InchiWithKeyOutput output2 = session.toInchiWithKey(water());
+        assertEquals("XLYOFNOQVPJJNP-UHFFFAOYSA-N", output2.getInchiKey());
+      }
+    }
+  }
+
+}
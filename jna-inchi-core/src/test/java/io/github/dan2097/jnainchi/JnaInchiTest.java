@@ -21,6 +21,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 
@@ -58,6 +69,301 @@ public class JnaInchiTest {
     assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3", output2.getInchi());
   }
   
+  @Test
+  public void testToInchiMultipleOptions() {
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    a1.setImplicitHydrogen(3);
+    InchiAtom a2 = new InchiAtom("C");
+    a2.setImplicitHydrogen(1);
+    InchiAtom a3 = new InchiAtom("C");
+    a3.setImplicitHydrogen(1);
+    InchiAtom a4 = new InchiAtom("Br");
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addAtom(a3);
+    input.addAtom(a4);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE));
+    input.addBond(new InchiBond(a2, a3, InchiBondType.DOUBLE));
+    input.addBond(new InchiBond(a3, a4, InchiBondType.SINGLE));
+    input.addStereo(InchiStereo.createDoubleBondStereo(a1, a2, a3, a4, InchiStereoParity.ODD));
+
+    InchiOptions[] options = {
+        InchiOptions.DEFAULT_OPTIONS,
+        new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build(),
+        new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.FixedH, InchiFlag.ChiralFlagON).build(),
+        new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.KET).withOutputFields().build(),
+        new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).build(),
+        InchiOptions.DEFAULT_OPTIONS
+    };
+    List<InchiOutput> outputs = JnaInchi.toInchi(input, options);
+    assertEquals(options.length, outputs.size());
+    assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", outputs.get(0).getInchi());
+    assertEquals("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3", outputs.get(1).getInchi());
+    for (int i = 0; i < options.length; i++) {
+      InchiOutput expected = JnaInchi.toInchi(input, options[i]);
+      assertEquals(expected.getStatus(), outputs.get(i).getStatus());
+      assertEquals(expected.getInchi(), outputs.get(i).getInchi());
+      assertEquals(expected.getAuxInfo(), outputs.get(i).getAuxInfo());
+      assertEquals(expected.getMessage(), outputs.get(i).getMessage());
+    }
+    assertTrue(JnaInchi.toInchi(input, new InchiOptions[0]).isEmpty());
+
+    //no IXA molecule is needed, and one is only built once the first IXA options is reached
+    InchiOptions packedFixedH = new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).withFlag(InchiFlag.FixedH).build();
+    List<InchiOutput> packedOutputs = JnaInchi.toInchi(input, options[4], packedFixedH);
+    assertEquals(outputs.get(4).getInchi(), packedOutputs.get(0).getInchi());
+    assertEquals(JnaInchi.toInchi(input, packedFixedH).getInchi(), packedOutputs.get(1).getInchi());
+    List<InchiOutput> packedFirst = JnaInchi.toInchi(input, options[4], options[0]);
+    assertEquals(outputs.get(4).getInchi(), packedFirst.get(0).getInchi());
+    assertEquals(outputs.get(0).getAuxInfo(), packedFirst.get(1).getAuxInfo());
+  }
+
+  @Test
+  public void testToInchiWithKey() {
+    InchiInput input = new InchiInput();
+    InchiAtom c = new InchiAtom("C");
+    c.setImplicitHydrogen(3);
+    InchiAtom o = new InchiAtom("O");
+    o.setImplicitHydrogen(1);
+    input.addAtom(c);
+    input.addAtom(o);
+    input.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+
+    InchiWithKeyOutput output = JnaInchi.toInchiWithKey(input);
+    assertEquals(InchiStatus.SUCCESS, output.getStatus());
+    assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", output.getInchi());
+    assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N", output.getInchiKey());
+    assertEquals(InchiKeyStatus.OK, output.getInchiKeyOutput().getStatus());
+    assertEquals(JnaInchi.toInchi(input).getAuxInfo(), output.getInchiOutput().getAuxInfo());
+
+    InchiWithKeyOutput packedOutput = JnaInchi.toInchiWithKey(input, new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).build());
+    assertEquals("OKKJLVBELUTLKV-UHFFFAOYSA-N", packedOutput.getInchiKey());
+
+    InchiWithKeyOutput fixedH = JnaInchi.toInchiWithKey(input, new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).withFlag(InchiFlag.FixedH).build());
+    assertEquals(JnaInchi.inchiToInchiKey(fixedH.getInchi()).getInchiKey(), fixedH.getInchiKey());
+    assertEquals(InchiKeyStatus.OK, fixedH.getInchiKeyOutput().getStatus());
+
+    InchiInput pseudoatom = new InchiInput();
+    pseudoatom.addAtom(new InchiAtom("Zz"));
+    InchiWithKeyOutput failed = JnaInchi.toInchiWithKey(pseudoatom);
+    assertEquals(InchiStatus.ERROR, failed.getStatus());
+    assertNull(failed.getInchi());
+    assertEquals("", failed.getInchiKey());
+    assertEquals(InchiKeyStatus.EMPTY_INPUT, failed.getInchiKeyOutput().getStatus());
+  }
+
+  @Test
+  public void testMolToInchiWithKey() {
+    String mol = "\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+    InchiWithKeyOutput output = JnaInchi.molToInchiWithKey(mol);
+    assertEquals("InChI=1S/CH4/h1H4", output.getInchi());
+    assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", output.getInchiKey());
+  }
+
+  @Test
+  public void testMolToInchiBytes() {
+    String mol = "\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+    byte[] molBytes = mol.getBytes(StandardCharsets.US_ASCII);
+    assertEquals("InChI=1S/CH4/h1H4", JnaInchi.molToInchi(molBytes, 0, molBytes.length, InchiOptions.DEFAULT_OPTIONS).getInchi());
+
+    //a slice of a larger array, which is not NUL-terminated
+    byte[] padded = ("XXXX" + mol + "$$$$\n").getBytes(StandardCharsets.US_ASCII);
+    InchiOutput output = JnaInchi.molToInchi(padded, 4, molBytes.length, InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(JnaInchi.molToInchi(mol).getInchi(), output.getInchi());
+    assertEquals(JnaInchi.molToInchi(mol).getAuxInfo(), output.getAuxInfo());
+    assertThrows(IndexOutOfBoundsException.class, () -> JnaInchi.molToInchi(padded, 4, padded.length, InchiOptions.DEFAULT_OPTIONS));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+    direct.put(padded);
+    direct.position(4).limit(4 + molBytes.length);
+    assertEquals("InChI=1S/CH4/h1H4", JnaInchi.molToInchi(direct, InchiOptions.DEFAULT_OPTIONS).getInchi());
+    assertEquals(4, direct.position());
+  }
+
+  @Test
+  public void testToInchiPackedEngine() {
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C", 0, 0, 0);
+    a1.setImplicitHydrogen(1);
+    InchiAtom a2 = new InchiAtom("F", 1, 0, 0);
+    InchiAtom a3 = new InchiAtom("Cl", -0.5, 0.87, 0);
+    InchiAtom a4 = new InchiAtom("Br", -0.5, -0.87, 0);
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addAtom(a3);
+    input.addAtom(a4);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE, InchiBondStereo.SINGLE_1UP));
+    input.addBond(new InchiBond(a1, a3, InchiBondType.SINGLE));
+    input.addBond(new InchiBond(a1, a4, InchiBondType.SINGLE));
+    InchiOptions packedOptions = new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).build();
+    InchiOutput ixaOutput = JnaInchi.toInchi(input);
+    InchiOutput packedOutput = JnaInchi.toInchi(input, packedOptions);
+    assertEquals(InchiStatus.SUCCESS, packedOutput.getStatus());
+    assertEquals("InChI=1S/CHBrClF/c2-1(3)4/h1H/t1-/m0/s1", packedOutput.getInchi());
+    assertEquals(ixaOutput.getInchi(), packedOutput.getInchi());
+    assertEquals(ixaOutput.getAuxInfo(), packedOutput.getAuxInfo());
+    
+    InchiOutput emptyOutput = JnaInchi.toInchi(new InchiInput(), packedOptions);
+    assertEquals(JnaInchi.toInchi(new InchiInput()).getStatus(), emptyOutput.getStatus());
+  }
+
+  @Test
+  public void testPackedEngineInchiAlleneRoundTrip() {
+    //getInchiInputFromInchi gives allene stereo as {X, A, B, Y} rather than two substituents on each end
+    String[] inchis = {
+        "InChI=1S/C3BrClFI/c4-2(7)1-3(5)6/t1-/m0/s1",
+        "InChI=1S/C3HBrClI/c4-3(6)1-2-5/h2H/t1-/m0/s1",
+        "InChI=1S/C5H8/c1-3-5-4-2/h3-4H,1-2H3/t5-/m0/s1"
+    };
+    InchiOptions packedOptions = new InchiOptions.InchiOptionsBuilder().withEngine(InchiEngine.PACKED).build();
+    for (String inchi : inchis) {
+      InchiInput input = JnaInchi.getInchiInputFromInchi(inchi).getInchiInput();
+      assertEquals(inchi, JnaInchi.toInchi(input).getInchi());
+      assertEquals(inchi, JnaInchi.toInchi(input, packedOptions).getInchi());
+    }
+  }
+  
+  @Test
+  public void testOutputFields() {
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C", 0, 0, 0);
+    a1.setImplicitHydrogen(1);
+    InchiAtom a2 = new InchiAtom("F", 1, 0, 0);
+    InchiAtom a3 = new InchiAtom("Cl", -0.5, 0.87, 0);
+    InchiAtom a4 = new InchiAtom("Br", -0.5, -0.87, 0);
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addAtom(a3);
+    input.addAtom(a4);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE, InchiBondStereo.SINGLE_1UP));
+    input.addBond(new InchiBond(a1, a3, InchiBondType.SINGLE));
+    input.addBond(new InchiBond(a1, a4, InchiBondType.SINGLE));
+    InchiOutput fullOutput = JnaInchi.toInchi(input);
+    for (InchiEngine engine : InchiEngine.values()) {
+      InchiOutput inchiOnly = JnaInchi.toInchi(input, new InchiOptions.InchiOptionsBuilder().withEngine(engine).withOutputFields().build());
+      assertEquals(InchiStatus.SUCCESS, inchiOnly.getStatus());
+      assertEquals("InChI=1S/CHBrClF/c2-1(3)4/h1H/t1-/m0/s1", inchiOnly.getInchi());
+      assertNull(inchiOnly.getAuxInfo());
+      assertNull(inchiOnly.getLog());
+      assertNull(inchiOnly.getMessage());
+
+      InchiOutput withAuxInfo = JnaInchi.toInchi(input, new InchiOptions.InchiOptionsBuilder().withEngine(engine).withOutputFields(InchiOutputField.AUXINFO).build());
+      assertEquals(fullOutput.getAuxInfo(), withAuxInfo.getAuxInfo());
+      assertNull(withAuxInfo.getMessage());
+    }
+    
+    String mol = "\n OpenBabel12062120242D\n\n  5  4  0  0  1  0  0  0  0  0999 V2000\n    1.5000   -0.8660    0.0000 F   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5000   -0.8660    0.0000 C   0  0  2  0  0  0  0  0  0  0  0  0\n   -0.3660   -1.3660    0.0000 H   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5000   -1.8660    0.0000 Br  0  0  0  0  0  0  0  0  0  0  0  0\n   -0.0000   -0.0000    0.0000 I   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\n  2  3  1  1  0  0  0\n  2  4  1  0  0  0  0\n  2  5  1  0  0  0  0\nM  END\n";
+    InchiOutput molOutput = JnaInchi.molToInchi(mol, new InchiOptions.InchiOptionsBuilder().withOutputFields(InchiOutputField.MESSAGE).build());
+    assertEquals("InChI=1S/CHBrFI/c2-1(3)4/h1H/t1-/m0/s1", molOutput.getInchi());
+    assertNull(molOutput.getAuxInfo());
+    assertNull(molOutput.getLog());
+  }
+
+  @Test
+  public void testInchiToSink() {
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    a1.setImplicitHydrogen(3);
+    InchiAtom a2 = new InchiAtom("O");
+    a2.setImplicitHydrogen(1);
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE));
+    String expected = "InChI=1S/CH4O/c1-2/h2H,1H3";
+    for (InchiEngine engine : InchiEngine.values()) {
+      InchiOptions options = new InchiOptions.InchiOptionsBuilder().withEngine(engine).withOutputFields().build();
+      ByteBuffer sink = ByteBuffer.allocate(64);
+      sink.put((byte) '>');
+      assertEquals(InchiStatus.SUCCESS, JnaInchi.toInchi(input, options, sink));
+      assertEquals(">" + expected, new String(sink.array(), 0, sink.position(), StandardCharsets.US_ASCII));
+
+      ByteBuffer smallSink = ByteBuffer.allocate(expected.length() - 1);
+      assertThrows(BufferOverflowException.class, () -> JnaInchi.toInchi(input, options, smallSink));
+      assertEquals(0, smallSink.position());
+    }
+
+    ByteBuffer keySink = ByteBuffer.allocate(27);
+    assertEquals(InchiKeyStatus.OK, JnaInchi.inchiToInchiKey(expected, keySink));
+    assertEquals(JnaInchi.inchiToInchiKey(expected).getInchiKey(), new String(keySink.array(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testBatch() {
+    List<InchiInput> inputs = new ArrayList<>();
+    for (int i = 1; i <= 50; i++) {
+      InchiInput input = new InchiInput();
+      InchiAtom prev = null;
+      for (int j = 0; j < i; j++) {
+        InchiAtom c = new InchiAtom("C");
+        c.setImplicitHydrogen(i == 1 ? 4 : (j == 0 || j == i - 1) ? 3 : 2);
+        input.addAtom(c);
+        if (prev != null) {
+          input.addBond(new InchiBond(prev, c, InchiBondType.SINGLE));
+        }
+        prev = c;
+      }
+      inputs.add(input);
+    }
+    inputs.add(25, null);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<InchiBatchResult<InchiOutput>> results = JnaInchi.toInchiBatch(inputs, InchiOptions.DEFAULT_OPTIONS, executor);
+      assertEquals(inputs.size(), results.size());
+      List<String> inchis = new ArrayList<>();
+      for (int i = 0; i < inputs.size(); i++) {
+        InchiBatchResult<InchiOutput> result = results.get(i);
+        if (i == 25) {
+          assertFalse(result.isSuccess());
+          assertNotNull(result.getException());
+          continue;
+        }
+        assertTrue(result.isSuccess());
+        assertEquals(JnaInchi.toInchi(inputs.get(i)).getInchi(), result.getResult().getInchi());
+        inchis.add(result.getResult().getInchi());
+      }
+
+      List<InchiBatchResult<InchiKeyOutput>> keys = JnaInchi.inchiToInchiKeyBatch(inchis, executor);
+      for (int i = 0; i < inchis.size(); i++) {
+        assertEquals(JnaInchi.inchiToInchiKey(inchis.get(i)).getInchiKey(), keys.get(i).getResult().getInchiKey());
+      }
+
+      String mol = "\n  Mrv\n\n  2  1  0  0  0  0            999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    1.2000    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\nM  END\n";
+      List<InchiBatchResult<InchiOutput>> molResults = JnaInchi.molToInchiBatch(Arrays.asList(mol, mol), InchiOptions.DEFAULT_OPTIONS, executor);
+      for (InchiBatchResult<InchiOutput> result : molResults) {
+        assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", result.getResult().getInchi());
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testToInchiAtomsSharedBetweenInputs() {
+    InchiAtom c = new InchiAtom("C");
+    c.setImplicitHydrogen(3);
+    InchiAtom o = new InchiAtom("O");
+    o.setImplicitHydrogen(1);
+    InchiInput methanol = new InchiInput();
+    methanol.addAtom(c);
+    methanol.addAtom(o);
+    methanol.addBond(new InchiBond(c, o, InchiBondType.SINGLE));
+    
+    InchiAtom n = new InchiAtom("N");
+    n.setImplicitHydrogen(2);
+    InchiInput methylamine = new InchiInput();
+    methylamine.addAtom(n);
+    methylamine.addAtom(c);
+    methylamine.addBond(new InchiBond(c, n, InchiBondType.SINGLE));
+    
+    for (InchiEngine engine : InchiEngine.values()) {
+      InchiOptions options = new InchiOptions.InchiOptionsBuilder().withEngine(engine).build();
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", JnaInchi.toInchi(methanol, options).getInchi());
+      assertEquals("InChI=1S/CH5N/c1-2/h2H2,1H3", JnaInchi.toInchi(methylamine, options).getInchi());
+    }
+  }
+  
   @Test
   public void testInchiToInchi() {
     InchiOutput output = JnaInchi.inchiToInchi("InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-", new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build());
@@ -187,4 +493,24 @@ public class JnaInchiTest {
     assertEquals("InChI=1S/C2H3BrClI/c1-2(3,4)5/h1H3/t2-/m0/s1", JnaInchi.toInchi(inchiInput).getInchi());
   }
 
+  @Test
+  public void testInchiInputFromInchiRoundTrip() {
+    String caffeine = "InChI=1S/C8H10N4O2/c1-10-4-9-6-5(10)7(13)12(3)8(14)11(6)2/h4H,1-3H3";
+    InchiInputFromInchiOutput output = JnaInchi.getInchiInputFromInchi(caffeine);
+    assertEquals(InchiStatus.SUCCESS, output.getStatus());
+    InchiInput inchiInput = output.getInchiInput();
+    assertEquals(14, inchiInput.getAtoms().size());
+    assertEquals(15, inchiInput.getBonds().size());
+    assertEquals(caffeine, JnaInchi.toInchi(inchiInput).getInchi());
+  }
+
+  @Test
+  public void testBackendSelection() {
+    //jna-inchi-ffm is not on this module's classpath
+    assertEquals("JNA", JnaInchi.loadBackend("jna").getName());
+    assertEquals("JNA", JnaInchi.loadBackend("auto").getName());
+    assertThrows(IllegalStateException.class, () -> JnaInchi.loadBackend("ffm"));
+    assertThrows(IllegalStateException.class, () -> JnaInchi.loadBackend("panama"));
+  }
+
 }
@@ -0,0 +1,251 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PersistentInchiCacheTest {
+
+  private static final String METHANE_MOL = "\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+
+  @TempDir
+  Path dir;
+
+  private static InchiWithKeyOutput result(int i) {
+    if (i % 7 == 0) {
+      return new InchiWithKeyOutput(new InchiOutput(null, null, (String) null, null, InchiStatus.ERROR), new InchiKeyOutput("", InchiKeyStatus.EMPTY_INPUT, "", ""));
+    }
+    return new InchiWithKeyOutput(new InchiOutput("InChI=1S/C" + i, null, (String) null, null, InchiStatus.SUCCESS), new InchiKeyOutput("KEY" + i, InchiKeyStatus.OK, "", ""));
+  }
+
+  private static InchiWithKeyOutput notExpectedToLoad() {
+    throw new AssertionError("Result should have been stored");
+  }
+
+  /**
+   * Loads the result if it is an error, as errors are not stored
+   */
+  private static InchiWithKeyOutput storedResult(int i) {
+    return i % 7 == 0 ? result(i) : notExpectedToLoad();
+  }
+
+  private static void assertResult(int i, InchiWithKeyOutput actual) {
+    InchiWithKeyOutput expected = result(i);
+    assertEquals(expected.getInchi(), actual.getInchi());
+    assertEquals(expected.getStatus(), actual.getStatus());
+    assertEquals(expected.getInchiKey(), actual.getInchiKey());
+    assertEquals(expected.getInchiKeyOutput().getStatus(), actual.getInchiKeyOutput().getStatus());
+  }
+
+  @Test
+  public void testStoredBetweenRuns() throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      InchiWithKeyOutput output = cache.molToInchiWithKey(METHANE_MOL, InchiOptions.DEFAULT_OPTIONS);
+      assertEquals("InChI=1S/CH4/h1H4", output.getInchi());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(1, cache.size());
+    }
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      InchiWithKeyOutput output = cache.get(InchiCache.KIND_MOLFILE, METHANE_MOL, InchiOptions.DEFAULT_OPTIONS, PersistentInchiCacheTest::notExpectedToLoad);
+      assertEquals("InChI=1S/CH4/h1H4", output.getInchi());
+      assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", output.getInchiKey());
+      assertEquals(InchiStatus.SUCCESS, output.getStatus());
+      assertEquals(1, cache.getHitCount());
+
+      //different options are a different result
+      InchiOptions options = new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build();
+      cache.molToInchiWithKey(METHANE_MOL, options);
+      assertEquals(1, cache.getMissCount());
+      assertEquals(2, cache.size());
+    }
+  }
+
+  @Test
+  public void testInchiInput() throws IOException {
+    InchiInput input = new InchiInput();
+    InchiAtom c = new InchiAtom("C");
+    c.setImplicitHydrogen(4);
+    input.addAtom(c);
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", cache.toInchiWithKey(input, InchiOptions.DEFAULT_OPTIONS).getInchiKey());
+      assertEquals("VNWKTOKETHGBQD-UHFFFAOYSA-N", cache.toInchiWithKey(input, InchiOptions.DEFAULT_OPTIONS).getInchiKey());
+      assertEquals(1, cache.getHitCount());
+    }
+  }
+
+  private static long countErrors(int count) {
+    return (count + 6) / 7;
+  }
+
+  private long countFiles(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(f -> f.getFileName().toString().endsWith(suffix)).count();
+    }
+  }
+
+  @Test
+  public void testManyResults() throws IOException {
+    int count = 10000;
+    //small regions, so that records are laid out across many mappings of the log
+    try (PersistentInchiCache cache = new PersistentInchiCache(dir, false, 1024)) {
+      cache.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> result(1));
+      try (PersistentInchiCache reader = PersistentInchiCache.openReadOnly(dir)) {
+        //the index grows, without replacing the files the reader has mapped
+        for (int i = 0; i < count; i++) {
+          int j = i;
+          assertResult(i, cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> result(j)));
+        }
+        assertEquals(count - countErrors(count), cache.size());
+        assertResult(1, reader.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, PersistentInchiCacheTest::notExpectedToLoad));
+      }
+      assertEquals(0, cache.getStoreFailureCount());
+    }
+    //the previous indexes have been removed
+    assertEquals(1, countFiles(PersistentInchiCache.INDEX_SUFFIX));
+    assertEquals(1, countFiles(PersistentInchiCache.LOG_SUFFIX));
+    try (PersistentInchiCache cache = new PersistentInchiCache(dir, false, 1024)) {
+      for (int i = 0; i < count; i++) {
+        int j = i;
+        assertResult(i, cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> storedResult(j)));
+      }
+    }
+  }
+
+  @Test
+  public void testErrorsNotStored() throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      assertResult(7, cache.get(InchiCache.KIND_SMILES, "C7", InchiOptions.DEFAULT_OPTIONS, () -> result(7)));
+      assertResult(7, cache.get(InchiCache.KIND_SMILES, "C7", InchiOptions.DEFAULT_OPTIONS, () -> result(7)));
+      assertEquals(2, cache.getMissCount());
+      assertEquals(0, cache.size());
+    }
+  }
+
+  @Test
+  public void testStoreFailureReturnsResult() throws IOException {
+    int count = 4000;
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      //occupy the name of the next file, so that growing the index fails
+      long next;
+      try (Stream<Path> files = Files.list(dir)) {
+        next = files.map(f -> f.getFileName().toString())
+            .filter(n -> n.startsWith(PersistentInchiCache.FILE_PREFIX))
+            .mapToLong(n -> Long.parseLong(n.substring(PersistentInchiCache.FILE_PREFIX.length(), n.length() - 4)))
+            .max().getAsLong() + 1;
+      }
+      Files.createDirectory(dir.resolve(PersistentInchiCache.FILE_PREFIX + next + PersistentInchiCache.INDEX_SUFFIX));
+      for (int i = 0; i < count; i++) {
+        int j = i;
+        assertResult(i, cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> result(j)));
+      }
+      assertEquals(1, cache.getStoreFailureCount());
+      assertEquals(count - countErrors(count) - 1, cache.size());
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.openReadOnly(dir.resolve("missing"))) {
+      assertTrue(cache.isReadOnly());
+      assertResult(1, cache.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> result(1)));
+      assertEquals(0, cache.size());
+    }
+    assertFalse(Files.exists(dir.resolve("missing")));
+
+    try (PersistentInchiCache writer = PersistentInchiCache.open(dir)) {
+      writer.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> result(1));
+      assertThrows(IOException.class, () -> PersistentInchiCache.open(dir));
+      try (PersistentInchiCache reader = PersistentInchiCache.openReadOnly(dir)) {
+        assertResult(1, reader.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, PersistentInchiCacheTest::notExpectedToLoad));
+        //results added by the writer after the reader was opened
+        writer.get(InchiCache.KIND_SMILES, "C2", InchiOptions.DEFAULT_OPTIONS, () -> result(2));
+        assertResult(2, reader.get(InchiCache.KIND_SMILES, "C2", InchiOptions.DEFAULT_OPTIONS, PersistentInchiCacheTest::notExpectedToLoad));
+        //not stored by the reader
+        reader.get(InchiCache.KIND_SMILES, "C3", InchiOptions.DEFAULT_OPTIONS, () -> result(3));
+        assertEquals(2, reader.size());
+        assertThrows(IllegalStateException.class, () -> reader.compact());
+      }
+    }
+  }
+
+  @Test
+  public void testCompact() throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      for (int i = 0; i < 100; i++) {
+        int j = i;
+        cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> result(j));
+      }
+    }
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      for (int i = 0; i < 100; i += 2) {
+        int j = i;
+        cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> storedResult(j));
+      }
+      cache.compact();
+      assertEquals(100 - countErrors(100), cache.size());
+      //only the results used in this run are kept, of the even results 0, 14 ... 98 are errors
+      cache.compact(1);
+      assertEquals(50 - 8, cache.size());
+      for (int i = 0; i < 100; i += 2) {
+        int j = i;
+        assertResult(i, cache.get(InchiCache.KIND_SMILES, "C" + i, InchiOptions.DEFAULT_OPTIONS, () -> storedResult(j)));
+      }
+      assertNull(cache.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> null));
+    }
+  }
+
+  @Test
+  public void testDamagedCacheDiscarded() throws IOException {
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      cache.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> result(1));
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files.filter(f -> f.getFileName().toString().endsWith(PersistentInchiCache.INDEX_SUFFIX))::iterator) {
+        Files.write(file, new byte[100]);
+      }
+    }
+    try (PersistentInchiCache cache = PersistentInchiCache.openReadOnly(dir)) {
+      assertEquals(0, cache.size());
+    }
+    try (PersistentInchiCache cache = PersistentInchiCache.open(dir)) {
+      assertEquals(0, cache.size());
+      assertResult(1, cache.get(InchiCache.KIND_SMILES, "C1", InchiOptions.DEFAULT_OPTIONS, () -> result(1)));
+    }
+  }
+
+  @Test
+  public void testClosed() throws IOException {
+    PersistentInchiCache cache = PersistentInchiCache.open(dir);
+    cache.close();
+    cache.close();
+    assertThrows(IllegalStateException.class, () -> cache.molToInchiWithKey(METHANE_MOL, InchiOptions.DEFAULT_OPTIONS));
+  }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SdfReaderTest {
+
+  private static final String METHANOL = "methanol\n  test\n\n  2  1  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    1.0000    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\nM  END\n";
+  private static final String METHANE = "methane\n  test\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+
+  private static String sdf(int copies) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < copies; i++) {
+      sb.append(i % 2 == 0 ? METHANOL : METHANE);
+      sb.append(">  <ID>\n").append(i).append("\n\n");
+      sb.append("> <COMMENT> (1)\nline one\nline two\n\n");
+      sb.append("$$$$\n");
+    }
+    return sb.toString();
+  }
+
+  private static void checkRecords(List<MolRecord> records, int copies, boolean indexed) {
+    assertEquals(copies, records.size());
+    long offset = 0;
+    for (int i = 0; i < copies; i++) {
+      MolRecord record = records.get(i);
+      assertEquals(indexed ? i : -1, record.getIndex());
+      assertEquals(offset, record.getOffset());
+      offset += record.getBytes().remaining() + "$$$$\n".length();
+      assertEquals(i % 2 == 0 ? METHANOL : METHANE, record.getMolfile());
+      assertEquals(i % 2 == 0 ? "methanol" : "methane", record.getTitle());
+      assertEquals(String.valueOf(i), record.getProperty("ID"));
+      assertEquals("line one\nline two", record.getProperty("COMMENT"));
+      assertNull(record.getProperty("MISSING"));
+    }
+  }
+
+  @Test
+  public void testStream() throws IOException {
+    String sdf = sdf(3);
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream(sdf.getBytes(StandardCharsets.UTF_8)))) {
+      List<InchiOutput> outputs = reader.stream().map(r -> r.toInchi(InchiOptions.DEFAULT_OPTIONS)).collect(Collectors.toList());
+      assertEquals(3, outputs.size());
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", outputs.get(0).getInchi());
+      assertEquals("InChI=1S/CH4/h1H4", outputs.get(1).getInchi());
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", outputs.get(2).getInchi());
+    }
+  }
+
+  @Test
+  public void testBufferRefilled() throws IOException {
+    int copies = 2000;
+    String sdf = sdf(copies);
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream(sdf.getBytes(StandardCharsets.UTF_8)))) {
+      checkRecords(reader.stream().collect(Collectors.toList()), copies, true);
+    }
+  }
+
+  @Test
+  public void testLargeRecord() throws IOException {
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 200000; i++) {
+      value.append('x');
+    }
+    String sdf = METHANE + "> <LARGE>\n" + value + "\n\n$$$$\n" + METHANOL + "$$$$\n";
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream(sdf.getBytes(StandardCharsets.UTF_8)))) {
+      assertEquals(value.toString(), reader.next().getProperty("LARGE"));
+      assertEquals(METHANOL, reader.next().getMolfile());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testMapped(@TempDir Path dir) throws IOException {
+    int copies = 500;
+    Path path = dir.resolve("test.sdf");
+    Files.write(path, sdf(copies).getBytes(StandardCharsets.UTF_8));
+    try (SdfReader reader = SdfReader.open(path)) {
+      checkRecords(reader.stream().collect(Collectors.toList()), copies, true);
+    }
+    //a window smaller than a record
+    try (SdfReader reader = SdfReader.open(path, 100)) {
+      checkRecords(reader.stream().collect(Collectors.toList()), copies, true);
+    }
+  }
+
+  @Test
+  public void testParallelStream(@TempDir Path dir) throws IOException {
+    int copies = 5000;
+    Path path = dir.resolve("test.sdf");
+    Files.write(path, sdf(copies).getBytes(StandardCharsets.UTF_8));
+    try (Stream<MolRecord> records = SdfReader.parallelStream(path)) {
+      checkRecords(records.collect(Collectors.toList()), copies, false);
+    }
+    //split into many small ranges, with windows that are smaller than the ranges
+    try (Stream<MolRecord> records = SdfReader.parallelStream(path, 1000, 100)) {
+      assertTrue(records.isParallel());
+      checkRecords(records.collect(Collectors.toList()), copies, false);
+    }
+    try (Stream<MolRecord> records = SdfReader.parallelStream(path, 1000, 100)) {
+      Map<String, Long> counts = records.map(r -> r.toInchi(InchiOptions.DEFAULT_OPTIONS).getInchi()).collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+      assertEquals(Long.valueOf(copies / 2), counts.get("InChI=1S/CH4O/c1-2/h2H,1H3"));
+      assertEquals(Long.valueOf(copies / 2), counts.get("InChI=1S/CH4/h1H4"));
+    }
+  }
+
+  @Test
+  public void testSplitAlignment(@TempDir Path dir) throws IOException {
+    String sdf = sdf(3);
+    Path path = dir.resolve("test.sdf");
+    Files.write(path, sdf.getBytes(StandardCharsets.UTF_8));
+    int second = sdf.indexOf("$$$$\n") + 5;
+    int third = sdf.indexOf("$$$$\n", second) + 5;
+    try (FileChannel file = FileChannel.open(path)) {
+      SdfSpliterator spliterator = new SdfSpliterator(file, 1000, 1);
+      assertEquals(0, spliterator.recordStartAtOrAfter(0));
+      assertEquals(second, spliterator.recordStartAtOrAfter(1));
+      assertEquals(second, spliterator.recordStartAtOrAfter(second - 3));
+      assertEquals(second, spliterator.recordStartAtOrAfter(second));
+      assertEquals(third, spliterator.recordStartAtOrAfter(second + 1));
+      assertEquals(sdf.length(), spliterator.recordStartAtOrAfter(third + 1));
+    }
+  }
+
+  @Test
+  public void testLineEndings() throws IOException {
+    String sdf = sdf(2).replace("\n", "\r\n");
+    //no terminator on the last record
+    sdf = sdf.substring(0, sdf.length() - "$$$$\r\n".length());
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream(sdf.getBytes(StandardCharsets.UTF_8)))) {
+      MolRecord record1 = reader.next();
+      assertEquals("methanol", record1.getTitle());
+      assertEquals("0", record1.getProperty("ID"));
+      assertEquals("line one\nline two", record1.getProperty("COMMENT"));
+      assertEquals("InChI=1S/CH4O/c1-2/h2H,1H3", record1.toInchi(InchiOptions.DEFAULT_OPTIONS).getInchi());
+      MolRecord record2 = reader.next();
+      assertEquals("1", record2.getProperty("ID"));
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testEmpty(@TempDir Path dir) throws IOException {
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream("\n\n".getBytes(StandardCharsets.UTF_8)))) {
+      assertFalse(reader.hasNext());
+    }
+    Path path = dir.resolve("empty.sdf");
+    Files.write(path, new byte[0]);
+    try (SdfReader reader = SdfReader.open(path)) {
+      assertFalse(reader.hasNext());
+    }
+    try (SdfReader reader = new SdfReader(new ByteArrayInputStream(METHANE.getBytes(StandardCharsets.UTF_8)))) {
+      assertTrue(reader.hasNext());
+      assertTrue(reader.next().getProperties().isEmpty());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+}
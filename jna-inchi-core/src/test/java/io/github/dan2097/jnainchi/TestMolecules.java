@@ -0,0 +1,52 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+/**
+ * Molecules shared by the tests
+ */
+final class TestMolecules {
+
+  private TestMolecules() {
+  }
+
+  /**
+   * (Z)-1-bromopropene, InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-
+   * @return a new input
+   */
+  static InchiInput bromopropene() {
+    InchiInput input = new InchiInput();
+    InchiAtom a1 = new InchiAtom("C");
+    a1.setImplicitHydrogen(3);
+    InchiAtom a2 = new InchiAtom("C");
+    a2.setImplicitHydrogen(1);
+    InchiAtom a3 = new InchiAtom("C");
+    a3.setImplicitHydrogen(1);
+    InchiAtom a4 = new InchiAtom("Br");
+    input.addAtom(a1);
+    input.addAtom(a2);
+    input.addAtom(a3);
+    input.addAtom(a4);
+    input.addBond(new InchiBond(a1, a2, InchiBondType.SINGLE));
+    input.addBond(new InchiBond(a2, a3, InchiBondType.DOUBLE));
+    input.addBond(new InchiBond(a3, a4, InchiBondType.SINGLE));
+    input.addStereo(InchiStereo.createDoubleBondStereo(a1, a2, a3, a4, InchiStereoParity.ODD));
+    return input;
+  }
+
+}
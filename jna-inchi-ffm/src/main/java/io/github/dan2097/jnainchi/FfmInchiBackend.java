@@ -0,0 +1,280 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.sun.jna.Pointer;
+
+import io.github.dan2097.jnainchi.inchi.InchiLibrary;
+
+/**
+ * {@link InchiBackend} that calls the InChI library through the foreign function and memory API (Java 22+).
+ * The library itself is still located and loaded by JNA, only the symbol addresses are taken from it.
+ * All native memory used by a call is allocated from a confined arena that is closed when the call returns
+ */
+final class FfmInchiBackend implements InchiBackend {
+
+  /** inchi_Output, four char* */
+  private static final StructLayout INCHI_OUTPUT = MemoryLayout.structLayout(
+      ADDRESS.withName("szInChI"),
+      ADDRESS.withName("szAuxInfo"),
+      ADDRESS.withName("szMessage"),
+      ADDRESS.withName("szLog"));
+  private static final long SZINCHI_OFFSET = INCHI_OUTPUT.byteOffset(MemoryLayout.PathElement.groupElement("szInChI"));
+  private static final long SZAUXINFO_OFFSET = INCHI_OUTPUT.byteOffset(MemoryLayout.PathElement.groupElement("szAuxInfo"));
+  private static final long SZMESSAGE_OFFSET = INCHI_OUTPUT.byteOffset(MemoryLayout.PathElement.groupElement("szMessage"));
+  private static final long SZLOG_OFFSET = INCHI_OUTPUT.byteOffset(MemoryLayout.PathElement.groupElement("szLog"));
+
+  private static final int INCHIKEY_BUFFER_SIZE = 28;
+  private static final int XTRA_BUFFER_SIZE = 65;
+
+  private final MethodHandle getInchiEx;
+  private final MethodHandle freeInchi;
+  private final MethodHandle makeInchiFromMolfileText;
+  private final MethodHandle getInchiKeyFromInchi;
+  private final MethodHandle checkInchi;
+  private final MethodHandle checkInchiKey;
+
+  FfmInchiBackend() {
+    Linker linker = Linker.nativeLinker();
+    getInchiEx = downcall(linker, "GetINCHIEx", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    freeInchi = downcall(linker, "FreeINCHI", FunctionDescriptor.ofVoid(ADDRESS));
+    makeInchiFromMolfileText = downcall(linker, "MakeINCHIFromMolfileText", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    getInchiKeyFromInchi = downcall(linker, "GetINCHIKeyFromINCHI", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    checkInchi = downcall(linker, "CheckINCHI", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+    checkInchiKey = downcall(linker, "CheckINCHIKey", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+  }
+
+  private static MethodHandle downcall(Linker linker, String name, FunctionDescriptor descriptor) {
+    long address = Pointer.nativeValue(InchiLibrary.JNA_NATIVE_LIB.getFunction(name));
+    return linker.downcallHandle(MemorySegment.ofAddress(address), descriptor);
+  }
+
+  @Override
+  public String getName() {
+    return "FFM";
+  }
+
+  @Override
+  public InchiOutput toInchi(PackedInchiInput input) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment packedInput = arena.allocate(input.size(), Long.BYTES);
+      input.write(packedInput.asByteBuffer(), packedInput.address());
+      MemorySegment nativeOutput = arena.allocate(INCHI_OUTPUT);
+      try {
+        InchiStatus status = JnaInchi.getInchiStatus((int) getInchiEx.invokeExact(packedInput, nativeOutput));
+        return toInchiOutput(nativeOutput, input.getOptions(), status);
+      }
+      finally {
+        freeInchi.invokeExact(nativeOutput);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiStatus toInchi(PackedInchiInput input, ByteBuffer sink) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment packedInput = arena.allocate(input.size(), Long.BYTES);
+      input.write(packedInput.asByteBuffer(), packedInput.address());
+      MemorySegment nativeOutput = arena.allocate(INCHI_OUTPUT);
+      try {
+        InchiStatus status = JnaInchi.getInchiStatus((int) getInchiEx.invokeExact(packedInput, nativeOutput));
+        writeCString(nativeOutput.get(ADDRESS, SZINCHI_OFFSET), sink);
+        return status;
+      }
+      finally {
+        freeInchi.invokeExact(nativeOutput);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiOutput molToInchi(String molText, InchiOptions options) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment nativeOutput = arena.allocate(INCHI_OUTPUT);
+      try {
+        int ret = (int) makeInchiFromMolfileText.invokeExact(arena.allocateFrom(molText), arena.allocateFrom(options.toClassicOptionsString()), nativeOutput);
+        return toInchiOutput(nativeOutput, options, JnaInchi.getMolToInchiStatus(ret));
+      }
+      finally {
+        freeInchi.invokeExact(nativeOutput);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiStatus molToInchi(String molText, InchiOptions options, ByteBuffer sink) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment nativeOutput = arena.allocate(INCHI_OUTPUT);
+      try {
+        int ret = (int) makeInchiFromMolfileText.invokeExact(arena.allocateFrom(molText), arena.allocateFrom(options.toClassicOptionsString()), nativeOutput);
+        InchiStatus status = JnaInchi.getMolToInchiStatus(ret);
+        writeCString(nativeOutput.get(ADDRESS, SZINCHI_OFFSET), sink);
+        return status;
+      }
+      finally {
+        freeInchi.invokeExact(nativeOutput);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiOutput molToInchi(ByteBuffer molText, InchiOptions options) {
+    try (Arena arena = Arena.ofConfined()) {
+      int len = molText.remaining();
+      MemorySegment nativeMolText = arena.allocate(len + 1L);
+      MemorySegment.copy(MemorySegment.ofBuffer(molText), 0, nativeMolText, 0, len);
+      nativeMolText.set(JAVA_BYTE, len, (byte) 0);
+      MemorySegment nativeOutput = arena.allocate(INCHI_OUTPUT);
+      try {
+        int ret = (int) makeInchiFromMolfileText.invokeExact(nativeMolText, arena.allocateFrom(options.toClassicOptionsString()), nativeOutput);
+        return toInchiOutput(nativeOutput, options, JnaInchi.getMolToInchiStatus(ret));
+      }
+      finally {
+        freeInchi.invokeExact(nativeOutput);
+      }
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiKeyOutput inchiToInchiKey(String inchi) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment inchiKey = arena.allocate(INCHIKEY_BUFFER_SIZE);
+      MemorySegment szXtra1 = arena.allocate(XTRA_BUFFER_SIZE);
+      MemorySegment szXtra2 = arena.allocate(XTRA_BUFFER_SIZE);
+      int ret = (int) getInchiKeyFromInchi.invokeExact(arena.allocateFrom(inchi), 1, 1, inchiKey, szXtra1, szXtra2);
+      return new InchiKeyOutput(inchiKey.getString(0).trim(), InchiKeyStatus.of(ret), szXtra1.getString(0).trim(), szXtra2.getString(0).trim());
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiKeyStatus inchiToInchiKey(String inchi, ByteBuffer sink) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment inchiKey = arena.allocate(INCHIKEY_BUFFER_SIZE);
+      //The hash extensions are not requested, so no buffers are needed for them
+      int ret = (int) getInchiKeyFromInchi.invokeExact(arena.allocateFrom(inchi), 0, 0, inchiKey, MemorySegment.NULL, MemorySegment.NULL);
+      writeCString(inchiKey, sink);
+      return InchiKeyStatus.of(ret);
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiCheckStatus checkInchi(String inchi, boolean strict) {
+    try (Arena arena = Arena.ofConfined()) {
+      return InchiCheckStatus.of((int) checkInchi.invokeExact(arena.allocateFrom(inchi), strict ? 1 : 0));
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public InchiKeyCheckStatus checkInchiKey(String inchiKey) {
+    try (Arena arena = Arena.ofConfined()) {
+      return InchiKeyCheckStatus.of((int) checkInchiKey.invokeExact(arena.allocateFrom(inchiKey)));
+    }
+    catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static InchiOutput toInchiOutput(MemorySegment nativeOutput, InchiOptions options, InchiStatus status) {
+    String inchi = readString(nativeOutput, SZINCHI_OFFSET);
+    String auxInfo = options.isOutputRequested(InchiOutputField.AUXINFO) ? readString(nativeOutput, SZAUXINFO_OFFSET) : null;
+    String message = options.isOutputRequested(InchiOutputField.MESSAGE) ? readString(nativeOutput, SZMESSAGE_OFFSET) : null;
+    // The way szLog is truncated can be a bit odd, but this seems pseudo-intentional, see copy_corrected_log_tail in inchi_dll.c
+    String log = options.isOutputRequested(InchiOutputField.LOG) ? readString(nativeOutput, SZLOG_OFFSET) : null;
+    return new InchiOutput(inchi, auxInfo, message, log, status);
+  }
+
+  private static String readString(MemorySegment struct, long offset) {
+    MemorySegment cstr = struct.get(ADDRESS, offset);
+    if (cstr.address() == 0) {
+      return null;
+    }
+    return cstr.reinterpret(Long.MAX_VALUE).getString(0);
+  }
+
+  /**
+   * Copies a NUL-terminated string into the sink, without decoding it
+   * @param cstr may be NULL, in which case nothing is written
+   * @param sink
+   * @throws BufferOverflowException if the string does not fit in the remaining space of the sink, in which case the sink is unchanged
+   */
+  private static void writeCString(MemorySegment cstr, ByteBuffer sink) {
+    if (cstr.address() == 0) {
+      return;
+    }
+    MemorySegment str = cstr.byteSize() > 0 ? cstr : cstr.reinterpret(Long.MAX_VALUE);
+    long len = 0;
+    while (str.get(JAVA_BYTE, len) != 0) {
+      len++;
+    }
+    if (len > sink.remaining()) {
+      throw new BufferOverflowException();
+    }
+    int pos = sink.position();
+    MemorySegment.copy(str, 0, MemorySegment.ofBuffer(sink), 0, len);
+    sink.position(pos + (int) len);
+  }
+
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    return new RuntimeException(e);
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * JNA-InChI - Library for calling InChI from Java
+ * Copyright © 2018 Daniel Lowe
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.dan2097.jnainchi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class FfmInchiBackendTest {
+
+  private static final String MOL = "\n OpenBabel12062120242D\n\n  5  4  0  0  1  0  0  0  0  0999 V2000\n    1.5000   -0.8660    0.0000 F   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5000   -0.8660    0.0000 C   0  0  2  0  0  0  0  0  0  0  0  0\n   -0.3660   -1.3660    0.0000 H   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5000   -1.8660    0.0000 Br  0  0  0  0  0  0  0  0  0  0  0  0\n   -0.0000   -0.0000    0.0000 I   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\n  2  3  1  1  0  0  0\n  2  4  1  0  0  0  0\n  2  5  1  0  0  0  0\nM  END\n";
+
+  private static final String BROMOPROPENE = "InChI=1S/C3H5Br/c1-2-3-4/h2-3H,1H3/b3-2-";
+
+  private final FfmInchiBackend ffm = new FfmInchiBackend();
+
+  @Test
+  public void testSelectedByDefault() {
+    assertEquals("FFM", JnaInchi.getBackend());
+  }
+
+  @Test
+  public void testToInchi() {
+    PackedInchiInput input = new PackedInchiInput(JnaInchi.getInchiInputFromInchi(BROMOPROPENE).getInchiInput(), InchiOptions.DEFAULT_OPTIONS);
+    InchiOutput output = ffm.toInchi(input);
+    InchiOutput expected = JnaInchiBackend.INSTANCE.toInchi(input);
+    assertEquals(InchiStatus.SUCCESS, output.getStatus());
+    assertEquals(BROMOPROPENE, output.getInchi());
+    assertEquals(expected.getAuxInfo(), output.getAuxInfo());
+    assertEquals(expected.getMessage(), output.getMessage());
+    assertEquals(expected.getLog(), output.getLog());
+  }
+
+  @Test
+  public void testToInchiSink() {
+    PackedInchiInput input = new PackedInchiInput(JnaInchi.getInchiInputFromInchi(BROMOPROPENE).getInchiInput(), InchiOptions.DEFAULT_OPTIONS);
+    ByteBuffer sink = ByteBuffer.allocateDirect(64);
+    assertEquals(InchiStatus.SUCCESS, ffm.toInchi(input, sink));
+    sink.flip();
+    assertEquals(BROMOPROPENE, StandardCharsets.US_ASCII.decode(sink).toString());
+
+    ByteBuffer keySink = ByteBuffer.allocate(27);
+    assertEquals(InchiKeyStatus.OK, ffm.inchiToInchiKey("InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3", keySink));
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", new String(keySink.array(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testMolToInchi() {
+    InchiOutput output1 = ffm.molToInchi(MOL, InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(InchiStatus.SUCCESS, output1.getStatus());
+    assertEquals("InChI=1S/CHBrFI/c2-1(3)4/h1H/t1-/m0/s1", output1.getInchi());
+    assertEquals(JnaInchiBackend.INSTANCE.molToInchi(MOL, InchiOptions.DEFAULT_OPTIONS).getAuxInfo(), output1.getAuxInfo());
+
+    InchiOutput output2 = ffm.molToInchi(MOL, new InchiOptions.InchiOptionsBuilder().withFlag(InchiFlag.SNon).build());
+    assertEquals(InchiStatus.SUCCESS, output2.getStatus());
+    assertEquals("InChI=1S/CHBrFI/c2-1(3)4/h1H", output2.getInchi());
+  }
+
+  @Test
+  public void testMolToInchiBytes() {
+    ByteBuffer direct = ByteBuffer.allocateDirect(MOL.length() + 4);
+    direct.put(MOL.getBytes(StandardCharsets.US_ASCII)).put("$$$$".getBytes(StandardCharsets.US_ASCII));
+    direct.flip().limit(MOL.length());
+    InchiOutput output = ffm.molToInchi(direct, InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(InchiStatus.SUCCESS, output.getStatus());
+    assertEquals("InChI=1S/CHBrFI/c2-1(3)4/h1H/t1-/m0/s1", output.getInchi());
+    assertEquals(JnaInchiBackend.INSTANCE.molToInchi(MOL, InchiOptions.DEFAULT_OPTIONS).getAuxInfo(), output.getAuxInfo());
+  }
+
+  @Test
+  public void testMolToInchiError() {
+    String polymer = "poly(ethylene)\n  -INDIGO-01152200132D\n\n  4  3  0  0  0  0  0  0  0  0999 V2000\n   -1.9875    0.8946    0.0000 *   0  0  0  0  0  0  0  0  0  0  0  0\n   -1.1411    0.8839    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n   -0.4286    0.4714    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n    0.5357    0.4661    0.0000 *   0  0  0  0  0  0  0  0  0  0  0  0\n  1  2  1  0  0  0  0\n  2  3  1  0  0  0  0\n  3  4  1  0  0  0  0\nM  STY  1   1 SRU\nM  SLB  1   1   1\nM  SCN  1   1 HT \nM  SAL   1  2   2   3\nM  SBL   1  2   1   3\nM  SMT   1 n\nM  SDI   1  4   -0.0268    0.8839   -0.0321    0.0589\nM  SDI   1  4   -1.4946    0.4768   -1.4839    1.3018\nM  END\n";
+    InchiOutput output = ffm.molToInchi(polymer, InchiOptions.DEFAULT_OPTIONS);
+    assertEquals(InchiStatus.ERROR, output.getStatus());
+    assertNull(output.getInchi());
+  }
+
+  @Test
+  public void testInchiKeyGeneration() {
+    String inchi = "InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3";
+    InchiKeyOutput output = ffm.inchiToInchiKey(inchi);
+    InchiKeyOutput expected = JnaInchiBackend.INSTANCE.inchiToInchiKey(inchi);
+    assertEquals(InchiKeyStatus.OK, output.getStatus());
+    assertEquals("SPSSULHKWOKEEL-UHFFFAOYSA-N", output.getInchiKey());
+    assertEquals(expected.getBlock1HashExtension(), output.getBlock1HashExtension());
+    assertEquals(expected.getBlock2HashExtension(), output.getBlock2HashExtension());
+  }
+
+  @Test
+  public void testCheckInchi() {
+    assertEquals(InchiCheckStatus.VALID_STANDARD, ffm.checkInchi("InChI=1S/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3", false));
+    assertEquals(InchiCheckStatus.VALID_NON_STANDARD, ffm.checkInchi("InChI=1/C7H5N3O6/c1-4-6(9(13)14)2-5(8(11)12)3-7(4)10(15)16/h2-3H,1H3", true));
+  }
+
+  @Test
+  public void testCheckInchiKey() {
+    assertEquals(InchiKeyCheckStatus.VALID_STANDARD, ffm.checkInchiKey("SPSSULHKWOKEEL-UHFFFAOYSA-N"));
+  }
+
+}
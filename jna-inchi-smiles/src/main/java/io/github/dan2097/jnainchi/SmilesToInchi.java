@@ -20,6 +20,7 @@ package io.github.dan2097.jnainchi;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import uk.ac.ebi.beam.Atom;
 import uk.ac.ebi.beam.Bond;
@@ -63,6 +64,160 @@ public class SmilesToInchi {
     return JnaInchi.toInchi(input, options);
   }
 
+  /**
+   * Convert a SMILES string to InChI and InChIKey using the default options
+   * @param smiles
+   * @return
+   * @throws IOException
+   */
+  public static InchiWithKeyOutput toInchiWithKey(String smiles) throws IOException {
+    return toInchiWithKey(smiles, InchiOptions.DEFAULT_OPTIONS);
+  }
+
+  /**
+   * As {@link #toInchi(String, InchiOptions)}, but also generating the InChIKey as described for {@link JnaInchi#toInchiWithKey(InchiInput, InchiOptions)}
+   * @param smiles
+   * @param options
+   * @return
+   * @throws IOException
+   */
+  public static InchiWithKeyOutput toInchiWithKey(String smiles, InchiOptions options) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    Graph g = Graph.fromSmiles(smiles);
+    InchiInput input = graphToInput(g);
+    return JnaInchi.toInchiWithKey(input, options);
+  }
+
+  /**
+   * As {@link #toInchiWithKey(String, InchiOptions)}, but returning the stored result if this SMILES has been converted before with these options.
+   * The SMILES string is the key, so different SMILES for the same molecule are stored separately
+   * @param smiles
+   * @param options
+   * @param cache
+   * @return
+   * @throws IOException
+   */
+  public static InchiWithKeyOutput toInchiWithKey(String smiles, InchiOptions options, PersistentInchiCache cache) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("cache must not be null");
+    }
+    return cache.get(InchiCache.KIND_SMILES, smiles, options, () -> toInchiWithKey(smiles, options));
+  }
+
+  /**
+   * Parses a SMILES string into the structure that would be passed to the InChI library, without calling it.
+   * This allows parsing to be done separately to InChI generation, for example in the parse stage of an {@link InchiPipeline}
+   * Throws an IOException if there is an issue with the SMILES string
+   * or IllegalArgumentException if given null input
+   * @param smiles
+   * @return
+   * @throws IOException
+   */
+  public static InchiInput toInchiInput(String smiles) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    return graphToInput(Graph.fromSmiles(smiles));
+  }
+
+  /**
+   * As {@link #toInchi(String, InchiOptions)}, but reusing the native handles of the given session, see {@link InchiSession}
+   * @param smiles
+   * @param options
+   * @param session
+   * @return
+   * @throws IOException
+   */
+  public static InchiOutput toInchi(String smiles, InchiOptions options, InchiSession session) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    if (session == null) {
+      throw new IllegalArgumentException("session must not be null");
+    }
+    return session.toInchi(graphToInput(Graph.fromSmiles(smiles)), options);
+  }
+
+  /**
+   * As {@link #toInchi(String, InchiOptions)}, but if this SMILES recently failed with these options,
+   * an output with the status and message of that failure is returned without calling the InChI library.
+   * SMILES that cannot be parsed throw an exception, and are not remembered
+   * @param smiles
+   * @param options
+   * @param failures
+   * @return
+   * @throws IOException
+   */
+  public static InchiOutput toInchi(String smiles, InchiOptions options, InchiFailureCache failures) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    if (failures == null) {
+      throw new IllegalArgumentException("failures must not be null");
+    }
+    return failures.get(InchiCache.KIND_SMILES, smiles, options, () -> toInchi(smiles, options));
+  }
+
+  /**
+   * As {@link #toInchi(String, InchiOptions)}, but returning the cached output if this SMILES has been converted before with these options.
+   * The SMILES string is the key, so different SMILES for the same molecule are cached separately
+   * @param smiles
+   * @param options
+   * @param cache
+   * @return
+   * @throws IOException
+   */
+  public static InchiOutput toInchi(String smiles, InchiOptions options, InchiCache cache) throws IOException {
+    if (smiles == null) {
+      throw new IllegalArgumentException("SMILES should not be null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("cache must not be null");
+    }
+    return cache.get(InchiCache.KIND_SMILES, smiles, options, () -> toInchi(smiles, options));
+  }
+
+  /**
+   * Converts each of the SMILES as per {@link #toInchi(String, InchiOptions)}, in parallel as described for {@link JnaInchi#toInchiBatch(List, InchiOptions, Executor)}.
+   * A SMILES that could not be parsed has its IOException captured in its result
+   * @param smiles
+   * @param options
+   * @param executor
+   * @return a result per SMILES, in the same order as the SMILES
+   */
+  public static List<InchiBatchResult<InchiOutput>> toInchiBatch(List<String> smiles, InchiOptions options, Executor executor) {
+    if (options == null) {
+      throw new IllegalArgumentException("options must not be null");
+    }
+    JnaInchi.checkLibrary();
+    return InchiBatch.run(smiles, executor, true, (session, smi) -> {
+      if (smi == null) {
+        throw new IllegalArgumentException("SMILES should not be null");
+      }
+      return session.toInchi(graphToInput(Graph.fromSmiles(smi)), options);
+    });
+  }
+
   private static InchiInput graphToInput(Graph g) throws IOException {
     g = g.kekule();
     InchiInput input = new InchiInput();